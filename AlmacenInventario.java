@@ -0,0 +1,351 @@
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * @author Alejandra Avilés
+ * Punto único de acceso al inventario de un archivo: es dueño del árbol por SKU y del árbol por nombre
+ * (con sus índices de nombres, trigramas, descripciones y tallas, y la caché) y hace cada cambio en todos
+ * ellos a la vez, así que nunca quedan desfasados.
+ * Un alta revisa el nombre en el índice de nombres normalizados (O(1)) y el SKU en el mismo descenso
+ * que lo inserta, en lugar de buscar en ambos árboles y después volver a recorrerlos para insertar.
+ * Las bajas y los cambios de nombre también pasan por aquí: quitan el producto de ambos árboles (que se
+ * rebalancean) y de todos los índices, o lo vuelven a ubicar en el árbol por nombre con la clave nueva.
+ * Los métodos estáticos de Inventario y BinaryTree.agregarProducto siguen disponibles y delegan aquí.
+ */
+public class AlmacenInventario {
+    private final BinaryTree arbolSku;
+    private final BinaryTree arbolNombre;
+    private final String archivo;
+    private final Inventario inventario = new Inventario();
+
+    /**
+     * Constructor de un almacén vacío; los productos se leen con cargar()
+     * @param archivo La ruta del CSV del inventario
+     */
+    public AlmacenInventario(String archivo) {
+        this(new BinaryTree(), new BinaryTree(), archivo);
+    }
+
+    /**
+     * Constructor sobre árboles ya existentes (por ejemplo, cargados con CargadorParalelo)
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     * @param arbolNombre El árbol binario que almacena productos por nombre
+     * @param archivo La ruta del CSV del inventario
+     */
+    public AlmacenInventario(BinaryTree arbolSku, BinaryTree arbolNombre, String archivo) {
+        this.arbolSku = arbolSku;
+        this.arbolNombre = arbolNombre;
+        this.archivo = archivo;
+    }
+
+    /**
+     * Carga los productos del CSV en ambos árboles y construye el índice de nombres
+     */
+    public void cargar() {
+        Inventario.cargarInventario(archivo, arbolSku, arbolNombre);
+        arbolNombre.asegurarIndiceNombres();
+    }
+
+    /**
+     * Activa la bitácora del archivo, reproduciendo sobre los árboles los cambios pendientes (ver Bitacora)
+     */
+    public void abrirBitacora() {
+        Bitacora.abrir(archivo, arbolSku, arbolNombre);
+    }
+
+    /**
+     * Deja todos los cambios en el CSV y cierra la bitácora, si había una
+     */
+    public void cerrar() {
+        Bitacora.cerrar(archivo);
+    }
+
+    /**
+     * Pone una caché acotada delante de las búsquedas por SKU (ver BinaryTree.activarCache)
+     * @param capacidad La cantidad máxima de productos en caché
+     */
+    public void activarCache(int capacidad) {
+        arbolSku.activarCache(capacidad);
+    }
+
+    /**
+     * Publica por JMX las latencias y la forma de ambos árboles (ver Metricas)
+     */
+    public void activarMetricas() {
+        Metricas.activar(arbolSku, arbolNombre);
+    }
+
+    /**
+     * Agrega un producto a ambos árboles y a todos sus índices, y lo persiste en la bitácora,
+     * el persistidor o el CSV, según lo que tenga activo el archivo
+     * @param sku El SKU del nuevo producto
+     * @param nombre El nombre del nuevo producto
+     * @param descripcion La descripción del nuevo producto
+     * @param tallas Un mapa de tallas y cantidades del nuevo producto
+     * @return true si se agregó, false si el SKU o el nombre ya existían
+     */
+    public boolean agregar(String sku, String nombre, String descripcion, Map<String, Integer> tallas) {
+        Producto nuevoProducto = new Producto(sku, nombre, descripcion, tallas);
+        return aplicar(() -> insertar(nuevoProducto), bitacora -> bitacora.registrarAlta(nuevoProducto));
+    }
+
+    /**
+     * Elimina un producto de ambos árboles y de todos sus índices, y persiste la baja
+     * @param sku El SKU del producto
+     * @return true si se eliminó, false si no existía
+     */
+    public boolean eliminar(String sku) {
+        return aplicar(() -> {
+            Producto producto = arbolSku.buscar(sku);
+            if (producto == null) {
+                System.out.println("El producto con el SKU " + sku + " no existe.");
+                return false;
+            }
+            quitar(producto);
+            return true;
+        }, bitacora -> bitacora.registrarBaja(sku));
+    }
+
+    /**
+     * Cambia el nombre de un producto: el árbol por nombre lo vuelve a ubicar con la clave nueva y los
+     * índices de nombres y trigramas lo vuelven a indexar. Las ediciones de nombre deben pasar por aquí
+     * y no por Producto.setNombre, o el árbol por nombre queda ordenado por el nombre anterior.
+     * @param sku El SKU del producto
+     * @param nombre El nuevo nombre
+     * @return true si se cambió, false si el producto no existe o el nombre ya es de otro producto
+     */
+    public boolean renombrar(String sku, String nombre) {
+        return aplicar(() -> {
+            Producto producto = arbolSku.buscar(sku);
+            if (producto == null) {
+                System.out.println("El producto con el SKU " + sku + " no existe.");
+                return false;
+            }
+            return cambiarNombre(producto, nombre);
+        }, bitacora -> bitacora.registrarNombre(sku, nombre));
+    }
+
+    /**
+     * Aplica un cambio sobre los árboles y lo persiste según lo que tenga activo el archivo: con persistidor
+     * se aplica bajo su candado y el CSV se guarda después en segundo plano; con bitácora se agrega un
+     * registro; si no, se guarda el CSV completo
+     * @param cambio El cambio; devuelve false si no modificó nada
+     * @param registro Cómo se anota el cambio en la bitácora
+     * @return Lo que devolvió el cambio
+     */
+    private boolean aplicar(BooleanSupplier cambio, Consumer<Bitacora> registro) {
+        Persistidor persistidor = Persistidor.activo(archivo);
+        if (persistidor != null) {
+            boolean[] aplicado = new boolean[1];
+            persistidor.modificar(() -> aplicado[0] = cambio.getAsBoolean());
+            return aplicado[0];
+        }
+        if (!cambio.getAsBoolean()) {
+            return false;
+        }
+        Bitacora bitacora = Bitacora.activa(archivo);
+        if (bitacora != null) {
+            registro.accept(bitacora); /* Solo se agrega una línea a la bitácora */
+        } else {
+            Inventario.guardarInventario(archivo, arbolSku);
+        }
+        return true;
+    }
+
+    /**
+     * Inserta un producto en ambos árboles si su SKU y su nombre están libres. El nombre se revisa primero
+     * porque es una consulta O(1) que no modifica nada; el SKU se revisa al insertarlo
+     * @param producto El producto nuevo
+     * @return true si se insertó
+     */
+    private boolean insertar(Producto producto) {
+        if (arbolNombre.buscarPorNombre(producto.getNombre()) != null) {
+            System.out.println("El producto con el nombre " + producto.getNombre() + " ya existe en el sistema.");
+            return false;
+        }
+        if (arbolSku.insertarSiAusente(producto.getSku(), producto) != null) {
+            System.out.println("El producto con el SKU " + producto.getSku() + " ya existe en el sistema.");
+            return false;
+        }
+        arbolNombre.insertar(producto.getNombre(), producto);
+        return true;
+    }
+
+    /**
+     * Quita un producto de ambos árboles, sin persistir (también lo usa la bitácora al reproducir una baja)
+     * @param producto El producto, que debe estar en el árbol por SKU
+     */
+    void quitar(Producto producto) {
+        arbolSku.eliminar(producto.getSku());
+        if (arbolNombre.buscar(producto.getNombre()) == producto) { /* Un nombre repetido en el CSV no entra al árbol */
+            arbolNombre.eliminar(producto.getNombre());
+        }
+    }
+
+    /**
+     * Cambia el nombre de un producto en ambos árboles, sin persistir (también lo usa la bitácora)
+     * @param producto El producto, que debe estar en el árbol por SKU
+     * @param nombre El nuevo nombre
+     * @return true si se cambió, false si el nombre ya es de otro producto
+     */
+    boolean cambiarNombre(Producto producto, String nombre) {
+        Producto otro = arbolNombre.buscarPorNombre(nombre);
+        String anterior = producto.getNombre();
+        boolean cambiado;
+        if (otro != null && otro != producto) {
+            cambiado = false;
+        } else if (arbolNombre.buscar(anterior) == producto) {
+            cambiado = arbolNombre.cambiarClave(anterior, nombre, () -> arbolSku.cambiarNombre(producto, nombre));
+        } else {
+            cambiado = arbolNombre.insertarSiAusente(nombre, producto) == null; /* No estaba en el árbol por nombre */
+            if (cambiado) {
+                arbolSku.cambiarNombre(producto, nombre);
+            }
+        }
+        if (!cambiado) {
+            System.out.println("El producto con el nombre " + nombre + " ya existe en el sistema.");
+        }
+        return cambiado;
+    }
+
+    /**
+     * Edita la descripción o las cantidades de un producto (ver Inventario.editarProducto)
+     * @param sku El SKU del producto a editar
+     * @param nuevaDescripcion La nueva descripción, o vacía para no cambiarla
+     * @param operacion "añadir" o "restar"
+     * @param cantidades Las tallas y cantidades a sumar o restar
+     */
+    public void editar(String sku, String nuevaDescripcion, String operacion, Map<String, Integer> cantidades) {
+        inventario.editarProducto(arbolSku, sku, nuevaDescripcion, operacion, cantidades, archivo);
+    }
+
+    /**
+     * Busca un producto por SKU, pasando por la caché si está activa
+     * @param sku El SKU del producto
+     * @return El producto encontrado o null si no existe
+     */
+    public Producto buscar(String sku) {
+        return arbolSku.buscar(sku);
+    }
+
+    /**
+     * Busca un producto por nombre, sin importar mayúsculas, tildes ni espacios externos
+     * @param nombre El nombre del producto
+     * @return El producto encontrado o null si no existe
+     */
+    public Producto buscarPorNombre(String nombre) {
+        return arbolNombre.buscarPorNombre(nombre);
+    }
+
+    /**
+     * Busca los productos cuyo nombre contiene un fragmento (ver BinaryTree.buscarPorFragmento)
+     * @param fragmento El fragmento del nombre
+     * @return Los productos encontrados
+     */
+    public List<Producto> buscarPorFragmento(String fragmento) {
+        return arbolNombre.buscarPorFragmento(fragmento);
+    }
+
+    /**
+     * Busca los productos con el nombre más parecido (ver BinaryTree.buscarNombreAproximado)
+     * @param texto El nombre aproximado
+     * @param maximo La cantidad máxima de resultados
+     * @return Los productos, del más parecido al menos parecido
+     */
+    public List<Producto> buscarNombreAproximado(String texto, int maximo) {
+        return arbolNombre.buscarNombreAproximado(texto, maximo);
+    }
+
+    /**
+     * Busca los productos por palabras de su descripción (ver BinaryTree.buscarPorDescripcion)
+     * @param palabras Las palabras separadas por espacios
+     * @param todas true si deben estar todas las palabras, false si basta con una
+     * @return Los productos encontrados
+     */
+    public List<Producto> buscarPorDescripcion(String palabras, boolean todas) {
+        return arbolSku.buscarPorDescripcion(palabras, todas);
+    }
+
+    /**
+     * Busca los productos con unidades de las tallas indicadas (ver BinaryTree.buscarPorTallas)
+     * @param todas true si deben tener todas las tallas, false si basta con una
+     * @param tallas Las tallas
+     * @return Los productos encontrados
+     */
+    public List<Producto> buscarPorTallas(boolean todas, String... tallas) {
+        return arbolSku.buscarPorTallas(todas, tallas);
+    }
+
+    /**
+     * Empieza a seguir el stock para las consultas de reposición (ver BinaryTree.activarSeguimiento)
+     * @param umbral Los productos con menos unidades que este valor se consideran con stock bajo
+     * @return El seguimiento
+     */
+    public SeguimientoStock activarSeguimiento(int umbral) {
+        return arbolSku.activarSeguimiento(umbral);
+    }
+
+    /**
+     * Lista todos los productos en orden en la consola
+     * @param porSku true para listar por SKU, false para listar por nombre
+     */
+    public void listar(boolean porSku) {
+        (porSku ? arbolSku : arbolNombre).listar(porSku);
+    }
+
+    /**
+     * Lista todos los productos en orden en cualquier destino (ver BinaryTree.listar(Appendable, boolean))
+     * @param destino Donde se escribe el listado
+     * @param porSku true para listar por SKU, false para listar por nombre
+     * @throws IOException Si el destino falla al escribir
+     */
+    public void listar(Appendable destino, boolean porSku) throws IOException {
+        (porSku ? arbolSku : arbolNombre).listar(destino, porSku);
+    }
+
+    /**
+     * Obtiene una página de productos por SKU o por nombre (ver BinaryTree.pagina)
+     * @param porSku true para paginar por SKU, false para paginar por nombre
+     * @param despuesDe El cursor de la página anterior, o null para la primera
+     * @param cantidad La cantidad máxima de productos de la página
+     * @return La página
+     */
+    public Pagina pagina(boolean porSku, String despuesDe, int cantidad) {
+        return (porSku ? arbolSku : arbolNombre).pagina(despuesDe, cantidad);
+    }
+
+    /**
+     * Cantidad de productos en el inventario
+     * @return El número de productos
+     */
+    public int tamano() {
+        return arbolSku.tamano();
+    }
+
+    /**
+     * Obtiene el árbol por SKU, para las operaciones que todavía reciben los árboles (snapshots, métricas)
+     * @return El árbol por SKU
+     */
+    public BinaryTree getArbolSku() {
+        return arbolSku;
+    }
+
+    /**
+     * Obtiene el árbol por nombre
+     * @return El árbol por nombre
+     */
+    public BinaryTree getArbolNombre() {
+        return arbolNombre;
+    }
+
+    /**
+     * Obtiene la ruta del CSV del inventario
+     * @return La ruta del archivo
+     */
+    public String getArchivo() {
+        return archivo;
+    }
+}
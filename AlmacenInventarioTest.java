@@ -0,0 +1,124 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+public class AlmacenInventarioTest {
+    private static final String ARCHIVO = "inventario_almacen_test.csv";
+    private AlmacenInventario almacen;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.write(Paths.get(ARCHIVO), List.of("SKU,Nombre,Descripción,Cantidad por talla",
+            "1,Camiseta Dry-Fit,Camiseta de algodón,M:10|L:0", "2,Short,Short dry-fit,S:4"));
+        almacen = new AlmacenInventario(ARCHIVO);
+        almacen.cargar();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Bitacora.cerrar(ARCHIVO);
+        Files.deleteIfExists(Paths.get(ARCHIVO));
+        Files.deleteIfExists(Paths.get(ARCHIVO + ".bitacora"));
+    }
+
+    @Test
+    public void testAgregarActualizaTodosLosIndices() {
+        almacen.buscarPorDescripcion("algodón", true); /* Construye los índices antes del alta */
+        almacen.buscarPorTallas(true, "L");
+        assertTrue(almacen.agregar("3", "Gorra Running", "Gorra de algodón", Map.of("L", 2)));
+
+        Producto gorra = almacen.buscar("3");
+        assertNotNull(gorra);
+        assertSame(gorra, almacen.getArbolNombre().buscar("Gorra Running"));
+        assertSame(gorra, almacen.buscarPorNombre("gorra running"));
+        assertEquals(List.of(gorra), almacen.buscarPorFragmento("runn"));
+        assertTrue(almacen.buscarPorDescripcion("algodón", true).contains(gorra));
+        assertEquals(List.of(gorra), almacen.buscarPorTallas(true, "L"));
+        assertEquals(3, almacen.tamano());
+    }
+
+    @Test
+    public void testAgregarRechazaDuplicadosSinTocarLosArboles() {
+        assertFalse(almacen.agregar("1", "Sudadera", "Repite el SKU", Map.of("M", 1)));
+        assertFalse(almacen.agregar("9", "  SHORT ", "Repite el nombre normalizado", Map.of("M", 1)));
+        assertEquals(2, almacen.tamano());
+        assertEquals(2, almacen.getArbolNombre().tamano());
+        assertNull(almacen.buscarPorNombre("Sudadera"));
+        assertNull(almacen.buscar("9"));
+        assertEquals("Camiseta Dry-Fit", almacen.buscar("1").getNombre());
+    }
+
+    @Test
+    public void testAgregarYEditarSobreviveReapertura() {
+        almacen.abrirBitacora();
+        assertTrue(almacen.agregar("3", "Gorra", "Gorra deportiva", Map.of("M", 2)));
+        almacen.editar("1", "Camiseta de lino", "restar", Map.of("M", 4));
+        assertSame(almacen.buscar("1"), almacen.buscarPorDescripcion("lino", true).get(0));
+        almacen.cerrar();
+
+        AlmacenInventario reabierto = new AlmacenInventario(ARCHIVO);
+        reabierto.cargar();
+        assertEquals(3, reabierto.tamano());
+        assertEquals(6, reabierto.buscar("1").cantidadDe("M"));
+        assertEquals("Camiseta de lino", reabierto.buscarPorNombre("camiseta dry-fit").getDescripcion());
+        assertNotNull(reabierto.buscarPorNombre("Gorra"));
+    }
+
+    @Test
+    public void testEliminarYRenombrar() {
+        almacen.buscarPorTallas(true, "M");
+        assertFalse(almacen.eliminar("9"));
+        assertTrue(almacen.eliminar("2"));
+        assertNull(almacen.buscar("2"));
+        assertNull(almacen.buscarPorNombre("Short"));
+        assertNull(almacen.getArbolNombre().buscar("Short"));
+        assertTrue(almacen.buscarPorDescripcion("dry-fit", true).isEmpty());
+        assertEquals(1, almacen.tamano());
+        assertEquals(1, almacen.getArbolNombre().tamano());
+
+        assertTrue(almacen.agregar("2", "Short", "Short nuevo", Map.of("S", 1))); /* El SKU y el nombre quedan libres */
+        assertFalse(almacen.renombrar("1", "short"));
+        assertTrue(almacen.renombrar("1", "Polo Dry-Fit"));
+        Producto polo = almacen.buscar("1");
+        assertEquals("Polo Dry-Fit", polo.getNombre());
+        assertSame(polo, almacen.getArbolNombre().buscar("Polo Dry-Fit"));
+        assertNull(almacen.getArbolNombre().buscar("Camiseta Dry-Fit"));
+        assertNull(almacen.buscarPorNombre("camiseta dry-fit"));
+        assertEquals(List.of(polo), almacen.buscarPorFragmento("polo"));
+        assertEquals(List.of(polo), almacen.buscarPorTallas(true, "M"));
+    }
+
+    @Test
+    public void testUnNombreRepetidoEnElCsvSigueOcupadoTrasLaBaja() throws IOException {
+        Files.write(Paths.get(ARCHIVO), List.of("SKU,Nombre,Descripción,Cantidad por talla",
+            "1,Camiseta,Camiseta de algodón,M:10", "2,camiseta,Camiseta de lino,S:4"));
+        almacen = new AlmacenInventario(ARCHIVO);
+        almacen.cargar();
+        assertTrue(almacen.eliminar("1"));
+        assertSame(almacen.buscar("2"), almacen.buscarPorNombre("CAMISETA"));
+        assertFalse(almacen.agregar("3", "Camiseta", "Repite el nombre del que queda", Map.of("M", 1)));
+        assertEquals(1, almacen.tamano());
+    }
+
+    @Test
+    public void testBajasYCambiosDeNombreSeReproducenDesdeLaBitacora() throws IOException {
+        almacen.abrirBitacora();
+        assertTrue(almacen.eliminar("2"));
+        assertTrue(almacen.renombrar("1", "Polo"));
+
+        AlmacenInventario reabierto = new AlmacenInventario(ARCHIVO);
+        reabierto.cargar();
+        reabierto.abrirBitacora(); /* Suelta la bitácora anterior y reproduce sus registros */
+        assertEquals(1, reabierto.tamano());
+        assertNull(reabierto.buscar("2"));
+        assertEquals("Polo", reabierto.buscar("1").getNombre());
+        assertSame(reabierto.buscar("1"), reabierto.getArbolNombre().buscar("Polo"));
+        assertNull(reabierto.buscarPorNombre("Camiseta Dry-Fit"));
+    }
+}
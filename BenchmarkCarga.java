@@ -0,0 +1,55 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * @author Alejandra Avilés
+ * Compara el tiempo de carga del cargador secuencial (Inventario.cargarInventario)
+ * con el cargador paralelo mapeado en memoria (CargadorParalelo) y con la fotografía binaria (SnapshotBinario)
+ * sobre el CSV de 100 filas escalado.
+ * Uso: java BenchmarkCarga [filas] (por defecto 2000000)
+ */
+public class BenchmarkCarga {
+    private static final int REPETICIONES = 5;
+
+    /**
+     * Método principal del benchmark
+     * @param args La cantidad de filas a generar (opcional)
+     * @throws IOException Si no se puede generar el archivo de prueba
+     */
+    public static void main(String[] args) throws IOException {
+        int filas = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        File archivo = File.createTempFile("inventario_bench", ".csv");
+        archivo.deleteOnExit();
+        GeneradorDatos.escalar("inventario_ropa_deportiva_100.csv", archivo.getPath(), filas);
+        System.out.println("Archivo de " + filas + " filas (" + archivo.length() / (1024 * 1024) + " MB)");
+
+        medir("Inventario.cargarInventario", () -> Inventario.cargarInventario(archivo.getPath(), new BinaryTree(), new BinaryTree()));
+        medir("CargadorParalelo.cargarInventario", () -> CargadorParalelo.cargarInventario(archivo.getPath(), new BinaryTree(), new BinaryTree()));
+
+        File binario = File.createTempFile("inventario_bench", ".bin");
+        binario.deleteOnExit();
+        BinaryTree arbolSku = new BinaryTree();
+        Inventario.cargarInventario(archivo.getPath(), arbolSku, new BinaryTree());
+        Inventario.exportarSnapshot(binario.getPath(), arbolSku);
+        System.out.println("Fotografía binaria de " + binario.length() / (1024 * 1024) + " MB");
+        medir("Inventario.importarSnapshot", () -> Inventario.importarSnapshot(binario.getPath(), new BinaryTree(), new BinaryTree()));
+    }
+
+    /**
+     * Ejecuta una carga varias veces (la primera como calentamiento) e imprime el mejor y el promedio
+     * @param nombre El nombre a mostrar
+     * @param carga La carga a medir
+     */
+    static void medir(String nombre, Runnable carga) {
+        carga.run();
+        long mejor = Long.MAX_VALUE, total = 0;
+        for (int i = 0; i < REPETICIONES; i++) {
+            long inicio = System.nanoTime();
+            carga.run();
+            long duracion = System.nanoTime() - inicio;
+            mejor = Math.min(mejor, duracion);
+            total += duracion;
+        }
+        System.out.printf("%-40s mejor: %8.1f ms   promedio: %8.1f ms%n", nombre, mejor / 1e6, total / 1e6 / REPETICIONES);
+    }
+}
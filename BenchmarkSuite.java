@@ -0,0 +1,438 @@
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * @author Alejandra Avilés
+ * Línea base de rendimiento del inventario. Cada medición se calienta primero (para que el JIT compile
+ * el código) y luego se repite varias veces; se informa el promedio y la desviación en ns por operación,
+ * así que dos corridas antes y después de un cambio se pueden comparar directamente.
+ * Los datos se generan al inicio con GeneradorDatos, con semilla fija.
+ *
+ * Mide: insertar, buscar y buscarPorNombre con claves ordenadas y aleatorias, el recorrido en orden,
+ * cargarInventario y guardarInventario con 10k, 100k y 1M filas, aumentarCantidad y restarCantidad
+ * con varios hilos sobre la misma talla, y las búsquedas por fragmento y aproximadas sobre 1M nombres
+ * (comparadas con recorrer todos los nombres), la búsqueda por palabras de la descripción, la búsqueda
+ * por tallas disponibles y las consultas de reposición sobre 1M productos, y el listado de 100k productos
+ * (con búfer y con un println por producto) y la paginación de 1M.
+ * Uso: java -Xmx4g BenchmarkSuite [filtro] (solo corre las mediciones cuyo nombre contiene el filtro)
+ */
+public class BenchmarkSuite {
+    private static final int CLAVES = 1_000_000;
+    private static final int[] FILAS_CSV = {10_000, 100_000, 1_000_000};
+    private static final int CALENTAMIENTO = 3;
+    private static final int ITERACIONES = 5;
+    private static final long SEMILLA = 42;
+    private static final int OPERACIONES_POR_HILO = 1_000_000;
+    private static final int CONSULTAS_NOMBRE = 20;
+
+    private static volatile Object sumidero; /* Evita que el JIT descarte resultados sin usar */
+    private static String filtro = "";
+
+    /**
+     * Operación a medir; devuelve un resultado para que no se elimine como código muerto
+     */
+    private interface Operacion {
+        Object ejecutar() throws Exception;
+    }
+
+    /**
+     * Método principal de la suite
+     * @param args Filtro opcional por nombre de medición
+     * @throws Exception Si no se pueden generar los datos
+     */
+    public static void main(String[] args) throws Exception {
+        filtro = args.length > 0 ? args[0] : "";
+        System.out.printf("%-48s %14s %12s%n", "Medición", "ns/op", "± desv.");
+        arbol(false);
+        arbol(true);
+        recorrido();
+        cargaYGuardado();
+        contencion();
+        trigramas();
+        descripciones();
+        tallas();
+        reposicion();
+        listado();
+        bajas();
+    }
+
+    /**
+     * insertar, buscar y buscarPorNombre sobre un millón de claves
+     * @param aleatorias true para claves en orden aleatorio
+     * @throws Exception Si falla una medición
+     */
+    private static void arbol(boolean aleatorias) throws Exception {
+        String orden = aleatorias ? "aleatorias" : "ordenadas";
+        String[] claves = GeneradorDatos.claves(CLAVES, aleatorias, SEMILLA);
+        Producto[] productos = new Producto[CLAVES];
+        for (int i = 0; i < CLAVES; i++) {
+            productos[i] = new Producto(claves[i], "Producto " + claves[i], "Generado", Map.of("M", 10));
+        }
+        medir("BinaryTree.insertar (" + orden + ")", CLAVES, () -> {
+            BinaryTree arbol = new BinaryTree();
+            for (int i = 0; i < CLAVES; i++) {
+                arbol.insertar(claves[i], productos[i]);
+            }
+            return arbol;
+        });
+
+        BinaryTree arbolSku = new BinaryTree();
+        BinaryTree arbolNombre = new BinaryTree();
+        for (int i = 0; i < CLAVES; i++) {
+            arbolSku.insertar(claves[i], productos[i]);
+            arbolNombre.insertar(productos[i].getNombre(), productos[i]);
+        }
+        String[] consultas = GeneradorDatos.claves(CLAVES, true, SEMILLA + 1); /* Acceso aleatorio */
+        medir("BinaryTree.buscar (" + orden + ")", CLAVES, () -> {
+            int encontrados = 0;
+            for (String sku : consultas) {
+                if (arbolSku.buscar(sku) != null) { encontrados++; }
+            }
+            return encontrados;
+        });
+
+        String[] nombres = new String[CLAVES];
+        for (int i = 0; i < CLAVES; i++) {
+            nombres[i] = "PRODUCTO " + consultas[i]; /* Distinto en mayúsculas, como lo escribe un usuario */
+        }
+        arbolNombre.indexarNombres();
+        medir("BinaryTree.buscarPorNombre (" + orden + ")", CLAVES, () -> {
+            int encontrados = 0;
+            for (String nombre : nombres) {
+                if (arbolNombre.buscarPorNombre(nombre) != null) { encontrados++; }
+            }
+            return encontrados;
+        });
+    }
+
+    /**
+     * Recorrido en orden de un millón de productos, con iterador y con stream
+     * @throws Exception Si falla una medición
+     */
+    private static void recorrido() throws Exception {
+        BinaryTree arbol = new BinaryTree();
+        String[] claves = GeneradorDatos.claves(CLAVES, true, SEMILLA);
+        for (String sku : claves) {
+            arbol.insertar(sku, new Producto(sku, "Producto " + sku, "Generado", Map.of("M", 10)));
+        }
+        medir("BinaryTree.iterator (en orden)", CLAVES, () -> {
+            long suma = 0;
+            for (Iterator<Producto> it = arbol.iterator(); it.hasNext(); ) {
+                suma += it.next().cantidadTallas();
+            }
+            return suma;
+        });
+        medir("BinaryTree.stream (en orden)", CLAVES, () -> arbol.stream().mapToInt(Producto::cantidadTallas).sum());
+    }
+
+    /**
+     * cargarInventario y guardarInventario con CSV de 10k, 100k y 1M filas
+     * @throws Exception Si falla una medición o no se puede generar un CSV
+     */
+    private static void cargaYGuardado() throws Exception {
+        for (int filas : FILAS_CSV) {
+            File csv = File.createTempFile("inventario_suite", ".csv");
+            csv.deleteOnExit();
+            GeneradorDatos.escalar("inventario_ropa_deportiva_100.csv", csv.getPath(), filas);
+            medir("Inventario.cargarInventario (" + filas + " filas)", filas, () -> {
+                BinaryTree arbolSku = new BinaryTree();
+                Inventario.cargarInventario(csv.getPath(), arbolSku, new BinaryTree());
+                return arbolSku;
+            });
+
+            BinaryTree arbolSku = new BinaryTree();
+            Inventario.cargarInventario(csv.getPath(), arbolSku, new BinaryTree());
+            File destino = File.createTempFile("inventario_suite_guardado", ".csv");
+            destino.deleteOnExit();
+            medir("Inventario.guardarInventario (" + filas + " filas)", filas, () -> {
+                Inventario.guardarInventario(destino.getPath(), arbolSku);
+                return destino.length();
+            });
+        }
+    }
+
+    /**
+     * aumentarCantidad y restarCantidad desde varios hilos sobre la misma talla de un producto,
+     * como en una venta relámpago
+     * @throws Exception Si falla una medición
+     */
+    private static void contencion() throws Exception {
+        int hilos = Math.max(2, Runtime.getRuntime().availableProcessors());
+        Producto producto = new Producto("00000001", "Camiseta", "Muy vendida", Map.of("M", 0));
+        medir("Producto.aumentarCantidad (" + hilos + " hilos)", hilos * OPERACIONES_POR_HILO,
+            () -> enParalelo(hilos, () -> producto.aumentarCantidad("M", 1)));
+        medir("Producto.restarCantidad (" + hilos + " hilos)", hilos * OPERACIONES_POR_HILO,
+            () -> enParalelo(hilos, () -> producto.restarCantidad("M", 1)));
+        medir("Producto.aumentar/restar mezclados (" + hilos + " hilos)", hilos * OPERACIONES_POR_HILO, () -> {
+            producto.aumentarCantidad("M", hilos * OPERACIONES_POR_HILO);
+            return enParalelo(hilos, () -> {
+                producto.restarCantidad("M", 2);
+                producto.aumentarCantidad("M", 1);
+            });
+        });
+    }
+
+    /**
+     * Búsqueda por fragmento y aproximada sobre un millón de nombres, con el índice de trigramas
+     * y, como referencia, recorriendo todos los nombres con contains
+     * @throws Exception Si falla una medición o no se puede generar el CSV
+     */
+    private static void trigramas() throws Exception {
+        File csv = File.createTempFile("inventario_suite_nombres", ".csv");
+        csv.deleteOnExit();
+        GeneradorDatos.escalar("inventario_ropa_deportiva_100.csv", csv.getPath(), CLAVES);
+        BinaryTree arbolNombre = new BinaryTree();
+        Inventario.cargarInventario(csv.getPath(), new BinaryTree(), arbolNombre); /* Construye el índice */
+        String[] fragmentos = new String[CONSULTAS_NOMBRE];
+        String[] aproximados = new String[CONSULTAS_NOMBRE];
+        Random azar = new Random(SEMILLA);
+        for (int i = 0; i < CONSULTAS_NOMBRE; i++) {
+            int fila = 1 + azar.nextInt(CLAVES);
+            fragmentos[i] = "pádel " + fila; /* Selectivo: un producto o ninguno */
+            aproximados[i] = "camisetta de padel " + fila; /* Con error de tipeo */
+        }
+        medir("IndiceTrigramas.buscarSubcadena (1M nombres)", CONSULTAS_NOMBRE, () -> {
+            int encontrados = 0;
+            for (String fragmento : fragmentos) { encontrados += arbolNombre.buscarPorFragmento(fragmento).size(); }
+            return encontrados;
+        });
+        medir("Recorrido con contains (1M nombres)", CONSULTAS_NOMBRE, () -> {
+            int encontrados = 0;
+            for (String fragmento : fragmentos) {
+                String buscado = Normalizador.normalizar(fragmento);
+                encontrados += (int) arbolNombre.stream().filter(p -> Normalizador.normalizar(p.getNombre()).contains(buscado)).count();
+            }
+            return encontrados;
+        });
+        medir("IndiceTrigramas.buscarSubcadena amplia (1M nombres)", 1, () -> arbolNombre.buscarPorFragmento("camiseta de").size());
+        medir("IndiceTrigramas.buscarAproximado (1M nombres)", CONSULTAS_NOMBRE, () -> {
+            int encontrados = 0;
+            for (String texto : aproximados) { encontrados += arbolNombre.buscarNombreAproximado(texto, 10).size(); }
+            return encontrados;
+        });
+    }
+
+    /**
+     * Búsqueda por palabras de la descripción sobre un millón de productos, con el índice invertido
+     * y, como referencia, recorriendo todas las descripciones
+     * @throws Exception Si falla una medición o no se puede generar el CSV
+     */
+    private static void descripciones() throws Exception {
+        File csv = File.createTempFile("inventario_suite_descripciones", ".csv");
+        csv.deleteOnExit();
+        GeneradorDatos.escalar("inventario_ropa_deportiva_100.csv", csv.getPath(), CLAVES);
+        BinaryTree arbolSku = new BinaryTree();
+        Inventario.cargarInventario(csv.getPath(), arbolSku, new BinaryTree());
+        medir("BinaryTree.indexarDescripciones (1M productos)", CLAVES, () -> {
+            arbolSku.indexarDescripciones();
+            return arbolSku;
+        });
+        medir("IndiceInvertido.buscar AND (1M productos)", 1,
+            () -> arbolSku.buscarPorDescripcion("transpirable ergonómico", true).size());
+        medir("IndiceInvertido.buscar OR (1M productos)", 1,
+            () -> arbolSku.buscarPorDescripcion("transpirable reforzadas", false).size());
+        medir("IndiceInvertido.buscar sin resultados (1M productos)", 1,
+            () -> arbolSku.buscarPorDescripcion("algodón lana", true).size());
+        medir("Recorrido de descripciones (1M productos)", 1, () -> arbolSku.stream()
+            .filter(p -> {
+                Set<String> palabras = IndiceInvertido.palabras(p.getDescripcion(), true);
+                return palabras.contains("transpirable") && palabras.contains("ergonomico");
+            }).count());
+    }
+
+    /**
+     * Búsqueda de productos con unidades de ciertas tallas sobre un millón de productos, con el índice de
+     * tallas y recorriendo el árbol, y el costo que el índice agrega a las ventas
+     * @throws Exception Si falla una medición o no se puede generar el CSV
+     */
+    private static void tallas() throws Exception {
+        File csv = File.createTempFile("inventario_suite_tallas", ".csv");
+        csv.deleteOnExit();
+        GeneradorDatos.escalar("inventario_ropa_deportiva_100.csv", csv.getPath(), CLAVES);
+        BinaryTree arbolSku = new BinaryTree();
+        Inventario.cargarInventario(csv.getPath(), arbolSku, new BinaryTree());
+        medir("BinaryTree.indexarTallas (1M productos)", CLAVES, () -> {
+            arbolSku.indexarTallas();
+            return arbolSku;
+        });
+        medir("IndiceTallas.contar m AND l (1M productos)", 1, () -> arbolSku.contarPorTallas(true, "m", "l"));
+        medir("IndiceTallas.buscar m AND l (1M productos)", 1, () -> arbolSku.buscarPorTallas(true, "m", "l").size());
+        medir("Recorrido m AND l (1M productos)", 1,
+            () -> arbolSku.stream().filter(p -> p.cantidadDe("m") > 0 && p.cantidadDe("l") > 0).count());
+        Producto[] productos = arbolSku.stream().limit(1000).toArray(Producto[]::new);
+        medir("Producto.restar/aumentar con IndiceTallas", 2 * productos.length * 1000, () -> {
+            int exitos = 0;
+            for (int vuelta = 0; vuelta < 1000; vuelta++) {
+                for (Producto producto : productos) {
+                    if (producto.restarCantidad("m", 1) == ResultadoStock.EXITO) { exitos++; }
+                    producto.aumentarCantidad("m", 1);
+                }
+            }
+            return exitos;
+        });
+    }
+
+    /**
+     * Consultas de reposición sobre un millón de productos con SeguimientoStock y, como referencia,
+     * recorriendo y ordenando todo el inventario; además, el costo que el seguimiento agrega a las ventas
+     * @throws Exception Si falla una medición o no se puede generar el CSV
+     */
+    private static void reposicion() throws Exception {
+        File csv = File.createTempFile("inventario_suite_reposicion", ".csv");
+        csv.deleteOnExit();
+        GeneradorDatos.escalar("inventario_ropa_deportiva_100.csv", csv.getPath(), CLAVES);
+        BinaryTree arbolSku = new BinaryTree();
+        Inventario.cargarInventario(csv.getPath(), arbolSku, new BinaryTree());
+        Producto[] productos = arbolSku.stream().limit(1000).toArray(Producto[]::new);
+        Operacion ventas = () -> {
+            int exitos = 0;
+            for (int vuelta = 0; vuelta < 1000; vuelta++) {
+                for (Producto producto : productos) {
+                    if (producto.restarCantidad("m", 1) == ResultadoStock.EXITO) { exitos++; }
+                    producto.aumentarCantidad("m", 1);
+                }
+            }
+            return exitos;
+        };
+        medir("Producto.restar/aumentar sin seguimiento", 2 * productos.length * 1000, ventas);
+        medir("BinaryTree.activarSeguimiento (1M productos)", CLAVES, () -> arbolSku.activarSeguimiento(20));
+        SeguimientoStock seguimiento = arbolSku.activarSeguimiento(20);
+        medir("Producto.restar/aumentar con seguimiento", 2 * productos.length * 1000, ventas);
+        medir("SeguimientoStock.menores(100) (1M productos)", 1000, () -> {
+            int encontrados = 0;
+            for (int i = 0; i < 1000; i++) { encontrados += seguimiento.menores(100).size(); }
+            return encontrados;
+        });
+        medir("SeguimientoStock.debajoDe(20) (1M productos, " + seguimiento.debajoDe(20).size() + " resultados)", 1,
+            () -> seguimiento.debajoDe(20).size());
+        medir("Recorrido y orden menores(100) (1M productos)", 1, () -> arbolSku.stream()
+            .sorted((a, b) -> Integer.compare(a.cantidadTotal(), b.cantidadTotal())).limit(100).count());
+    }
+
+    /**
+     * Listado de 100k productos en un PrintStream (como System.out, pero sin consola) con el búfer de
+     * BinaryTree.listar y, como referencia, con un println por producto; y paginación de un millón
+     * @throws Exception Si falla una medición
+     */
+    private static void listado() throws Exception {
+        int cantidad = FILAS_CSV[1];
+        BinaryTree arbol = new BinaryTree();
+        for (String sku : GeneradorDatos.claves(cantidad, true, SEMILLA)) {
+            arbol.insertar(sku, new Producto(sku, "Producto " + sku, "Generado", Map.of("M", 10)));
+        }
+        PrintStream salida = new PrintStream(OutputStream.nullOutputStream(), true);
+        medir("BinaryTree.listar con búfer (" + cantidad + ")", cantidad, () -> {
+            arbol.listar(salida, true);
+            return salida;
+        });
+        medir("println por producto (" + cantidad + ")", cantidad, () -> {
+            for (Producto producto : arbol) {
+                salida.println("SKU: " + producto.getSku() + "\nNombre: " + producto.getNombre());
+            }
+            return salida;
+        });
+
+        BinaryTree grande = new BinaryTree();
+        for (String sku : GeneradorDatos.claves(CLAVES, true, SEMILLA)) {
+            grande.insertar(sku, new Producto(sku, "Producto " + sku, "Generado", Map.of("M", 10)));
+        }
+        medir("BinaryTree.pagina de 100 (1M productos, todas)", CLAVES, () -> {
+            int vistos = 0;
+            Pagina pagina = grande.pagina(null, 100);
+            vistos += pagina.getProductos().size();
+            while (pagina.hayMas()) {
+                pagina = grande.pagina(pagina.getCursor(), 100);
+                vistos += pagina.getProductos().size();
+            }
+            return vistos;
+        });
+    }
+
+    /**
+     * eliminar y volver a insertar sobre un millón de claves: el árbol se rebalancea en cada baja, así que
+     * el costo no crece con los productos que ya se eliminaron
+     * @throws Exception Si falla una medición
+     */
+    private static void bajas() throws Exception {
+        String[] claves = GeneradorDatos.claves(CLAVES, true, SEMILLA);
+        BinaryTree arbol = new BinaryTree();
+        for (String sku : claves) {
+            arbol.insertar(sku, new Producto(sku, "Producto " + sku, "Generado", Map.of("M", 10)));
+        }
+        int cantidad = CLAVES / 10;
+        medir("BinaryTree.eliminar + insertar (1M claves)", cantidad, () -> {
+            for (int i = 0; i < cantidad; i++) {
+                Producto producto = arbol.eliminar(claves[i]);
+                arbol.insertar(claves[i], producto);
+            }
+            return arbol.altura();
+        });
+    }
+
+    /**
+     * Ejecuta una acción OPERACIONES_POR_HILO veces en cada hilo, con todos los hilos arrancando a la vez
+     * @param hilos La cantidad de hilos
+     * @param accion La acción a repetir
+     * @return La cantidad de hilos que terminaron
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    private static Object enParalelo(int hilos, Runnable accion) throws InterruptedException {
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Thread> trabajadores = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            Thread trabajador = new Thread(() -> {
+                try {
+                    inicio.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < OPERACIONES_POR_HILO; i++) {
+                    accion.run();
+                }
+            });
+            trabajador.start();
+            trabajadores.add(trabajador);
+        }
+        inicio.countDown();
+        for (Thread trabajador : trabajadores) {
+            trabajador.join();
+        }
+        return trabajadores.size();
+    }
+
+    /**
+     * Calienta y mide una operación, e imprime el tiempo por operación
+     * @param nombre El nombre de la medición
+     * @param operaciones Cuántas operaciones hace cada ejecución
+     * @param operacion La operación
+     * @throws Exception Si la operación falla
+     */
+    private static void medir(String nombre, int operaciones, Operacion operacion) throws Exception {
+        if (!nombre.contains(filtro)) { return; }
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            sumidero = operacion.ejecutar();
+        }
+        double[] nsPorOperacion = new double[ITERACIONES];
+        for (int i = 0; i < ITERACIONES; i++) {
+            long inicio = System.nanoTime();
+            sumidero = operacion.ejecutar();
+            nsPorOperacion[i] = (double) (System.nanoTime() - inicio) / operaciones;
+        }
+        double promedio = 0;
+        for (double valor : nsPorOperacion) { promedio += valor; }
+        promedio /= ITERACIONES;
+        double varianza = 0;
+        for (double valor : nsPorOperacion) { varianza += (valor - promedio) * (valor - promedio); }
+        double desviacion = Math.sqrt(varianza / (ITERACIONES - 1));
+        System.out.printf(Locale.ROOT, "%-48s %14.2f %12.2f%n", nombre, promedio, desviacion);
+    }
+}
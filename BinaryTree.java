@@ -1,99 +1,726 @@
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author Alejandra Avilés
  * Clase que representa un árbol binario para el almacenamiento de nodos con productos.
- * Permite insertar, buscar y listar productos
+ * Permite insertar, eliminar, buscar y listar productos.
+ * El árbol se autobalancea (AVL) para que las búsquedas sean O(log n) sin importar
+ * el orden en que lleguen las claves (por ejemplo, un CSV ya ordenado por SKU).
+ * Se puede recorrer en orden con un iterador o con streams (también en paralelo).
+ * Opcionalmente, buscar pasa primero por una caché acotada de los productos más pedidos.
  */
-public class BinaryTree {
+public class BinaryTree implements Iterable<Producto> {
+    private static final int TAMANO_BUFER = 8192; /* Caracteres que se juntan antes de escribir un listado */
     private Nodo raiz;
+    private int tamano;
+    private Map<String, Producto> indiceNombres; /* Nombre normalizado -> producto, null hasta que se construye */
+    private IndiceTrigramas indiceTrigramas; /* Fragmentos de nombre, se construye junto con indiceNombres */
+    private IndiceInvertido indiceDescripciones; /* Palabras de la descripción, null hasta que se construye */
+    private IndiceTallas indiceTallas; /* Productos con unidades de cada talla, null hasta que se construye */
+    final LongAdder busquedas = new LongAdder(), nodosVisitados = new LongAdder(); /* Ver Metricas */
+    private volatile CacheProductos cache; /* Opcional, ver activarCache */
+    private SeguimientoStock seguimiento; /* Opcional, ver activarSeguimiento */
 
     /**
-     * Inserta un nuevo producto en el árbol usando una clave
+     * Inserta un nuevo producto en el árbol usando una clave.
+     * Desciende de forma iterativa guardando el camino recorrido y luego rebalancea
+     * (AVL) de abajo hacia arriba, por lo que no depende de la pila de llamadas.
      * @param clave La clave del producto (SKU o nombre)
      * @param valor El producto a insertar
      */
     public void insertar(String clave, Producto valor) {
-        raiz = insertarRecursivo(raiz, clave, valor);
+        insertarSiAusente(clave, valor);
     }
 
     /**
-     * Método recursivo para insertar un nuevo nodo en el árbol
-     * @param nodo El nodo actual en el que se inserta
+     * Inserta un producto solo si la clave no existe, comprobándolo en el mismo descenso que la inserción
+     * (un buscar seguido de insertar recorre el árbol dos veces)
+     * @param clave La clave del producto (SKU o nombre)
+     * @param valor El producto a insertar
+     * @return El producto que ya tenía esa clave, o null si se insertó
+     */
+    public Producto insertarSiAusente(String clave, Producto valor) {
+        long inicio = Metricas.inicio();
+        Producto existente = insertarEnArbol(clave, valor);
+        if (existente == null) {
+            invalidarCache(clave);
+        }
+        Metricas.INSERTAR.registrar(inicio);
+        return existente;
+    }
+
+    /**
+     * Inserción iterativa con rebalanceo (ver insertar)
      * @param clave La clave del producto
      * @param valor El producto a insertar
-     * @return El nodo actualizado
+     * @return El producto que ya tenía esa clave, o null si se insertó
+     */
+    private Producto insertarEnArbol(String clave, Producto valor) {
+        Nodo[] camino = new Nodo[altura(raiz)];
+        int profundidad = 0;
+        Nodo actual = raiz;
+        while (actual != null) {
+            int comparacion = clave.compareTo(actual.clave);
+            if (comparacion == 0) { return actual.valor; } /* Clave repetida, no se modifica el árbol */
+            camino[profundidad++] = actual;
+            actual = comparacion < 0 ? actual.izquierdo : actual.derecho;
+        }
+        Nodo nuevo = new Nodo(clave, valor);
+        tamano++;
+        agregarAIndices(valor);
+        if (profundidad == 0) {
+            raiz = nuevo;
+            return null;
+        }
+        Nodo padre = camino[profundidad - 1];
+        if (clave.compareTo(padre.clave) < 0) {
+            padre.izquierdo = nuevo;
+        } else {
+            padre.derecho = nuevo;
+        }
+        rebalancearCamino(camino, profundidad);
+        return null;
+    }
+
+    /**
+     * Elimina el producto de una clave y lo quita de todos los índices y de la caché.
+     * El árbol se rebalancea (AVL) de la misma forma que al insertar, así que las búsquedas siguen siendo
+     * O(log n) sobre los productos vigentes y no quedan nodos muertos.
+     * @param clave La clave del producto (SKU o nombre)
+     * @return El producto eliminado, o null si la clave no existía
+     */
+    public Producto eliminar(String clave) {
+        Nodo nodo = eliminarDeArbol(clave);
+        if (nodo == null) {
+            return null;
+        }
+        quitarDeIndices(nodo.valor);
+        invalidarCache(clave);
+        return nodo.valor;
+    }
+
+    /**
+     * Cambia la clave de un producto en una sola operación: lo quita de la clave anterior, aplica el cambio
+     * (por ejemplo setNombre, en un árbol por nombre) y lo vuelve a insertar con la clave nueva. Los índices
+     * se recalculan con el producto ya modificado.
+     * @param claveAnterior La clave actual del producto
+     * @param claveNueva La clave nueva
+     * @param cambio Lo que se aplica al producto mientras está fuera del árbol
+     * @return true si se cambió, false si la clave anterior no existe o la nueva ya es de otro producto
      */
-    private Nodo insertarRecursivo(Nodo nodo, String clave, Producto valor) {
-        if (nodo == null) { return new Nodo(clave, valor); }
-        if (clave.compareTo(nodo.clave) < 0) {
-            nodo.izquierdo = insertarRecursivo(nodo.izquierdo, clave, valor);
-        } else if (clave.compareTo(nodo.clave) > 0) {
-            nodo.derecho = insertarRecursivo(nodo.derecho, clave, valor);
+    public boolean cambiarClave(String claveAnterior, String claveNueva, Runnable cambio) {
+        if (!claveNueva.equals(claveAnterior) && nodo(claveNueva) != null) {
+            return false;
+        }
+        Nodo nodo = eliminarDeArbol(claveAnterior);
+        if (nodo == null) {
+            return false;
+        }
+        quitarDeIndices(nodo.valor);
+        invalidarCache(claveAnterior);
+        cambio.run();
+        insertarSiAusente(claveNueva, nodo.valor);
+        return true;
+    }
+
+    /**
+     * Busca el nodo de una clave sin pasar por la caché ni por las métricas
+     * @param clave La clave
+     * @return El nodo, o null si no existe
+     */
+    private Nodo nodo(String clave) {
+        Nodo actual = raiz;
+        while (actual != null) {
+            int comparacion = clave.compareTo(actual.clave);
+            if (comparacion == 0) { return actual; }
+            actual = comparacion < 0 ? actual.izquierdo : actual.derecho;
+        }
+        return null;
+    }
+
+    /**
+     * Eliminación iterativa con rebalanceo. Si el nodo tiene dos hijos, su sucesor (el menor del subárbol
+     * derecho) se desengancha y ocupa su lugar; luego se rebalancea el camino desde donde estaba el sucesor.
+     * @param clave La clave a eliminar
+     * @return El nodo eliminado, o null si no existía
+     */
+    private Nodo eliminarDeArbol(String clave) {
+        Nodo[] camino = new Nodo[altura(raiz)];
+        int profundidad = 0;
+        Nodo actual = raiz;
+        while (actual != null) {
+            int comparacion = clave.compareTo(actual.clave);
+            if (comparacion == 0) { break; }
+            camino[profundidad++] = actual;
+            actual = comparacion < 0 ? actual.izquierdo : actual.derecho;
+        }
+        if (actual == null) {
+            return null;
+        }
+        Nodo padre = profundidad == 0 ? null : camino[profundidad - 1];
+        if (actual.izquierdo == null || actual.derecho == null) {
+            reemplazarHijo(padre, actual, actual.izquierdo != null ? actual.izquierdo : actual.derecho);
+        } else {
+            int lugar = profundidad;
+            camino[profundidad++] = actual; /* Lo reemplaza el sucesor al final */
+            Nodo sucesor = actual.derecho;
+            while (sucesor.izquierdo != null) {
+                camino[profundidad++] = sucesor;
+                sucesor = sucesor.izquierdo;
+            }
+            if (camino[profundidad - 1] == actual) {
+                actual.derecho = sucesor.derecho;
+            } else {
+                camino[profundidad - 1].izquierdo = sucesor.derecho;
+            }
+            sucesor.izquierdo = actual.izquierdo;
+            sucesor.derecho = actual.derecho;
+            sucesor.altura = actual.altura; /* Para que rebalancearCamino compare con la altura de este lugar */
+            camino[lugar] = sucesor;
+            reemplazarHijo(padre, actual, sucesor);
+        }
+        tamano--;
+        actual.izquierdo = null;
+        actual.derecho = null;
+        rebalancearCamino(camino, profundidad);
+        return actual;
+    }
+
+    /**
+     * Cambia el hijo de un nodo por otro subárbol
+     * @param padre El padre, o null si el hijo es la raíz
+     * @param hijo El hijo actual
+     * @param nuevo El subárbol que toma su lugar (puede ser null)
+     */
+    private void reemplazarHijo(Nodo padre, Nodo hijo, Nodo nuevo) {
+        if (padre == null) {
+            raiz = nuevo;
+        } else if (padre.izquierdo == hijo) {
+            padre.izquierdo = nuevo;
+        } else {
+            padre.derecho = nuevo;
+        }
+    }
+
+    /**
+     * Agrega un producto a los índices que ya estén construidos
+     * @param valor El producto
+     */
+    private void agregarAIndices(Producto valor) {
+        if (indiceNombres != null) {
+            String nombre = Normalizador.normalizar(valor.getNombre());
+            indiceNombres.putIfAbsent(nombre, valor);
+            indiceTrigramas.agregar(valor, nombre);
+        }
+        if (indiceDescripciones != null) {
+            indiceDescripciones.agregar(valor);
+        }
+        if (indiceTallas != null) {
+            indiceTallas.agregar(valor);
+        }
+        if (seguimiento != null) {
+            seguimiento.agregar(valor);
+        }
+    }
+
+    /**
+     * Quita un producto de los índices que ya estén construidos y deja de observar su stock.
+     * El nombre se toma del índice de trigramas, así que funciona aunque el producto ya haya cambiado de nombre.
+     * @param valor El producto
+     */
+    private void quitarDeIndices(Producto valor) {
+        if (indiceNombres != null) {
+            quitarNombre(valor);
+        }
+        if (indiceDescripciones != null) {
+            indiceDescripciones.quitar(valor);
+        }
+        if (indiceTallas != null) {
+            indiceTallas.quitar(valor);
+        }
+        if (seguimiento != null) {
+            seguimiento.quitar(valor);
+        }
+    }
+
+    /**
+     * Quita un producto del índice de nombres y del de trigramas. Si el índice de nombres apuntaba a él
+     * y otro producto comparte el nombre normalizado ("Camiseta" y "camiseta"), pasa a apuntar al otro.
+     * @param valor El producto
+     * @return true si estaba indexado
+     */
+    private boolean quitarNombre(Producto valor) {
+        String nombre = indiceTrigramas.quitar(valor);
+        if (nombre == null) {
+            return false;
+        }
+        if (indiceNombres.remove(nombre, valor)) {
+            Producto otro = indiceTrigramas.buscarExacto(nombre);
+            if (otro != null) {
+                indiceNombres.put(nombre, otro);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rebalancea los nodos de un camino desde el más profundo hasta la raíz.
+     * Se detiene en cuanto la altura de un subárbol no cambia, ya que los ancestros no se ven afectados.
+     * @param camino Los nodos recorridos desde la raíz
+     * @param profundidad La cantidad de nodos válidos en el camino
+     */
+    private void rebalancearCamino(Nodo[] camino, int profundidad) {
+        for (int i = profundidad - 1; i >= 0; i--) {
+            Nodo nodo = camino[i];
+            int alturaAnterior = nodo.altura;
+            Nodo subarbol = balancear(nodo);
+            if (i == 0) {
+                raiz = subarbol;
+            } else if (camino[i - 1].izquierdo == nodo) {
+                camino[i - 1].izquierdo = subarbol;
+            } else {
+                camino[i - 1].derecho = subarbol;
+            }
+            if (subarbol.altura == alturaAnterior) { return; }
+        }
+    }
+
+    /**
+     * Carga de golpe productos ya ordenados por clave, construyendo un árbol perfectamente
+     * balanceado de abajo hacia arriba en O(n), sin comparaciones ni rotaciones.
+     * Si hay claves repetidas se conserva la primera, igual que con insertar.
+     * Si el árbol ya tiene productos, se insertan uno por uno.
+     * @param claves Las claves en orden ascendente (el arreglo se usa como espacio de trabajo)
+     * @param valores Los productos correspondientes a cada clave (también se usa como espacio de trabajo)
+     * @param cantidad La cantidad de elementos válidos en los arreglos
+     */
+    public void cargarOrdenados(String[] claves, Producto[] valores, int cantidad) {
+        if (raiz != null) {
+            for (int i = 0; i < cantidad; i++) {
+                insertar(claves[i], valores[i]);
+            }
+            return;
+        }
+        int unicos = 0;
+        for (int i = 0; i < cantidad; i++) {
+            if (unicos > 0 && claves[i].equals(claves[unicos - 1])) { continue; }
+            claves[unicos] = claves[i];
+            valores[unicos] = valores[i];
+            unicos++;
+        }
+        raiz = construirBalanceado(claves, valores, 0, unicos);
+        tamano = unicos;
+        if (indiceNombres != null) {
+            indexarNombres();
+        }
+        if (indiceDescripciones != null) {
+            indexarDescripciones();
+        }
+        if (indiceTallas != null) {
+            indexarTallas();
+        }
+        if (seguimiento != null) {
+            for (int i = 0; i < unicos; i++) {
+                seguimiento.agregar(valores[i]);
+            }
+        }
+    }
+
+    /**
+     * Construye un subárbol balanceado con el elemento central como raíz.
+     * La recursión solo llega a profundidad log2(n), así que no arriesga la pila.
+     * @param claves Las claves ordenadas y sin repetir
+     * @param valores Los productos correspondientes
+     * @param inicio Posición inicial (inclusiva)
+     * @param fin Posición final (exclusiva)
+     * @return La raíz del subárbol, o null si el intervalo está vacío
+     */
+    private static Nodo construirBalanceado(String[] claves, Producto[] valores, int inicio, int fin) {
+        if (inicio >= fin) { return null; }
+        int medio = (inicio + fin) >>> 1;
+        Nodo nodo = new Nodo(claves[medio], valores[medio]);
+        nodo.izquierdo = construirBalanceado(claves, valores, inicio, medio);
+        nodo.derecho = construirBalanceado(claves, valores, medio + 1, fin);
+        actualizarAltura(nodo);
+        return nodo;
+    }
+
+    /**
+     * Cantidad de productos almacenados en el árbol
+     * @return El número de nodos
+     */
+    public int tamano() {
+        return tamano;
+    }
+
+    /**
+     * Altura del árbol (0 si está vacío, 1 si solo tiene raíz)
+     * @return La altura actual del árbol
+     */
+    public int altura() {
+        return altura(raiz);
+    }
+
+    /**
+     * Altura de un subárbol, considerando null como altura 0
+     * @param nodo La raíz del subárbol
+     * @return La altura del subárbol
+     */
+    private static int altura(Nodo nodo) {
+        return nodo == null ? 0 : nodo.altura;
+    }
+
+    /**
+     * Recalcula la altura de un nodo a partir de la de sus hijos
+     * @param nodo El nodo a actualizar
+     */
+    private static void actualizarAltura(Nodo nodo) {
+        nodo.altura = 1 + Math.max(altura(nodo.izquierdo), altura(nodo.derecho));
+    }
+
+    /**
+     * Restaura la propiedad AVL de un nodo cuyos hijos difieren en altura a lo sumo en 2
+     * @param nodo El nodo a balancear
+     * @return La nueva raíz del subárbol
+     */
+    private static Nodo balancear(Nodo nodo) {
+        actualizarAltura(nodo);
+        int factor = altura(nodo.izquierdo) - altura(nodo.derecho);
+        if (factor > 1) {
+            if (altura(nodo.izquierdo.izquierdo) < altura(nodo.izquierdo.derecho)) {
+                nodo.izquierdo = rotarIzquierda(nodo.izquierdo);
+            }
+            return rotarDerecha(nodo);
+        }
+        if (factor < -1) {
+            if (altura(nodo.derecho.derecho) < altura(nodo.derecho.izquierdo)) {
+                nodo.derecho = rotarDerecha(nodo.derecho);
+            }
+            return rotarIzquierda(nodo);
         }
         return nodo;
     }
 
+    /**
+     * Rotación simple a la derecha
+     * @param nodo La raíz del subárbol a rotar
+     * @return La nueva raíz del subárbol
+     */
+    private static Nodo rotarDerecha(Nodo nodo) {
+        Nodo nuevaRaiz = nodo.izquierdo;
+        nodo.izquierdo = nuevaRaiz.derecho;
+        nuevaRaiz.derecho = nodo;
+        actualizarAltura(nodo);
+        actualizarAltura(nuevaRaiz);
+        return nuevaRaiz;
+    }
+
+    /**
+     * Rotación simple a la izquierda
+     * @param nodo La raíz del subárbol a rotar
+     * @return La nueva raíz del subárbol
+     */
+    private static Nodo rotarIzquierda(Nodo nodo) {
+        Nodo nuevaRaiz = nodo.derecho;
+        nodo.derecho = nuevaRaiz.izquierdo;
+        nuevaRaiz.izquierdo = nodo;
+        actualizarAltura(nodo);
+        actualizarAltura(nuevaRaiz);
+        return nuevaRaiz;
+    }
+
     /**
      * Búsqueda de productos en el árbol
      * @param clave La clave del producto a buscar
      * @return El producto encontrado o null si no existe
      */
     public Producto buscar(String clave) {
-        return buscarRecursivo(raiz, clave);
+        long inicio = Metricas.inicio();
+        CacheProductos cache = this.cache;
+        long generacion = 0;
+        if (cache != null) {
+            generacion = cache.generacion();
+            Producto enCache = cache.obtener(clave);
+            if (enCache != null) {
+                Metricas.BUSCAR.registrar(inicio); /* Solo la latencia: el acierto lo cuenta la caché, no la profundidad */
+                return enCache;
+            }
+        }
+        Nodo actual = raiz;
+        int visitados = 0;
+        while (actual != null) {
+            visitados++;
+            int comparacion = clave.compareTo(actual.clave);
+            if (comparacion == 0) { break; }
+            actual = comparacion < 0 ? actual.izquierdo : actual.derecho;
+        }
+        Metricas.registrarBusqueda(this, inicio, visitados);
+        if (actual == null) {
+            return null;
+        }
+        if (cache != null) {
+            cache.admitir(clave, actual.valor, generacion);
+        }
+        return actual.valor;
+    }
+
+    /**
+     * Pone una caché acotada delante de buscar (ver CacheProductos). Reemplaza la caché anterior, si había.
+     * @param capacidad La cantidad máxima de productos en caché
+     */
+    public void activarCache(int capacidad) {
+        cache = new CacheProductos(capacidad);
+    }
+
+    /**
+     * Quita la caché de buscar
+     */
+    public void desactivarCache() {
+        cache = null;
+    }
+
+    /**
+     * Obtiene la caché de buscar, por ejemplo para consultar sus aciertos y fallos
+     * @return La caché, o null si no está activa
+     */
+    public CacheProductos getCache() {
+        return cache;
+    }
+
+    /**
+     * Quita una clave de la caché, si hay una activa. Se llama cuando el producto de esa clave cambia.
+     * @param clave La clave del producto
+     */
+    public void invalidarCache(String clave) {
+        CacheProductos cache = this.cache;
+        if (cache != null) {
+            cache.invalidar(clave);
+        }
     }
 
     /**
-     * Método recursivo para buscar un producto en el árbol
-     * @param nodo El nodo actual en el que se busca
+     * Búsqueda para lecturas optimistas (ver InventarioConcurrente): si otro hilo modifica el árbol
+     * durante el recorrido, los enlaces leídos pueden ser inconsistentes, así que se corta tras maxPasos nodos
      * @param clave La clave del producto a buscar
+     * @param maxPasos Máximo de nodos a visitar
      * @return El producto encontrado o null si no existe
+     * @throws IllegalStateException Si el recorrido supera maxPasos
      */
-    private Producto buscarRecursivo(Nodo nodo, String clave) {
-        if (nodo == null) { return null; }
-        if (clave.equals(nodo.clave)) { return nodo.valor; }
-        return clave.compareTo(nodo.clave) < 0 ? buscarRecursivo(nodo.izquierdo, clave) : buscarRecursivo(nodo.derecho, clave);
+    Producto buscarAcotado(String clave, int maxPasos) {
+        CacheProductos cache = this.cache;
+        if (cache != null) {
+            Producto enCache = cache.obtener(clave);
+            if (enCache != null) { return enCache; }
+        }
+        Nodo actual = raiz;
+        for (int pasos = 0; actual != null; pasos++) {
+            if (pasos == maxPasos) {
+                throw new IllegalStateException("Recorrido inconsistente buscando " + clave);
+            }
+            int comparacion = clave.compareTo(actual.clave);
+            if (comparacion == 0) { return actual.valor; }
+            actual = comparacion < 0 ? actual.izquierdo : actual.derecho;
+        }
+        return null;
     }
 
     /**
-     * Lista todos los productos en el árbol en orden, según el tipo de clave.
+     * Lista todos los productos en el árbol en orden, según el tipo de clave, en la consola.
+     * La salida se arma en un búfer y se escribe por bloques (ver listar(Appendable, ...)).
      * @param porSku true para listar por SKU, false para listar por nombre
      */
     public void listar(boolean porSku) {
-        if (porSku) {
-            listarPorSkuRecursivo(raiz);
-        } else {
-            listarPorNombreRecursivo(raiz);
+        try {
+            listar(System.out, iterator(), porSku);
+        } catch (IOException e) {
+            e.printStackTrace(); /* La consola no lanza IOException */
+        }
+    }
+
+    /**
+     * Lista todos los productos en orden en cualquier destino (un Writer, un StringBuilder, System.out)
+     * @param destino Donde se escribe el listado
+     * @param porSku true para listar por SKU, false para listar por nombre
+     * @throws IOException Si el destino falla al escribir
+     */
+    public void listar(Appendable destino, boolean porSku) throws IOException {
+        listar(destino, iterator(), porSku);
+    }
+
+    /**
+     * Escribe productos con el formato del listado. Se usa un único búfer que se vuelca al destino cada
+     * TAMANO_BUFER caracteres, así que el destino recibe unas pocas escrituras grandes en lugar de una
+     * por producto (System.out se sincroniza en cada una).
+     * @param destino Donde se escribe el listado
+     * @param productos Los productos, por ejemplo un iterador o los de una Pagina
+     * @param porSku true para mostrar primero el SKU, false para mostrar primero el nombre
+     * @throws IOException Si el destino falla al escribir
+     */
+    public static void listar(Appendable destino, Iterator<Producto> productos, boolean porSku) throws IOException {
+        String salto = System.lineSeparator();
+        StringBuilder bufer = new StringBuilder(TAMANO_BUFER + 256);
+        while (productos.hasNext()) {
+            Producto producto = productos.next();
+            if (porSku) {
+                bufer.append("SKU: ").append(producto.getSku()).append('\n').append("Nombre: ").append(producto.getNombre());
+            } else {
+                bufer.append("Nombre: ").append(producto.getNombre()).append('\n').append("SKU: ").append(producto.getSku());
+            }
+            bufer.append(salto);
+            if (bufer.length() >= TAMANO_BUFER) {
+                destino.append(bufer);
+                bufer.setLength(0);
+            }
+        }
+        if (bufer.length() > 0) {
+            destino.append(bufer);
         }
     }
 
     /**
-     * Método recursivo para listar los productos del árbol por SKU
-     * @param nodo El nodo actual que se está listando
+     * Obtiene una página de productos en orden de clave, para recorrer el árbol de a poco (una interfaz
+     * o una exportación). Desciende directo hasta el cursor, así que cuesta O(log n + cantidad).
+     * @param despuesDe El cursor de la página anterior (Pagina.getCursor), o null para la primera
+     * @param cantidad La cantidad máxima de productos de la página
+     * @return La página
      */
-    private void listarPorSkuRecursivo(Nodo nodo) {
-        if (nodo != null) {
-            listarPorSkuRecursivo(nodo.izquierdo);
-            System.out.println("SKU: " + nodo.valor.getSku() + "\nNombre: " + nodo.valor.getNombre());
-            listarPorSkuRecursivo(nodo.derecho);
+    public Pagina pagina(String despuesDe, int cantidad) {
+        IteradorEnOrden iterador = new IteradorEnOrden(raiz, altura(raiz), despuesDe, false, null, true);
+        List<Producto> productos = new ArrayList<>(Math.min(cantidad, tamano));
+        while (productos.size() < cantidad && iterador.hasNext()) {
+            productos.add(iterador.next());
         }
+        String cursor = productos.isEmpty() ? despuesDe : iterador.ultimaClave();
+        return new Pagina(productos, cursor, iterador.hasNext());
     }
 
     /**
-     * Método recursivo para listar los productos del árbol por nombre
-     * @param nodo El nodo actual que se está listando
+     * Iterador perezoso que entrega los productos en orden de clave sin copiarlos
+     * @return Un iterador en orden
      */
-    private void listarPorNombreRecursivo(Nodo nodo) {
-        if (nodo != null) {
-            listarPorNombreRecursivo(nodo.izquierdo);
-            System.out.println("Nombre: " + nodo.valor.getNombre() + "\nSKU: " + nodo.valor.getSku());
-            listarPorNombreRecursivo(nodo.derecho);
+    @Override
+    public Iterator<Producto> iterator() {
+        return new IteradorEnOrden(raiz, altura(raiz));
+    }
+
+    /**
+     * Iterador perezoso acotado a un rango de claves; solo visita los subárboles que caen dentro del rango
+     * @param desde La clave inicial, o null para empezar desde la menor
+     * @param desdeInclusivo true si la clave inicial forma parte del rango
+     * @param hasta La clave final, o null para llegar hasta la mayor
+     * @param hastaInclusivo true si la clave final forma parte del rango
+     * @return Un iterador en orden sobre el rango
+     */
+    public Iterator<Producto> iterador(String desde, boolean desdeInclusivo, String hasta, boolean hastaInclusivo) {
+        return new IteradorEnOrden(raiz, altura(raiz), desde, desdeInclusivo, hasta, hastaInclusivo);
+    }
+
+    /**
+     * Obtiene los productos cuya clave está entre dos límites, en orden. Cuesta O(log n + k).
+     * @param desde La clave inicial, o null para empezar desde la menor
+     * @param desdeInclusivo true si la clave inicial forma parte del rango
+     * @param hasta La clave final, o null para llegar hasta la mayor
+     * @param hastaInclusivo true si la clave final forma parte del rango
+     * @return Los productos dentro del rango
+     */
+    public List<Producto> rango(String desde, boolean desdeInclusivo, String hasta, boolean hastaInclusivo) {
+        List<Producto> resultado = new ArrayList<>();
+        iterador(desde, desdeInclusivo, hasta, hastaInclusivo).forEachRemaining(resultado::add);
+        return resultado;
+    }
+
+    /**
+     * Obtiene los productos cuya clave empieza con un prefijo (distingue mayúsculas), en orden.
+     * Las claves con un mismo prefijo son contiguas, así que equivale a un rango [prefijo, sucesor).
+     * @param prefijo El inicio de clave buscado, por ejemplo "Camis"
+     * @return Los productos cuya clave empieza con el prefijo
+     */
+    public List<Producto> buscarPorPrefijo(String prefijo) {
+        if (prefijo.isEmpty()) { return rango(null, true, null, true); }
+        return rango(prefijo, true, sucesorDePrefijo(prefijo), false);
+    }
+
+    /**
+     * Calcula la menor cadena mayor que todas las que empiezan con el prefijo
+     * @param prefijo El prefijo
+     * @return El sucesor del prefijo, o null si no existe (el prefijo es solo de caracteres máximos)
+     */
+    private static String sucesorDePrefijo(String prefijo) {
+        int fin = prefijo.length();
+        while (fin > 0 && prefijo.charAt(fin - 1) == Character.MAX_VALUE) {
+            fin--;
         }
+        if (fin == 0) { return null; }
+        return prefijo.substring(0, fin - 1) + (char) (prefijo.charAt(fin - 1) + 1);
     }
+
+    /**
+     * Spliterator en orden que se puede dividir por subárboles para procesamiento en paralelo
+     * @return Un spliterator en orden
+     */
+    @Override
+    public Spliterator<Producto> spliterator() {
+        return new DivisorEnOrden(raiz, altura(raiz), tamano);
+    }
+
+    /**
+     * Stream secuencial de los productos en orden de clave
+     * @return Un stream sobre el árbol
+     */
+    public Stream<Producto> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Stream paralelo de los productos, útil para agregaciones como el stock total
+     * @return Un stream paralelo sobre el árbol
+     */
+    public Stream<Producto> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Acción que se aplica a cada nodo durante un recorrido
+     */
+    private interface Visitante {
+        void visitar(Nodo nodo) throws IOException;
+    }
+
+    /**
+     * Recorre el árbol en orden (inorden) usando una pila explícita en lugar de recursión.
+     * La pila nunca supera la altura del árbol.
+     * @param visitante La acción a aplicar sobre cada nodo
+     * @throws IOException Si la acción falla al escribir
+     */
+    private void recorrerEnOrden(Visitante visitante) throws IOException {
+        Nodo[] pila = new Nodo[altura(raiz)];
+        int tope = 0;
+        Nodo actual = raiz;
+        while (actual != null || tope > 0) {
+            while (actual != null) {
+                pila[tope++] = actual;
+                actual = actual.izquierdo;
+            }
+            actual = pila[--tope];
+            visitante.visitar(actual);
+            actual = actual.derecho;
+        }
+    }
+
     /**
      * Agrega un nuevo producto al árbol y guarda el inventario en el archivo
+     * (o lo registra en la bitácora o lo deja al persistidor, si el archivo tiene uno activo).
+     * Se mantiene por compatibilidad; la lógica está en AlmacenInventario.agregar
      * @param arbolSku El árbol binario que almacena productos por SKU
      * @param arbolNombre El árbol binario que almacena productos por Nombre
      * @param sku El SKU del nuevo producto
@@ -103,69 +730,231 @@ public class BinaryTree {
      * @param archivo Ruta del CSV que guarda el inventario (actualizado)
      */
     public void agregarProducto(BinaryTree arbolSku, BinaryTree arbolNombre, String sku, String nombre, String descripcion, Map<String, Integer> tallas, String archivo){
-        if(arbolSku.buscar(sku) != null) {
-            System.out.println("El producto con el SKU " + sku + " ya existe en el sistema.");
-            return;
+        new AlmacenInventario(arbolSku, arbolNombre, archivo).agregar(sku, nombre, descripcion, tallas);
+    }
+
+    /**
+     * Busca un producto en el árbol por medio del nombre, sin importar mayúsculas, tildes
+     * ni espacios externos. Usa el índice de nombres normalizados, por lo que es O(1).
+     * @param nombre El nombre del producto requerido
+     * @return El producto encontrado o null si no existe
+     */
+    public Producto buscarPorNombre(String nombre){
+        long inicio = Metricas.inicio();
+        asegurarIndiceNombres();
+        Producto producto = buscarPorNombreNormalizado(Normalizador.normalizar(nombre));
+        Metricas.BUSCAR_POR_NOMBRE.registrar(inicio);
+        return producto;
+    }
+
+    /**
+     * Busca por un nombre que ya pasó por Normalizador.normalizar
+     * @param nombreNormalizado El nombre normalizado
+     * @return El producto encontrado o null si no existe (o si el índice aún no se construye)
+     */
+    Producto buscarPorNombreNormalizado(String nombreNormalizado) {
+        Map<String, Producto> indice = indiceNombres;
+        return indice == null ? null : indice.get(nombreNormalizado);
+    }
+
+    /**
+     * Busca los productos cuyo nombre contiene un fragmento, sin importar mayúsculas ni tildes
+     * ("camis" encuentra "Camiseta Dry-Fit"). Usa el índice de trigramas, así que no recorre el árbol.
+     * @param fragmento El fragmento del nombre
+     * @return Los productos encontrados
+     */
+    public List<Producto> buscarPorFragmento(String fragmento) {
+        asegurarIndiceNombres();
+        return indiceTrigramas.buscarSubcadena(fragmento);
+    }
+
+    /**
+     * Busca los productos con el nombre más parecido, tolerando errores de tipeo ("camisetta")
+     * @param texto El nombre aproximado
+     * @param maximo La cantidad máxima de resultados
+     * @return Los productos, del más parecido al menos parecido
+     */
+    public List<Producto> buscarNombreAproximado(String texto, int maximo) {
+        asegurarIndiceNombres();
+        return indiceTrigramas.buscarAproximado(texto, maximo);
+    }
+
+    /**
+     * Construye el índice de nombres si todavía no existe
+     */
+    void asegurarIndiceNombres() {
+        if (indiceNombres == null) {
+            indexarNombres();
         }
-        if(arbolNombre.buscar(nombre) != null) {
-            System.out.println("El producto con el nombre " + nombre + " ya existe en el sistema.");
-            return;
+    }
+
+    /**
+     * Construye el índice de nombres normalizados y el de trigramas con un único recorrido del árbol.
+     * A partir de ese momento insertar los mantiene actualizados.
+     */
+    public void indexarNombres() {
+        Map<String, Producto> indice = new HashMap<>();
+        IndiceTrigramas trigramas = new IndiceTrigramas();
+        try {
+            recorrerEnOrden(nodo -> {
+                String nombre = Normalizador.normalizar(nodo.valor.getNombre());
+                indice.putIfAbsent(nombre, nodo.valor);
+                trigramas.agregar(nodo.valor, nombre);
+            });
+        } catch (IOException e) {
+            e.printStackTrace(); /* El recorrido en memoria no lanza IOException */
         }
+        indiceTrigramas = trigramas;
+        indiceNombres = indice;
+    }
 
-        Producto nuevoProducto = new Producto(sku, nombre, descripcion, tallas);
-        arbolSku.insertar(sku, nuevoProducto);
-        arbolNombre.insertar(nombre, nuevoProducto);
+    /**
+     * Cambia el nombre de un producto manteniendo el índice de nombres y el de trigramas, en un árbol cuya
+     * clave no es el nombre (por ejemplo, el árbol por SKU). En el árbol por nombre se usa cambiarClave.
+     * @param producto El producto
+     * @param nombre El nuevo nombre
+     */
+    public void cambiarNombre(Producto producto, String nombre) {
+        boolean indexado = indiceNombres != null && quitarNombre(producto);
+        producto.setNombre(nombre);
+        if (indexado) {
+            String normalizado = Normalizador.normalizar(nombre);
+            indiceNombres.putIfAbsent(normalizado, producto);
+            indiceTrigramas.agregar(producto, normalizado);
+        }
+    }
 
-        Inventario.guardarInventario(archivo, arbolSku);
+    /**
+     * Busca los productos por palabras de su descripción, sin importar mayúsculas ni tildes.
+     * La primera búsqueda construye el índice de descripciones; después insertar y cambiarDescripcion
+     * lo mantienen actualizado.
+     * @param palabras Las palabras separadas por espacios (por ejemplo "algodón dry-fit")
+     * @param todas true si deben estar todas las palabras, false si basta con una
+     * @return Los productos encontrados
+     */
+    public List<Producto> buscarPorDescripcion(String palabras, boolean todas) {
+        asegurarIndiceDescripciones();
+        return indiceDescripciones.buscar(palabras, todas);
     }
 
     /**
-     * Busca un producto en el árbol por medio del nombre
-     * @param nombre El nombre del producto requerido
-     * @return El producto encontrado o null si no existe
+     * Cambia la descripción de un producto del árbol manteniendo el índice de descripciones.
+     * Las ediciones deben pasar por aquí y no por Producto.setDescripcion, o el índice queda desactualizado.
+     * @param producto El producto
+     * @param descripcion La nueva descripción
      */
-    public Producto buscarPorNombre(String nombre){
-        return buscarPorNombreRecursivo(raiz, nombre.toLowerCase());
+    public void cambiarDescripcion(Producto producto, String descripcion) {
+        producto.setDescripcion(descripcion);
+        if (indiceDescripciones != null) {
+            indiceDescripciones.actualizar(producto);
+        }
     }
 
     /**
-     *  Método recursivo para buscar un producto en el árbol por medio del nombre
-     * @param nodo El nodo actual en el que se busca
-     * @param nombre El nombre del producto a buscar
-     * @return El producto encontrado o null si no existe
+     * Construye el índice de descripciones si todavía no existe
      */
-    private Producto buscarPorNombreRecursivo(Nodo nodo, String nombre) {
-        if (nodo == null) { return null; }
-        if (nombre.equalsIgnoreCase(nodo.valor.getNombre())) { return nodo.valor; }
-        Producto encontrado = buscarPorNombreRecursivo(nodo.izquierdo, nombre);
-        if(encontrado != null) { return encontrado;
+    void asegurarIndiceDescripciones() {
+        if (indiceDescripciones == null) {
+            indexarDescripciones();
         }
-        return buscarPorNombreRecursivo(nodo.derecho, nombre);
     }
 
     /**
-     * Lista todos los productos en el árbol y los guarda en un archivo
-     * @param bw El BufferedWriter usado para escribir en el archivo
-     * @throws IOException Por si ocurre un error al escribir en el archivo
+     * Construye el índice de descripciones con un único recorrido del árbol
      */
-    public void listarParaGuardar(BufferedWriter bw) throws IOException {
-        listarParaGuardarRecursivo(raiz, bw);
+    public void indexarDescripciones() {
+        IndiceInvertido indice = new IndiceInvertido();
+        try {
+            recorrerEnOrden(nodo -> indice.agregar(nodo.valor));
+        } catch (IOException e) {
+            e.printStackTrace(); /* El recorrido en memoria no lanza IOException */
+        }
+        indiceDescripciones = indice;
+    }
+
+    /**
+     * Busca los productos que tienen unidades de las tallas indicadas ("M" y "L", o "M" o "L").
+     * La primera búsqueda construye el índice de tallas; después se mantiene solo con cada cambio de stock.
+     * @param todas true si deben tener todas las tallas, false si basta con una
+     * @param tallas Las tallas
+     * @return Los productos encontrados, en orden de clave si el índice se construyó de una vez
+     */
+    public List<Producto> buscarPorTallas(boolean todas, String... tallas) {
+        asegurarIndiceTallas();
+        return indiceTallas.buscar(todas, tallas);
+    }
+
+    /**
+     * Cuenta los productos que tienen unidades de las tallas indicadas
+     * @param todas true si deben tener todas las tallas, false si basta con una
+     * @param tallas Las tallas
+     * @return La cantidad de productos
+     */
+    public int contarPorTallas(boolean todas, String... tallas) {
+        asegurarIndiceTallas();
+        return indiceTallas.contar(todas, tallas);
     }
 
     /**
-     * Método recursivo para listar los productos del árbol y escribirlos en el archivo
-     * @param nodo El nodo actual que se está listando
+     * Construye el índice de tallas si todavía no existe
+     */
+    void asegurarIndiceTallas() {
+        if (indiceTallas == null) {
+            indexarTallas();
+        }
+    }
+
+    /**
+     * Construye el índice de tallas con un único recorrido del árbol. Los productos quedan observados
+     * por el índice, así que conviene que solo uno de los dos árboles (el de SKU) lo tenga.
+     */
+    public void indexarTallas() {
+        IndiceTallas indice = new IndiceTallas();
+        try {
+            recorrerEnOrden(nodo -> indice.agregar(nodo.valor));
+        } catch (IOException e) {
+            e.printStackTrace(); /* El recorrido en memoria no lanza IOException */
+        }
+        if (indiceTallas != null) {
+            indiceTallas.desconectar(); /* Que los productos no sigan avisando al índice viejo */
+        }
+        indiceTallas = indice;
+    }
+
+    /**
+     * Empieza a seguir el stock de todos los productos para las consultas de reposición (ver SeguimientoStock).
+     * Si ya había un seguimiento, se reemplaza.
+     * @param umbral Los productos con menos unidades que este valor se consideran con stock bajo
+     * @return El seguimiento, para consultarlo y agregarle oyentes
+     */
+    public SeguimientoStock activarSeguimiento(int umbral) {
+        SeguimientoStock nuevo = new SeguimientoStock(umbral);
+        try {
+            recorrerEnOrden(nodo -> nuevo.agregar(nodo.valor));
+        } catch (IOException e) {
+            e.printStackTrace(); /* El recorrido en memoria no lanza IOException */
+        }
+        if (seguimiento != null) {
+            seguimiento.desconectar();
+        }
+        seguimiento = nuevo;
+        return nuevo;
+    }
+
+    /**
+     * Obtiene el seguimiento de stock activo
+     * @return El seguimiento, o null si no se activó
+     */
+    public SeguimientoStock getSeguimiento() {
+        return seguimiento;
+    }
+
+    /**
+     * Lista todos los productos en el árbol y los guarda en un archivo
      * @param bw El BufferedWriter usado para escribir en el archivo
      * @throws IOException Por si ocurre un error al escribir en el archivo
      */
-    private void listarParaGuardarRecursivo(Nodo nodo, BufferedWriter bw) throws IOException {
-        if (nodo != null) {
-            listarParaGuardarRecursivo(nodo.izquierdo, bw);
-            String tallasStr = nodo.valor.getTallas().entrySet().stream()
-            .map(entry -> entry.getKey() + ":" + entry.getValue())
-            .reduce((talla1, talla2) -> talla1 + "|" + talla2).orElse("");
-            bw.write(nodo.valor.getSku() + "," + nodo.valor.getNombre() + "," + nodo.valor.getDescripcion() + "," + tallasStr + "\n");
-            listarParaGuardarRecursivo(nodo.derecho, bw);
-        }
+    public void listarParaGuardar(BufferedWriter bw) throws IOException {
+        recorrerEnOrden(nodo -> ParserCsv.escribir(bw, nodo.valor));
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,15 @@
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Collections;
+import java.util.Random;
 
 public class BinaryTreeTest {
     private BinaryTree arbolSku;
@@ -83,4 +90,242 @@ public class BinaryTreeTest {
         Producto encontrado = arbolNombre.buscarPorNombre("Producto Inexistente");
         assertNull(encontrado, "Se encontró un producto que no debería existir.");
     }
+
+    @Test
+    public void testAlturaLogaritmicaConSkusOrdenados() {
+        int total = 1_000_000;
+        for (int i = 0; i < total; i++) {
+            String sku = String.format("%07d", i);
+            arbolSku.insertar(sku, new Producto(sku, "Producto " + i, "Descripción", new HashMap<>()));
+        }
+        /* Un árbol AVL con n nodos tiene altura menor a 1.45 * log2(n + 2) */
+        double limite = 1.45 * (Math.log(total + 2) / Math.log(2));
+        assertTrue(arbolSku.altura() <= limite, "La altura " + arbolSku.altura() + " no es logarítmica.");
+        assertNotNull(arbolSku.buscar("0000000"));
+        assertNotNull(arbolSku.buscar("0999999"));
+    }
+
+    @Test
+    public void testListarParaGuardarEnOrden() throws IOException {
+        for (String sku : new String[] {"3", "1", "5", "2", "4"}) {
+            arbolSku.insertar(sku, new Producto(sku, "Producto " + sku, "Descripción", new HashMap<>()));
+        }
+        StringWriter salida = new StringWriter();
+        try (BufferedWriter bw = new BufferedWriter(salida)) {
+            arbolSku.listarParaGuardar(bw);
+        }
+        String[] lineas = salida.toString().split("\n");
+        assertEquals(5, lineas.length);
+        for (int i = 0; i < lineas.length; i++) {
+            assertTrue(lineas[i].startsWith((i + 1) + ","), "Las líneas no están ordenadas por SKU.");
+        }
+    }
+
+    @Test
+    public void testBuscarPorNombreNormalizado() {
+        Producto pantalon = new Producto("SKU124", "Pantalón Deportivo", "Pantalón de mezclilla", new HashMap<>());
+        arbolNombre.insertar(producto.getNombre(), producto);
+        arbolNombre.indexarNombres();
+        /* Un producto insertado después de construir el índice también debe encontrarse */
+        arbolNombre.insertar(pantalon.getNombre(), pantalon);
+        assertSame(producto, arbolNombre.buscarPorNombre("  CAMISETA "));
+        assertSame(pantalon, arbolNombre.buscarPorNombre("pantalon deportivo"));
+    }
+
+    @Test
+    public void testIteradorYStreams() {
+        for (int i = 0; i < 1000; i++) {
+            String sku = String.format("%04d", i);
+            Map<String, Integer> tallas = new HashMap<>();
+            tallas.put("M", i);
+            arbolSku.insertar(sku, new Producto(sku, "Producto " + i, "Descripción", tallas));
+        }
+        int esperado = 0;
+        for (Producto p : arbolSku) {
+            assertEquals(String.format("%04d", esperado), p.getSku());
+            esperado++;
+        }
+        assertEquals(1000, esperado);
+        assertEquals(1000, arbolSku.tamano());
+
+        long totalSecuencial = arbolSku.stream().mapToLong(p -> p.getTallas().get("M")).sum();
+        long totalParalelo = arbolSku.parallelStream().mapToLong(p -> p.getTallas().get("M")).sum();
+        assertEquals(999L * 1000 / 2, totalSecuencial);
+        assertEquals(totalSecuencial, totalParalelo);
+        assertEquals(1000, arbolSku.parallelStream().map(Producto::getSku).distinct().count());
+    }
+
+    @Test
+    public void testRangoYPrefijo() {
+        for (int i = 10; i < 30; i++) {
+            String sku = String.valueOf(i);
+            arbolSku.insertar(sku, new Producto(sku, "Producto " + i, "Descripción", new HashMap<>()));
+        }
+        assertEquals(5, arbolSku.rango("12", true, "16", true).size());
+        assertEquals(3, arbolSku.rango("12", false, "16", false).size());
+        assertEquals("12", arbolSku.rango("12", true, "16", true).get(0).getSku());
+        assertEquals(10, arbolSku.rango("20", true, null, true).size());
+        assertEquals(0, arbolSku.rango("40", true, "50", true).size());
+
+        for (String nombre : new String[] {"Camisa", "Camiseta", "Camiseta Dry-Fit", "Calcetas", "Gorra"}) {
+            arbolNombre.insertar(nombre, new Producto(nombre, nombre, "Descripción", new HashMap<>()));
+        }
+        List<Producto> camis = arbolNombre.buscarPorPrefijo("Camis");
+        assertEquals(3, camis.size());
+        assertEquals("Camisa", camis.get(0).getNombre());
+        assertEquals("Camiseta Dry-Fit", camis.get(2).getNombre());
+        assertEquals(0, arbolNombre.buscarPorPrefijo("Zap").size());
+    }
+
+    @Test
+    public void testCargarOrdenados() {
+        int total = 100_000;
+        String[] claves = new String[total + 1];
+        Producto[] valores = new Producto[total + 1];
+        for (int i = 0; i < total; i++) {
+            claves[i] = String.format("%06d", i);
+            valores[i] = new Producto(claves[i], "Producto " + i, "Descripción", new HashMap<>());
+        }
+        /* Una clave repetida al final: se conserva la primera */
+        claves[total] = claves[total - 1];
+        valores[total] = producto;
+        arbolSku.cargarOrdenados(claves, valores, total + 1);
+
+        assertEquals(total, arbolSku.tamano());
+        assertEquals(17, arbolSku.altura()); /* ceil(log2(100001)) */
+        assertEquals("099999", arbolSku.buscar("099999").getSku());
+        assertNotNull(arbolSku.buscar("000000"));
+        arbolSku.insertar("100000", producto);
+        assertSame(producto, arbolSku.buscar("100000"));
+    }
+
+    @Test
+    public void testListarEnAppendable() throws IOException {
+        for (String sku : new String[] {"2", "1"}) {
+            arbolSku.insertar(sku, new Producto(sku, "Producto " + sku, "Descripción", new HashMap<>()));
+        }
+        StringBuilder salida = new StringBuilder();
+        arbolSku.listar(salida, true);
+        String salto = System.lineSeparator();
+        assertEquals("SKU: 1\nNombre: Producto 1" + salto + "SKU: 2\nNombre: Producto 2" + salto, salida.toString());
+
+        /* Muchos productos: el búfer se vuelca varias veces sin perder ni repetir líneas */
+        for (int i = 3; i <= 5000; i++) {
+            String sku = String.valueOf(i);
+            arbolSku.insertar(sku, new Producto(sku, "Producto " + sku, "Descripción", new HashMap<>()));
+        }
+        StringWriter escritor = new StringWriter();
+        arbolSku.listar(escritor, false);
+        assertEquals(10000, escritor.toString().split(salto + "|\n").length);
+    }
+
+    @Test
+    public void testPaginacionRecorreTodoSinRepetir() {
+        for (int i = 0; i < 1000; i++) {
+            String sku = String.format("%04d", i);
+            arbolSku.insertar(sku, new Producto(sku, "Producto " + i, "Descripción", new HashMap<>()));
+        }
+        List<String> vistos = new ArrayList<>();
+        String cursor = null;
+        Pagina pagina;
+        do {
+            pagina = arbolSku.pagina(cursor, 64);
+            for (Producto p : pagina.getProductos()) {
+                vistos.add(p.getSku());
+            }
+            cursor = pagina.getCursor();
+            if (vistos.size() == 128) { /* Un alta entre páginas, antes del cursor, no desordena el resto */
+                arbolSku.insertar("0000a", new Producto("0000a", "Nuevo", "Descripción", new HashMap<>()));
+            }
+        } while (pagina.hayMas());
+        assertEquals(1000, vistos.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(String.format("%04d", i), vistos.get(i));
+        }
+        assertEquals(64, arbolSku.pagina(null, 64).getProductos().size());
+        assertTrue(arbolSku.pagina("0999", 64).getProductos().isEmpty());
+        assertFalse(arbolSku.pagina("0990", 9).hayMas());
+    }
+
+    @Test
+    public void testEliminarRebalanceaYMantieneElOrden() {
+        List<String> claves = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String sku = String.format("%04d", i);
+            claves.add(sku);
+            arbolSku.insertar(sku, new Producto(sku, "Producto " + sku, "Generado", Map.of("M", 1)));
+        }
+        Collections.shuffle(claves, new Random(7));
+        for (String sku : claves.subList(0, 1500)) {
+            assertEquals(sku, arbolSku.eliminar(sku).getSku());
+        }
+        assertNull(arbolSku.eliminar(claves.get(0)));
+        assertEquals(500, arbolSku.tamano());
+        /* Un árbol AVL con n nodos tiene altura menor a 1.45 * log2(n + 2) */
+        assertTrue(arbolSku.altura() <= (int) (1.45 * Math.log(502) / Math.log(2)), "La altura no es logarítmica.");
+        List<String> restantes = new ArrayList<>(claves.subList(1500, 2000));
+        Collections.sort(restantes);
+        List<String> enOrden = new ArrayList<>();
+        for (Producto encontrado : arbolSku) {
+            enOrden.add(encontrado.getSku());
+        }
+        assertEquals(restantes, enOrden);
+        assertNull(arbolSku.buscar(claves.get(1)));
+        assertNotNull(arbolSku.buscar(restantes.get(0)));
+    }
+
+    @Test
+    public void testEliminarQuitaDeLosIndicesYLaCache() {
+        arbolSku.activarCache(16);
+        arbolSku.insertar(producto.getSku(), producto);
+        arbolSku.insertar("SKU124", new Producto("SKU124", "Short", "Short de algodón", Map.of("M", 2)));
+        arbolSku.buscarPorNombre("camiseta");
+        arbolSku.buscarPorDescripcion("algodón", true);
+        arbolSku.buscarPorTallas(true, "M");
+        assertSame(producto, arbolSku.buscar("SKU123")); /* Queda en la caché */
+
+        assertSame(producto, arbolSku.eliminar("SKU123"));
+        assertNull(arbolSku.buscar("SKU123"));
+        assertNull(arbolSku.buscarPorNombre("camiseta"));
+        assertTrue(arbolSku.buscarPorFragmento("camis").isEmpty());
+        List<Producto> deAlgodon = arbolSku.buscarPorDescripcion("algodón", true);
+        assertEquals(1, deAlgodon.size());
+        assertEquals("SKU124", deAlgodon.get(0).getSku());
+        assertEquals(1, arbolSku.contarPorTallas(true, "M"));
+        producto.aumentarCantidad("M", 1); /* Ya no lo observa ningún índice */
+        assertEquals(1, arbolSku.contarPorTallas(true, "M"));
+    }
+
+    @Test
+    public void testQuitarUnNombreRepetidoConservaAlOtro() {
+        Producto minusculas = new Producto("SKU124", "camiseta", "Otra camiseta", Map.of("S", 1));
+        Producto tercero = new Producto("SKU125", "CAMISETA", "Tercera camiseta", Map.of("L", 1));
+        arbolSku.insertar(producto.getSku(), producto);
+        arbolSku.insertar(minusculas.getSku(), minusculas);
+        arbolSku.insertar(tercero.getSku(), tercero);
+        assertSame(producto, arbolSku.buscarPorNombre("Camiseta"));
+
+        assertSame(producto, arbolSku.eliminar("SKU123"));
+        assertSame(minusculas, arbolSku.buscarPorNombre("Camiseta"));
+        arbolSku.cambiarNombre(minusculas, "Polo");
+        assertSame(tercero, arbolSku.buscarPorNombre("Camiseta"));
+        assertSame(minusculas, arbolSku.buscarPorNombre("polo"));
+        arbolSku.cambiarNombre(tercero, "Gorra");
+        assertNull(arbolSku.buscarPorNombre("Camiseta"));
+    }
+
+    @Test
+    public void testCambiarClaveReubicaElProducto() {
+        arbolNombre.insertar("Camiseta", producto);
+        arbolNombre.insertar("Short", new Producto("SKU124", "Short", "Short de algodón", Map.of("M", 2)));
+        assertFalse(arbolNombre.cambiarClave("Camiseta", "Short", () -> producto.setNombre("Short")));
+        assertEquals("Camiseta", producto.getNombre());
+
+        assertTrue(arbolNombre.cambiarClave("Camiseta", "Polo", () -> producto.setNombre("Polo")));
+        assertNull(arbolNombre.buscar("Camiseta"));
+        assertSame(producto, arbolNombre.buscar("Polo"));
+        assertNull(arbolNombre.buscarPorNombre("camiseta"));
+        assertSame(producto, arbolNombre.buscarPorNombre("polo"));
+        assertEquals(2, arbolNombre.tamano());
+    }
 }
@@ -0,0 +1,564 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Alejandra Avilés
+ * Bitácora de cambios (write-ahead log) que evita reescribir todo el CSV en cada edición.
+ * Cada alta, baja, cambio de cantidad, de descripción o de nombre se agrega como una línea al archivo
+ * "inventario.csv.bitacora", así que guardar una edición cuesta O(1). Al abrir la bitácora se reproducen sus registros sobre el CSV,
+ * que funciona como la última fotografía (snapshot) del inventario.
+ * Cuando se acumulan suficientes registros, la bitácora se rota y en segundo plano se escribe un CSV nuevo.
+ *
+ * Los registros de cantidad guardan el valor final de la talla, no solo la diferencia, por lo que
+ * reproducirlos más de una vez da el mismo resultado. Gracias a eso, si el programa se cae a mitad de una
+ * compactación basta con reproducir la bitácora rotada y la actual sobre el CSV que haya quedado.
+ * Una transacción de varias líneas se guarda como un solo registro que termina en "fin"; si el programa
+ * se cae mientras se escribe, el registro queda incompleto y se descarta entero al reproducir.
+ */
+public class Bitacora {
+    private static final String ENCABEZADO = "#BITACORA 1 ";
+    private static final String CONTINUACION = "continua"; /* La bitácora sigue a una rotada que aún no está en el CSV */
+    private static final String FIN_TRANSACCION = "fin";
+    private static final int UMBRAL_POR_DEFECTO = 10_000;
+    private static final Map<String, Bitacora> ACTIVAS = new ConcurrentHashMap<>(); /* activa() se consulta en cada venta */
+
+    private final String archivo;
+    private final Path rutaCsv, ruta, rutaCompactando;
+    private final BinaryTree arbolSku, arbolNombre;
+    private final int umbral;
+    private final ExecutorService compactador;
+    private BufferedWriter escritor;
+    private int registros;
+    private Future<?> compactacion;
+    private long mayorSkuAgregado = -1;
+    private volatile boolean rotacionDiferida; /* Ver diferirRotacion */
+
+    /**
+     * Constructor de la bitácora
+     * @param archivo La ruta del CSV al que pertenece
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     * @param arbolNombre El árbol binario que almacena productos por nombre
+     * @param umbral La cantidad de registros que dispara una compactación
+     */
+    private Bitacora(String archivo, BinaryTree arbolSku, BinaryTree arbolNombre, int umbral) {
+        this.archivo = archivo;
+        this.rutaCsv = Paths.get(archivo);
+        this.ruta = Paths.get(archivo + ".bitacora");
+        this.rutaCompactando = Paths.get(archivo + ".bitacora.compactando");
+        this.arbolSku = arbolSku;
+        this.arbolNombre = arbolNombre;
+        this.umbral = umbral;
+        this.compactador = Executors.newSingleThreadExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "compactador-" + archivo);
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Activa la bitácora de un inventario ya cargado, reproduciendo los cambios pendientes sobre los árboles
+     * @param archivo La ruta del CSV del inventario
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     * @param arbolNombre El árbol binario que almacena productos por nombre
+     * @return La bitácora activa
+     */
+    public static Bitacora abrir(String archivo, BinaryTree arbolSku, BinaryTree arbolNombre) {
+        return abrir(archivo, arbolSku, arbolNombre, UMBRAL_POR_DEFECTO);
+    }
+
+    /**
+     * Activa la bitácora de un inventario ya cargado, reproduciendo los cambios pendientes sobre los árboles.
+     * Si el archivo ya tenía una bitácora activa, se suelta sin escribir el CSV: su contenido queda en disco
+     * y se reproduce sobre los árboles nuevos.
+     * @param archivo La ruta del CSV del inventario
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     * @param arbolNombre El árbol binario que almacena productos por nombre
+     * @param umbral La cantidad de registros que dispara una compactación
+     * @return La bitácora activa
+     */
+    public static synchronized Bitacora abrir(String archivo, BinaryTree arbolSku, BinaryTree arbolNombre, int umbral) {
+        Bitacora anterior = ACTIVAS.remove(archivo);
+        if (anterior != null) {
+            anterior.soltar();
+        }
+        Bitacora bitacora = new Bitacora(archivo, arbolSku, arbolNombre, umbral);
+        try {
+            bitacora.recuperar();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        ACTIVAS.put(archivo, bitacora);
+        return bitacora;
+    }
+
+    /**
+     * Obtiene la bitácora activa de un archivo
+     * @param archivo La ruta del CSV del inventario
+     * @return La bitácora, o null si ese archivo se guarda completo en cada cambio
+     */
+    public static Bitacora activa(String archivo) {
+        return ACTIVAS.get(archivo);
+    }
+
+    /**
+     * Cierra la bitácora de un archivo: escribe un CSV con todos los cambios y elimina la bitácora
+     * @param archivo La ruta del CSV del inventario
+     */
+    public static synchronized void cerrar(String archivo) {
+        Bitacora bitacora = ACTIVAS.remove(archivo);
+        if (bitacora != null) {
+            bitacora.guardarAhora();
+            bitacora.compactador.shutdown();
+            try {
+                bitacora.cerrarEscritor();
+                Files.deleteIfExists(bitacora.ruta);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Deja de usar la bitácora sin escribir el CSV, esperando la compactación en curso
+     */
+    private void soltar() {
+        esperarCompactacion();
+        compactador.shutdown();
+        synchronized (this) {
+            try {
+                cerrarEscritor();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Registra el alta de un producto nuevo
+     * @param producto El producto agregado
+     */
+    public void registrarAlta(Producto producto) {
+        StringBuilder linea = new StringBuilder("A,");
+        try {
+            ParserCsv.escribir(linea, producto);
+        } catch (IOException e) {
+            e.printStackTrace(); /* StringBuilder no lanza IOException */
+        }
+        notarSku(producto.getSku());
+        registrar(linea.substring(0, linea.length() - 1));
+    }
+
+    /**
+     * Registra un cambio de cantidad en una talla
+     * @param sku El SKU del producto
+     * @param talla La talla modificada
+     * @param diferencia Lo que se sumó (o restó, si es negativo)
+     * @param resultado La cantidad final de la talla, que es lo que se aplica al reproducir
+     */
+    public void registrarCantidad(String sku, String talla, int diferencia, int resultado) {
+        registrar(campos("T", sku, talla, String.valueOf(diferencia), String.valueOf(resultado)));
+    }
+
+    /**
+     * Registra un cambio de cantidad leyendo el resultado dentro del monitor de la bitácora.
+     * Las restas no toman candados, así que dos ventas pueden llegar aquí en otro orden que el de sus
+     * cambios; al leer la cantidad al escribir, el último registro de cada talla siempre tiene el valor vigente.
+     * @param producto El producto modificado
+     * @param talla La talla modificada
+     * @param diferencia Lo que se sumó (o restó, si es negativo)
+     */
+    public synchronized void registrarCantidad(Producto producto, String talla, int diferencia) {
+        registrarCantidad(producto.getSku(), talla, diferencia, producto.cantidadDe(talla));
+    }
+
+    /**
+     * Registra una transacción ya aplicada como un único registro:
+     * X,cantidad de líneas,(sku,talla,diferencia,resultado) por línea,fin
+     * Los resultados se leen dentro del monitor, igual que en registrarCantidad.
+     * @param transaccion La transacción aplicada
+     */
+    public synchronized void registrarTransaccion(Transaccion transaccion) {
+        List<Transaccion.Linea> lineas = transaccion.getLineas();
+        String[] valores = new String[2 + lineas.size() * 4];
+        valores[0] = String.valueOf(lineas.size());
+        int i = 1;
+        for (Transaccion.Linea linea : lineas) {
+            valores[i++] = linea.getSku();
+            valores[i++] = linea.getTalla();
+            valores[i++] = String.valueOf(linea.getDiferencia());
+            valores[i++] = String.valueOf(linea.getProducto().cantidadDe(linea.getTalla()));
+        }
+        valores[i] = FIN_TRANSACCION;
+        registrar(campos("X", valores));
+    }
+
+    /**
+     * Registra un cambio de descripción
+     * @param sku El SKU del producto
+     * @param descripcion La nueva descripción
+     */
+    public void registrarDescripcion(String sku, String descripcion) {
+        registrar(campos("D", sku, descripcion));
+    }
+
+    /**
+     * Registra la baja de un producto
+     * @param sku El SKU del producto eliminado
+     */
+    public void registrarBaja(String sku) {
+        registrar(campos("B", sku));
+    }
+
+    /**
+     * Registra un cambio de nombre
+     * @param sku El SKU del producto
+     * @param nombre El nuevo nombre
+     */
+    public void registrarNombre(String sku, String nombre) {
+        registrar(campos("N", sku, nombre));
+    }
+
+    /**
+     * Mayor SKU numérico agregado mediante la bitácora (puede no estar todavía en el CSV)
+     * @return El SKU, o -1 si no se agregó ninguno
+     */
+    public synchronized long mayorSkuAgregado() {
+        return mayorSkuAgregado;
+    }
+
+    /**
+     * Escribe ya mismo un CSV completo y deja la bitácora vacía. Espera a que termine cualquier compactación.
+     */
+    public void guardarAhora() {
+        esperarCompactacion();
+        synchronized (this) {
+            try {
+                cerrarEscritor();
+                escribirSnapshot(serializar());
+                Files.deleteIfExists(rutaCompactando);
+                iniciarBitacora(identidadCsv());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Espera a que termine la compactación en segundo plano, si hay una en curso
+     */
+    public void esperarCompactacion() {
+        Future<?> pendiente;
+        synchronized (this) {
+            pendiente = compactacion;
+        }
+        if (pendiente == null) { return; }
+        try {
+            pendiente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Agrega una línea a la bitácora y la envía al sistema operativo; si se alcanza el umbral, rota la bitácora
+     * @param linea El registro a agregar
+     */
+    private synchronized void registrar(String linea) {
+        try {
+            escritor.write(linea);
+            escritor.write('\n');
+            escritor.flush();
+            registros++;
+            if (!rotacionDiferida && rotacionPendiente()) {
+                rotar();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Deja de rotar dentro de registrar. La rotación toma una fotografía recorriendo el árbol por SKU, así que
+     * quien comparte los árboles entre hilos (InventarioConcurrente) la pide con rotarSiHaceFalta teniendo
+     * tomado su propio candado; si no, una venta podría recorrer el árbol mientras otro hilo inserta.
+     */
+    public void diferirRotacion() {
+        rotacionDiferida = true;
+    }
+
+    /**
+     * Indica si la bitácora llegó a su umbral y no hay una compactación en curso
+     * @return true si corresponde rotar
+     */
+    public synchronized boolean rotacionPendiente() {
+        return registros >= umbral && (compactacion == null || compactacion.isDone());
+    }
+
+    /**
+     * Rota la bitácora si llegó a su umbral. Se llama con el candado que protege a los árboles tomado
+     * (ver diferirRotacion)
+     */
+    public synchronized void rotarSiHaceFalta() {
+        if (rotacionPendiente()) {
+            try {
+                rotar();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Rota la bitácora: la actual pasa a ".compactando", se toma una fotografía del inventario en memoria
+     * (en este hilo, para que sea consistente) y el CSV se escribe en segundo plano.
+     * @throws IOException Si ocurre un error al mover o crear la bitácora
+     */
+    private void rotar() throws IOException {
+        cerrarEscritor();
+        Files.move(ruta, rutaCompactando, StandardCopyOption.REPLACE_EXISTING);
+        String snapshot = serializar();
+        iniciarBitacora(CONTINUACION);
+        compactacion = compactador.submit(() -> {
+            try {
+                escribirSnapshot(snapshot);
+                terminarCompactacion();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Una vez escrito el CSV nuevo, vincula la bitácora actual a él y elimina la rotada
+     * @throws IOException Si ocurre un error al reescribir la bitácora
+     */
+    private synchronized void terminarCompactacion() throws IOException {
+        cerrarEscritor();
+        List<String> pendientes = leerRegistros(ruta);
+        EscrituraAtomica.escribir(ruta.toString(), bw -> {
+            bw.write(ENCABEZADO + identidadCsv() + "\n");
+            for (String linea : pendientes) {
+                bw.write(linea);
+                bw.write('\n');
+            }
+        });
+        Files.deleteIfExists(rutaCompactando);
+        escritor = new BufferedWriter(new FileWriter(ruta.toFile(), StandardCharsets.UTF_8, true));
+        registros = pendientes.size();
+    }
+
+    /**
+     * Reproduce los registros pendientes al abrir la bitácora. Si una compactación quedó a medias se
+     * reproducen la bitácora rotada y la actual, y se escribe un CSV nuevo.
+     * Si el CSV cambió por fuera desde que se creó la bitácora, los registros se descartan.
+     * @throws IOException Si ocurre un error al leer o escribir la bitácora
+     */
+    private void recuperar() throws IOException {
+        if (Files.exists(rutaCompactando)) {
+            reproducir(leerRegistros(rutaCompactando));
+            reproducir(leerRegistros(ruta));
+            escribirSnapshot(serializar());
+            Files.deleteIfExists(rutaCompactando);
+            iniciarBitacora(identidadCsv());
+            return;
+        }
+        if (Files.exists(ruta)) {
+            String encabezado;
+            try (BufferedReader br = new BufferedReader(new FileReader(ruta.toFile(), StandardCharsets.UTF_8))) {
+                encabezado = br.readLine();
+            }
+            if ((ENCABEZADO + identidadCsv()).equals(encabezado)) {
+                List<String> pendientes = leerRegistros(ruta);
+                reproducir(pendientes);
+                escritor = new BufferedWriter(new FileWriter(ruta.toFile(), StandardCharsets.UTF_8, true));
+                registros = pendientes.size();
+                return;
+            }
+            System.out.println("Se descartó la bitácora de " + archivo + " porque el CSV cambió después de crearla.");
+        }
+        iniciarBitacora(identidadCsv());
+    }
+
+    /**
+     * Aplica registros sobre los árboles
+     * @param lineas Los registros en el orden en que se escribieron
+     */
+    private void reproducir(List<String> lineas) {
+        for (String linea : lineas) {
+            if (linea.length() < 2 || linea.charAt(1) != ',') { continue; }
+            if (linea.charAt(0) == 'A') {
+                Producto producto = ParserCsv.parsear(linea, 2, linea.length());
+                if (producto != null && arbolSku.buscar(producto.getSku()) == null && arbolNombre.buscar(producto.getNombre()) == null) {
+                    arbolSku.insertar(producto.getSku(), producto);
+                    arbolNombre.insertar(producto.getNombre(), producto);
+                    notarSku(producto.getSku());
+                }
+                continue;
+            }
+            List<String> campos = ParserCsv.campos(linea, 2, linea.length());
+            if (linea.charAt(0) == 'X') {
+                reproducirTransaccion(campos);
+                continue;
+            }
+            Producto producto = campos.isEmpty() ? null : arbolSku.buscar(campos.get(0));
+            if (producto == null) { continue; }
+            if (linea.charAt(0) == 'T' && campos.size() >= 4) {
+                Map<String, Integer> talla = new HashMap<>();
+                talla.put(campos.get(1), Integer.parseInt(campos.get(3)));
+                producto.actualizarTallas(talla);
+            } else if (linea.charAt(0) == 'D' && campos.size() >= 2) {
+                arbolSku.cambiarDescripcion(producto, campos.get(1));
+            } else if (linea.charAt(0) == 'B') {
+                new AlmacenInventario(arbolSku, arbolNombre, archivo).quitar(producto);
+            } else if (linea.charAt(0) == 'N' && campos.size() >= 2) {
+                new AlmacenInventario(arbolSku, arbolNombre, archivo).cambiarNombre(producto, campos.get(1));
+            }
+        }
+    }
+
+    /**
+     * Aplica un registro de transacción, solo si está completo (tiene todas sus líneas y termina en "fin")
+     * @param campos Los campos del registro, sin el tipo
+     */
+    private void reproducirTransaccion(List<String> campos) {
+        int cantidad;
+        try {
+            cantidad = Integer.parseInt(campos.get(0));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (campos.size() != 2 + cantidad * 4 || !FIN_TRANSACCION.equals(campos.get(campos.size() - 1))) {
+            return; /* Registro cortado por una caída a mitad de la escritura */
+        }
+        for (int i = 1; i < campos.size() - 1; i += 4) {
+            Producto producto = arbolSku.buscar(campos.get(i));
+            if (producto != null) {
+                Map<String, Integer> talla = new HashMap<>();
+                talla.put(campos.get(i + 1), Integer.parseInt(campos.get(i + 3)));
+                producto.actualizarTallas(talla);
+            }
+        }
+    }
+
+    /**
+     * Lee los registros de una bitácora, sin su encabezado
+     * @param archivoBitacora La ruta de la bitácora
+     * @return Las líneas de registro, o una lista vacía si el archivo no existe
+     * @throws IOException Si ocurre un error al leer
+     */
+    private static List<String> leerRegistros(Path archivoBitacora) throws IOException {
+        List<String> lineas = new ArrayList<>();
+        if (!Files.exists(archivoBitacora)) { return lineas; }
+        try (BufferedReader br = new BufferedReader(new FileReader(archivoBitacora.toFile(), StandardCharsets.UTF_8))) {
+            String linea = br.readLine(); /* Encabezado */
+            while ((linea = br.readLine()) != null) {
+                if (!linea.isEmpty()) { lineas.add(linea); }
+            }
+        }
+        return lineas;
+    }
+
+    /**
+     * Crea una bitácora vacía con el encabezado indicado
+     * @param identidad La identidad del CSV al que sigue, o CONTINUACION
+     * @throws IOException Si ocurre un error al escribir
+     */
+    private void iniciarBitacora(String identidad) throws IOException {
+        escritor = new BufferedWriter(new FileWriter(ruta.toFile(), StandardCharsets.UTF_8));
+        escritor.write(ENCABEZADO + identidad + "\n");
+        escritor.flush();
+        registros = 0;
+    }
+
+    /**
+     * Cierra el escritor de la bitácora si está abierto
+     * @throws IOException Si ocurre un error al cerrar
+     */
+    private void cerrarEscritor() throws IOException {
+        if (escritor != null) {
+            escritor.close();
+            escritor = null;
+        }
+    }
+
+    /**
+     * Identifica la versión del CSV por su tamaño y fecha de modificación
+     * @return La identidad, o "0 0" si el archivo no existe
+     * @throws IOException Si ocurre un error al leer los atributos
+     */
+    private String identidadCsv() throws IOException {
+        if (!Files.exists(rutaCsv)) { return "0 0"; }
+        BasicFileAttributes atributos = Files.readAttributes(rutaCsv, BasicFileAttributes.class);
+        return atributos.size() + " " + atributos.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Serializa el inventario en memoria con el mismo formato que guardarInventario
+     * @return El contenido del CSV
+     */
+    private String serializar() {
+        return Inventario.serializarInventario(arbolSku);
+    }
+
+    /**
+     * Escribe el CSV en un archivo temporal, lo fuerza a disco y lo reemplaza de forma atómica
+     * @param contenido El contenido del CSV
+     * @throws IOException Si ocurre un error al escribir
+     */
+    private void escribirSnapshot(String contenido) throws IOException {
+        EscrituraAtomica.escribir(archivo, bw -> bw.write(contenido));
+    }
+
+    /**
+     * Lleva la cuenta del mayor SKU numérico agregado
+     * @param sku El SKU agregado
+     */
+    private synchronized void notarSku(String sku) {
+        try {
+            mayorSkuAgregado = Math.max(mayorSkuAgregado, Long.parseLong(sku));
+        } catch (NumberFormatException e) {
+            /* Los SKU no numéricos no participan en el cálculo del último SKU */
+        }
+    }
+
+    /**
+     * Arma una línea de registro con el tipo y sus campos
+     * @param tipo La letra del tipo de registro
+     * @param valores Los campos del registro
+     * @return La línea
+     */
+    private static String campos(String tipo, String... valores) {
+        StringBuilder linea = new StringBuilder(tipo);
+        try {
+            for (String valor : valores) {
+                linea.append(',');
+                ParserCsv.escribirCampo(linea, valor);
+            }
+        } catch (IOException e) {
+            e.printStackTrace(); /* StringBuilder no lanza IOException */
+        }
+        return linea.toString();
+    }
+}
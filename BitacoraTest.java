@@ -0,0 +1,137 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BitacoraTest {
+    private BinaryTree arbolSku;
+    private BinaryTree arbolNombre;
+    private String archivo;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        arbolSku = new BinaryTree();
+        arbolNombre = new BinaryTree();
+        archivo = "inventario_bitacora_test.csv";
+        Files.deleteIfExists(Paths.get(archivo + ".bitacora"));
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(archivo, StandardCharsets.UTF_8))) {
+            bw.write("SKU,Nombre,Descripción,Tallas\n");
+            bw.write("1,Camiseta,Camiseta de algodón,S:10|M:5\n");
+            bw.write("2,Pantalón,Pantalón de mezclilla,S:8|M:4\n");
+        }
+        Inventario.cargarInventario(archivo, arbolSku, arbolNombre);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Bitacora.cerrar(archivo);
+        Files.deleteIfExists(Paths.get(archivo + ".bitacora"));
+        Files.deleteIfExists(Paths.get(archivo));
+    }
+
+    private Map<String, Integer> tallas(String talla, int cantidad) {
+        Map<String, Integer> tallas = new HashMap<>();
+        tallas.put(talla, cantidad);
+        return tallas;
+    }
+
+    @Test
+    public void testEdicionNoReescribeElCsvYSeReproduce() throws IOException {
+        List<String> csvOriginal = Files.readAllLines(Paths.get(archivo));
+        Bitacora.abrir(archivo, arbolSku, arbolNombre);
+        new Inventario().editarProducto(arbolSku, "1", "Camiseta mejorada", "añadir", tallas("S", 5), archivo);
+
+        assertEquals(csvOriginal, Files.readAllLines(Paths.get(archivo)), "El CSV no debería reescribirse en cada edición.");
+        assertEquals(3, Files.readAllLines(Paths.get(archivo + ".bitacora")).size()); /* Encabezado + descripción + cantidad */
+
+        /* Un nuevo inicio carga el CSV y reproduce la bitácora */
+        BinaryTree otroSku = new BinaryTree();
+        BinaryTree otroNombre = new BinaryTree();
+        Inventario.cargarInventario(archivo, otroSku, otroNombre);
+        Bitacora.abrir(archivo, otroSku, otroNombre);
+        assertEquals(15, otroSku.buscar("1").getTallas().get("S"));
+        assertEquals("Camiseta mejorada", otroSku.buscar("1").getDescripcion());
+    }
+
+    @Test
+    public void testAltaSeRegistraYCuentaParaElUltimoSku() {
+        Bitacora.abrir(archivo, arbolSku, arbolNombre);
+        arbolSku.agregarProducto(arbolSku, arbolNombre, "3", "Gorra", "Gorra deportiva", tallas("M", 2), archivo);
+        assertEquals("3", Inventario.obtenerUltimoSku(archivo));
+
+        BinaryTree otroSku = new BinaryTree();
+        BinaryTree otroNombre = new BinaryTree();
+        Inventario.cargarInventario(archivo, otroSku, otroNombre);
+        Bitacora.abrir(archivo, otroSku, otroNombre);
+        assertNotNull(otroSku.buscar("3"));
+        assertNotNull(otroNombre.buscarPorNombre("gorra"));
+    }
+
+    @Test
+    public void testCompactacionEscribeElCsv() throws IOException {
+        Bitacora bitacora = Bitacora.abrir(archivo, arbolSku, arbolNombre, 2);
+        Inventario inventario = new Inventario();
+        inventario.editarProducto(arbolSku, "1", null, "restar", tallas("S", 3), archivo);
+        inventario.editarProducto(arbolSku, "2", null, "añadir", tallas("M", 1), archivo);
+        bitacora.esperarCompactacion();
+
+        BinaryTree otroSku = new BinaryTree();
+        Inventario.cargarInventario(archivo, otroSku, new BinaryTree());
+        assertEquals(7, otroSku.buscar("1").getTallas().get("S"));
+        assertEquals(5, otroSku.buscar("2").getTallas().get("M"));
+        assertEquals(1, Files.readAllLines(Paths.get(archivo + ".bitacora")).size(), "La bitácora debería quedar vacía.");
+    }
+
+    @Test
+    public void testCerrarDejaLosCambiosEnElCsv() {
+        Bitacora.abrir(archivo, arbolSku, arbolNombre);
+        new Inventario().editarProducto(arbolSku, "2", null, "añadir", tallas("S", 2), archivo);
+        Bitacora.cerrar(archivo);
+
+        assertFalse(Files.exists(Paths.get(archivo + ".bitacora")));
+        BinaryTree otroSku = new BinaryTree();
+        Inventario.cargarInventario(archivo, otroSku, new BinaryTree());
+        assertEquals(10, otroSku.buscar("2").getTallas().get("S"));
+    }
+
+    @Test
+    public void testBitacoraDescartadaSiElCsvCambia() throws IOException {
+        Bitacora.abrir(archivo, arbolSku, arbolNombre);
+        new Inventario().editarProducto(arbolSku, "1", null, "añadir", tallas("S", 5), archivo);
+        Files.write(Paths.get(archivo), "SKU,Nombre,Descripción,Tallas\n1,Camiseta,Otra,S:1\n".getBytes("UTF-8"));
+
+        BinaryTree otroSku = new BinaryTree();
+        BinaryTree otroNombre = new BinaryTree();
+        Inventario.cargarInventario(archivo, otroSku, otroNombre);
+        Bitacora.abrir(archivo, otroSku, otroNombre);
+        assertEquals(1, otroSku.buscar("1").getTallas().get("S"));
+    }
+
+    @Test
+    public void testTransaccionSeRegistraComoUnaUnidad() throws IOException {
+        Bitacora.abrir(archivo, arbolSku, arbolNombre);
+        Transaccion pedido = new Transaccion();
+        pedido.agregar("1", "S", -2);
+        pedido.agregar("2", "M", -1);
+        assertEquals(ResultadoStock.EXITO, Inventario.aplicarTransaccion(arbolSku, pedido, archivo));
+        assertEquals(2, Files.readAllLines(Paths.get(archivo + ".bitacora")).size()); /* Encabezado + transacción */
+
+        /* Un registro cortado por una caída no se aplica a medias */
+        Files.write(Paths.get(archivo + ".bitacora"), "X,2,1,S,-8,0,2,M".getBytes("UTF-8"), StandardOpenOption.APPEND);
+
+        BinaryTree otroSku = new BinaryTree();
+        BinaryTree otroNombre = new BinaryTree();
+        Inventario.cargarInventario(archivo, otroSku, otroNombre);
+        Bitacora.abrir(archivo, otroSku, otroNombre);
+        assertEquals(8, otroSku.buscar("1").getTallas().get("S"));
+        assertEquals(3, otroSku.buscar("2").getTallas().get("M"));
+    }
+}
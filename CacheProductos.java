@@ -0,0 +1,252 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Alejandra Avilés
+ * Caché acotada de productos por clave, pensada para el conjunto pequeño de SKU que concentra las ventas.
+ * Las lecturas no toman candados (ConcurrentHashMap); solo admitir e invalidar se sincronizan.
+ *
+ * La política tiene en cuenta la frecuencia (TinyLFU): cada consulta suma en un bosquejo count-min que estima
+ * cuántas veces se pidió cada clave. Con la caché llena, un producto nuevo solo entra si se pidió más veces
+ * que la víctima, que es el menos pedido de una muestra al azar de entradas. Así un recorrido de una sola vez
+ * (un listado, una importación) no expulsa a los productos que más se venden. Los contadores se reducen a
+ * la mitad periódicamente para que la popularidad antigua se olvide.
+ *
+ * Cada invalidación avanza una generación. Quien busca en el árbol sin candados anota la generación antes
+ * de buscar y la pasa al admitir; si en medio se invalidó algo (por ejemplo, se eliminó ese producto), el
+ * resultado no se admite, así que una lectura atrasada nunca devuelve a la caché un producto eliminado.
+ */
+public class CacheProductos {
+    private static final int MUESTRA = 8; /* Candidatas a víctima que se comparan en cada expulsión */
+
+    private final int capacidad;
+    private final ConcurrentHashMap<String, Entrada> entradas;
+    private final String[] claves; /* Claves presentes, para elegir víctimas al azar */
+    private int ocupadas;
+    private volatile long generacion; /* Avanza con cada invalidación, ver admitir(clave, producto, generacion) */
+    private final Bosquejo frecuencias;
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+
+    /**
+     * Entrada de la caché; la posición en el arreglo de claves solo se usa con el monitor tomado
+     */
+    private static final class Entrada {
+        final Producto producto;
+        int posicion;
+
+        Entrada(Producto producto, int posicion) {
+            this.producto = producto;
+            this.posicion = posicion;
+        }
+    }
+
+    /**
+     * Constructor de la caché
+     * @param capacidad La cantidad máxima de productos guardados
+     */
+    public CacheProductos(int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad de la caché debe ser positiva: " + capacidad);
+        }
+        this.capacidad = capacidad;
+        this.entradas = new ConcurrentHashMap<>(capacidad * 2);
+        this.claves = new String[capacidad];
+        this.frecuencias = new Bosquejo(capacidad);
+    }
+
+    /**
+     * Busca un producto en la caché y anota la consulta en el bosquejo de frecuencias
+     * @param clave La clave del producto
+     * @return El producto, o null si no está en la caché
+     */
+    public Producto obtener(String clave) {
+        frecuencias.incrementar(clave.hashCode());
+        Entrada entrada = entradas.get(clave);
+        if (entrada == null) {
+            fallos.increment();
+            return null;
+        }
+        aciertos.increment();
+        return entrada.producto;
+    }
+
+    /**
+     * Ofrece un producto recién buscado en el árbol. Si la caché está llena, solo entra si su frecuencia
+     * estimada supera a la de la víctima elegida
+     * @param clave La clave del producto
+     * @param producto El producto encontrado
+     */
+    public synchronized void admitir(String clave, Producto producto) {
+        Entrada existente = entradas.get(clave);
+        if (existente != null) {
+            if (existente.producto != producto) {
+                entradas.put(clave, new Entrada(producto, existente.posicion));
+            }
+            return;
+        }
+        if (ocupadas == capacidad) {
+            int victima = elegirVictima();
+            if (frecuencias.estimar(clave.hashCode()) <= frecuencias.estimar(claves[victima].hashCode())) {
+                return; /* El candidato se pide menos que la víctima: no vale la pena reemplazarla */
+            }
+            quitar(victima);
+        }
+        claves[ocupadas] = clave;
+        entradas.put(clave, new Entrada(producto, ocupadas));
+        ocupadas++;
+    }
+
+    /**
+     * Ofrece un producto buscado sin candados: solo se admite si nada se invalidó desde que empezó la búsqueda
+     * @param clave La clave del producto
+     * @param producto El producto encontrado
+     * @param generacionLeida El valor de generacion() leído antes de buscar en el árbol
+     */
+    public synchronized void admitir(String clave, Producto producto, long generacionLeida) {
+        if (generacion == generacionLeida) {
+            admitir(clave, producto);
+        }
+    }
+
+    /**
+     * Generación actual de la caché, que se lee antes de buscar un producto que después se va a admitir
+     * @return La generación
+     */
+    public long generacion() {
+        return generacion;
+    }
+
+    /**
+     * Quita una clave de la caché; se llama cuando el producto se agrega, edita o elimina
+     * @param clave La clave del producto
+     */
+    public synchronized void invalidar(String clave) {
+        generacion++;
+        Entrada entrada = entradas.get(clave);
+        if (entrada != null) {
+            quitar(entrada.posicion);
+        }
+    }
+
+    /**
+     * Vacía la caché (las frecuencias se conservan)
+     */
+    public synchronized void limpiar() {
+        generacion++;
+        entradas.clear();
+        for (int i = 0; i < ocupadas; i++) {
+            claves[i] = null;
+        }
+        ocupadas = 0;
+    }
+
+    /**
+     * Estadísticas de uso
+     * @param aciertos Consultas que encontraron el producto en la caché
+     * @param fallos Consultas que tuvieron que ir al árbol
+     * @param tamano Cantidad de productos guardados
+     */
+    public long aciertos() { return aciertos.sum(); }
+    public long fallos() { return fallos.sum(); }
+    public int tamano() { return entradas.size(); }
+
+    /**
+     * Proporción de consultas resueltas por la caché
+     * @return Un valor entre 0 y 1, o 0 si no hubo consultas
+     */
+    public double tasaAciertos() {
+        long aciertos = aciertos(), total = aciertos + fallos();
+        return total == 0 ? 0 : (double) aciertos / total;
+    }
+
+    /**
+     * Elige entre una muestra de entradas la de menor frecuencia estimada
+     * @return La posición de la víctima en el arreglo de claves
+     */
+    private int elegirVictima() {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        int victima = azar.nextInt(ocupadas);
+        int menor = frecuencias.estimar(claves[victima].hashCode());
+        for (int i = 1; i < MUESTRA; i++) {
+            int posicion = azar.nextInt(ocupadas);
+            int frecuencia = frecuencias.estimar(claves[posicion].hashCode());
+            if (frecuencia < menor) {
+                menor = frecuencia;
+                victima = posicion;
+            }
+        }
+        return victima;
+    }
+
+    /**
+     * Quita la entrada de una posición, moviendo la última a su lugar
+     * @param posicion La posición en el arreglo de claves
+     */
+    private void quitar(int posicion) {
+        entradas.remove(claves[posicion]);
+        ocupadas--;
+        if (posicion != ocupadas) {
+            claves[posicion] = claves[ocupadas];
+            entradas.get(claves[posicion]).posicion = posicion;
+        }
+        claves[ocupadas] = null;
+    }
+
+    /**
+     * Bosquejo count-min: cuatro filas de contadores de 4 bits (guardados en bytes, con tope 15).
+     * La estimación es el menor de los cuatro contadores de la clave, que nunca es menor que la frecuencia
+     * real. Los incrementos concurrentes no se sincronizan; perder alguno solo afecta a una estimación.
+     */
+    private static final class Bosquejo {
+        private static final int FILAS = 4;
+        private static final int TOPE = 15;
+        private static final int[] SEMILLAS = {0x97CB3127, 0x0B4F2AF3, 0x5CE3E96D, 0x2A3C4B1D};
+
+        private final byte[] contadores;
+        private final int mascara;
+        private final int periodo; /* Incrementos entre cada reducción a la mitad */
+        private int incrementos;
+
+        Bosquejo(int capacidad) {
+            int ancho = Integer.highestOneBit(Math.max(64, capacidad * 4) - 1) << 1;
+            this.contadores = new byte[FILAS * ancho];
+            this.mascara = ancho - 1;
+            this.periodo = capacidad * 10;
+        }
+
+        void incrementar(int hash) {
+            for (int fila = 0; fila < FILAS; fila++) {
+                int i = indice(hash, fila);
+                if (contadores[i] < TOPE) {
+                    contadores[i]++;
+                }
+            }
+            if (++incrementos >= periodo) {
+                envejecer();
+            }
+        }
+
+        int estimar(int hash) {
+            int menor = TOPE;
+            for (int fila = 0; fila < FILAS; fila++) {
+                menor = Math.min(menor, contadores[indice(hash, fila)]);
+            }
+            return menor;
+        }
+
+        private void envejecer() {
+            incrementos = 0;
+            for (int i = 0; i < contadores.length; i++) {
+                contadores[i] >>= 1;
+            }
+        }
+
+        private int indice(int hash, int fila) {
+            int h = (hash ^ SEMILLAS[fila]) * 0x9E3779B9;
+            h ^= h >>> 16;
+            return fila * (mascara + 1) + (h & mascara);
+        }
+    }
+}
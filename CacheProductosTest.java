@@ -0,0 +1,98 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+public class CacheProductosTest {
+    private static final String ARCHIVO = "inventario_cache_test.csv";
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(Paths.get(ARCHIVO));
+    }
+
+    private static Producto producto(String sku) {
+        return new Producto(sku, "Producto " + sku, "Generado", Map.of("M", 1));
+    }
+
+    @Test
+    public void testTamanoAcotadoYEstadisticas() {
+        CacheProductos cache = new CacheProductos(10);
+        for (int i = 0; i < 100; i++) {
+            String sku = String.valueOf(i);
+            if (cache.obtener(sku) == null) {
+                cache.admitir(sku, producto(sku));
+            }
+        }
+        assertTrue(cache.tamano() <= 10);
+        assertEquals(100, cache.fallos());
+        assertEquals(0, cache.aciertos());
+    }
+
+    @Test
+    public void testLosMasPedidosSobrevivenAUnRecorrido() {
+        CacheProductos cache = new CacheProductos(50);
+        for (int vuelta = 0; vuelta < 20; vuelta++) {
+            for (int i = 0; i < 50; i++) {
+                String sku = "caliente" + i;
+                if (cache.obtener(sku) == null) {
+                    cache.admitir(sku, producto(sku));
+                }
+            }
+        }
+        for (int i = 0; i < 5_000; i++) { // Un listado que pide cada producto una sola vez, mientras se sigue vendiendo
+            String sku = "frio" + i;
+            if (cache.obtener(sku) == null) {
+                cache.admitir(sku, producto(sku));
+            }
+            String caliente = "caliente" + (i % 50);
+            if (cache.obtener(caliente) == null) {
+                cache.admitir(caliente, producto(caliente));
+            }
+        }
+        int presentes = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.obtener("caliente" + i) != null) { presentes++; }
+        }
+        assertTrue(presentes >= 45, "Solo quedaron " + presentes + " de 50 productos frecuentes.");
+    }
+
+    @Test
+    public void testBuscarUsaLaCacheYSeInvalidaAlEditar() throws IOException {
+        Files.copy(Paths.get("inventario_ropa_deportiva_30.csv"), Paths.get(ARCHIVO));
+        BinaryTree arbolSku = new BinaryTree();
+        BinaryTree arbolNombre = new BinaryTree();
+        Inventario.cargarInventario(ARCHIVO, arbolSku, arbolNombre);
+        arbolSku.activarCache(16);
+
+        Producto primero = arbolSku.buscar("001");
+        assertSame(primero, arbolSku.buscar("001"));
+        assertEquals(1, arbolSku.getCache().aciertos());
+        assertEquals(1, arbolSku.getCache().tamano());
+
+        Map<String, Integer> cantidades = new HashMap<>();
+        cantidades.put("s", 1);
+        new Inventario().editarProducto(arbolSku, "001", null, "añadir", cantidades, ARCHIVO);
+        assertEquals(0, arbolSku.getCache().tamano(), "editarProducto debería invalidar la entrada.");
+
+        arbolSku.buscar("999");
+        arbolSku.agregarProducto(arbolSku, arbolNombre, "999", "Nuevo", "Nuevo producto", Map.of("m", 2), ARCHIVO);
+        assertEquals("Nuevo", arbolSku.buscar("999").getNombre());
+    }
+
+    @Test
+    public void testLecturaAtrasadaNoDevuelveUnProductoEliminado() {
+        CacheProductos cache = new CacheProductos(10);
+        Producto producto = producto("1");
+        long generacion = cache.generacion(); /* Un lector anota la generación y encuentra el producto */
+        cache.invalidar("1"); /* Mientras tanto se elimina */
+        cache.admitir("1", producto, generacion);
+        assertNull(cache.obtener("1"));
+        cache.admitir("1", producto, cache.generacion());
+        assertSame(producto, cache.obtener("1"));
+    }
+}
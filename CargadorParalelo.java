@@ -0,0 +1,187 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * @author Alejandra Avilés
+ * Cargador de inventario que mapea el CSV en memoria, lo divide en bloques alineados a líneas
+ * y procesa los bloques en paralelo sobre un ForkJoinPool.
+ * Los productos de todos los bloques se juntan en el orden del archivo y se cargan en bloque
+ * en los árboles de SKU y nombre, igual que Inventario.cargarInventario.
+ */
+public class CargadorParalelo {
+    private static final long TAMANO_MAXIMO_BLOQUE = 64L * 1024 * 1024; /* Limita la memoria usada por cada bloque decodificado */
+    private static final long TAMANO_MINIMO_BLOQUE = 1024L * 1024;
+
+    private CargadorParalelo() { }
+
+    /**
+     * Carga el inventario en paralelo usando el pool común de ForkJoin
+     * @param archivo La ruta del archivo CSV
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     * @param arbolNombre El árbol binario que almacena productos por nombre
+     */
+    public static void cargarInventario(String archivo, BinaryTree arbolSku, BinaryTree arbolNombre) {
+        cargarInventario(archivo, arbolSku, arbolNombre, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Carga el inventario en paralelo. Las líneas inválidas se reportan en el orden del archivo.
+     * @param archivo La ruta del archivo CSV
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     * @param arbolNombre El árbol binario que almacena productos por nombre
+     * @param pool El pool en el que se procesan los bloques
+     */
+    public static void cargarInventario(String archivo, BinaryTree arbolSku, BinaryTree arbolNombre, ForkJoinPool pool) {
+        List<Producto> productos = new ArrayList<>();
+        try (FileChannel canal = FileChannel.open(Paths.get(archivo), StandardOpenOption.READ)) {
+            long[] limites = calcularLimites(canal, pool.getParallelism());
+            List<Bloque> bloques = pool.invoke(new TareaBloques(canal, limites, 0, limites.length - 1));
+            for (Bloque bloque : bloques) {
+                for (String linea : bloque.invalidas) {
+                    System.out.println("Línea inválida: " + linea);
+                }
+                productos.addAll(bloque.productos);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            e.printStackTrace();
+        }
+        Inventario.cargarEnArbol(arbolSku, productos, Producto::getSku);
+        Inventario.cargarEnArbol(arbolNombre, productos, Producto::getNombre);
+        arbolNombre.indexarNombres();
+    }
+
+    /**
+     * Divide el archivo en bloques que empiezan justo después de un salto de línea.
+     * El primer bloque empieza después del encabezado.
+     * @param canal El canal del archivo
+     * @param paralelismo La cantidad de hilos disponibles
+     * @return Las posiciones de inicio de cada bloque seguidas por el tamaño del archivo
+     * @throws IOException Si ocurre un error al leer el archivo
+     */
+    private static long[] calcularLimites(FileChannel canal, int paralelismo) throws IOException {
+        long tamano = canal.size();
+        long inicio = siguienteLinea(canal, 0);
+        long restante = tamano - inicio;
+        long cantidad = Math.max(1, Math.min(paralelismo * 4L, restante / TAMANO_MINIMO_BLOQUE));
+        cantidad = Math.max(cantidad, (restante + TAMANO_MAXIMO_BLOQUE - 1) / TAMANO_MAXIMO_BLOQUE);
+        List<Long> limites = new ArrayList<>();
+        limites.add(inicio);
+        for (long i = 1; i < cantidad; i++) {
+            long corte = siguienteLinea(canal, inicio + restante * i / cantidad);
+            if (corte > limites.get(limites.size() - 1) && corte < tamano) {
+                limites.add(corte);
+            }
+        }
+        limites.add(tamano);
+        return limites.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Busca el inicio de la línea que sigue a una posición
+     * @param canal El canal del archivo
+     * @param posicion La posición desde la que se busca el salto de línea
+     * @return La posición siguiente al primer salto de línea, o el tamaño del archivo si no hay más
+     * @throws IOException Si ocurre un error al leer el archivo
+     */
+    private static long siguienteLinea(FileChannel canal, long posicion) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long actual = posicion;
+        while (true) {
+            buffer.clear();
+            int leidos = canal.read(buffer, actual);
+            if (leidos <= 0) { return canal.size(); }
+            for (int i = 0; i < leidos; i++) {
+                if (buffer.get(i) == '\n') { return actual + i + 1; }
+            }
+            actual += leidos;
+        }
+    }
+
+    /**
+     * Resultado de procesar un bloque: sus productos y sus líneas inválidas, en orden
+     */
+    private static class Bloque {
+        final List<Producto> productos = new ArrayList<>();
+        final List<String> invalidas = new ArrayList<>();
+    }
+
+    /**
+     * Tarea que divide recursivamente el rango de bloques y procesa cada bloque por separado
+     */
+    private static class TareaBloques extends RecursiveTask<List<Bloque>> {
+        private static final long serialVersionUID = 1L;
+        private final FileChannel canal;
+        private final long[] limites;
+        private final int desde, hasta;
+
+        TareaBloques(FileChannel canal, long[] limites, int desde, int hasta) {
+            this.canal = canal;
+            this.limites = limites;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected List<Bloque> compute() {
+            if (hasta - desde <= 1) {
+                List<Bloque> resultado = new ArrayList<>();
+                if (hasta > desde) {
+                    resultado.add(procesar(limites[desde], limites[hasta]));
+                }
+                return resultado;
+            }
+            int medio = (desde + hasta) >>> 1;
+            TareaBloques izquierda = new TareaBloques(canal, limites, desde, medio);
+            TareaBloques derecha = new TareaBloques(canal, limites, medio, hasta);
+            izquierda.fork();
+            List<Bloque> resultado = new ArrayList<>(derecha.compute());
+            resultado.addAll(0, izquierda.join());
+            return resultado;
+        }
+
+        /**
+         * Mapea y procesa las líneas de un bloque
+         * @param inicio Posición inicial del bloque (inicio de una línea)
+         * @param fin Posición final del bloque (exclusiva)
+         * @return El bloque procesado
+         */
+        private Bloque procesar(long inicio, long fin) {
+            Bloque bloque = new Bloque();
+            String texto;
+            try {
+                MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fin - inicio);
+                texto = StandardCharsets.UTF_8.decode(mapa).toString();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            int posicion = 0;
+            while (posicion < texto.length()) {
+                int salto = texto.indexOf('\n', posicion);
+                int finLinea = salto < 0 ? texto.length() : salto;
+                int siguiente = salto < 0 ? texto.length() : salto + 1;
+                if (finLinea > posicion && texto.charAt(finLinea - 1) == '\r') { finLinea--; }
+                int inicioLinea = posicion;
+                posicion = siguiente;
+                if (ParserCsv.esBlanco(texto, inicioLinea, finLinea)) { continue; }
+                /* Se procesa directamente sobre el texto del bloque, sin crear una cadena por línea */
+                Producto producto = ParserCsv.parsear(texto, inicioLinea, finLinea);
+                if (producto == null) {
+                    bloque.invalidas.add(texto.substring(inicioLinea, finLinea));
+                } else {
+                    bloque.productos.add(producto);
+                }
+            }
+            return bloque;
+        }
+    }
+}
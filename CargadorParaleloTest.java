@@ -0,0 +1,85 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+public class CargadorParaleloTest {
+    private static final int LINEAS = 5_000;
+    private String archivo;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        archivo = "inventario_paralelo_test.csv";
+        /* Unos 3 MB con saltos CRLF: el archivo se parte en dos bloques y, como casi todo el texto de
+           cada línea está en la descripción entre comillas, el corte cae dentro de un campo entre comillas */
+        String relleno = "algodón, poliéster, \"\"dry-fit\"\", ".repeat(16);
+        StringBuilder csv = new StringBuilder("SKU,Nombre,Descripción,Cantidad por talla\r\n");
+        for (int i = 0; i < LINEAS; i++) {
+            if (i % 997 == 0) {
+                csv.append("Línea sin campos ").append(i).append("\r\n");
+            }
+            if (i % 1_500 == 0) {
+                csv.append("\r\n");
+            }
+            csv.append(String.format("%05d", i)).append(",\"Camiseta, modelo ").append(i).append("\",\"")
+                .append(relleno).append(i).append("\",S:").append(i % 7).append("|XL:").append(i).append("\r\n");
+        }
+        Files.write(Paths.get(archivo), csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(Paths.get(archivo));
+    }
+
+    @Test
+    public void testCargaLoMismoQueElCargadorSecuencial() {
+        BinaryTree secuencialSku = new BinaryTree();
+        BinaryTree secuencialNombre = new BinaryTree();
+        String invalidasSecuencial = capturarSalida(() -> Inventario.cargarInventario(archivo, secuencialSku, secuencialNombre));
+        BinaryTree paraleloSku = new BinaryTree();
+        BinaryTree paraleloNombre = new BinaryTree();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        String invalidasParalelo;
+        try {
+            invalidasParalelo = capturarSalida(() -> CargadorParalelo.cargarInventario(archivo, paraleloSku, paraleloNombre, pool));
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(LINEAS, paraleloSku.tamano());
+        assertEquals(LINEAS, paraleloNombre.tamano());
+        assertEquals(Inventario.serializarInventario(secuencialSku), Inventario.serializarInventario(paraleloSku));
+        assertEquals(invalidasSecuencial, invalidasParalelo);
+        assertTrue(invalidasParalelo.contains("Línea inválida: Línea sin campos 4985"));
+        Producto producto = paraleloNombre.buscarPorNombre("camiseta, modelo 2500");
+        assertNotNull(producto);
+        assertEquals("02500", producto.getSku());
+        assertTrue(producto.getDescripcion().startsWith("algodón, poliéster, \"dry-fit\", "));
+        assertEquals(2500, producto.cantidadDe("XL"));
+    }
+
+    /**
+     * Ejecuta una carga y devuelve lo que imprimió en la consola (las líneas inválidas)
+     * @param carga La carga
+     * @return Lo impreso
+     */
+    private static String capturarSalida(Runnable carga) {
+        PrintStream original = System.out;
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(salida, true, StandardCharsets.UTF_8));
+        try {
+            carga.run();
+        } finally {
+            System.setOut(original);
+        }
+        return salida.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author Alejandra Avilés
+ * Diccionario global de etiquetas de talla (S, M, L, XL, 38, 40...).
+ * Cada etiqueta distinta se registra una sola vez y recibe un id pequeño, de modo que los productos
+ * guardan sus tallas como arreglos de ids y cantidades en lugar de un mapa por producto.
+ */
+public final class DiccionarioTallas {
+    private static final ConcurrentHashMap<String, Short> IDS = new ConcurrentHashMap<>();
+    private static volatile String[] etiquetas = new String[16];
+    private static int cantidad;
+
+    private DiccionarioTallas() { }
+
+    /**
+     * Obtiene el id de una talla, registrándola si es nueva
+     * @param talla La etiqueta de la talla
+     * @return El id de la talla
+     */
+    public static short id(String talla) {
+        Short id = IDS.get(talla);
+        return id != null ? id : registrar(talla);
+    }
+
+    /**
+     * Obtiene el id de una talla sin registrarla
+     * @param talla La etiqueta de la talla
+     * @return El id de la talla, o -1 si nunca se registró
+     */
+    public static int buscar(Object talla) {
+        Short id = IDS.get(talla);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Obtiene la etiqueta de un id
+     * @param id El id de la talla
+     * @return La etiqueta registrada con ese id
+     */
+    public static String etiqueta(int id) {
+        return etiquetas[id];
+    }
+
+    /**
+     * Cantidad de tallas registradas
+     * @return El número de etiquetas distintas
+     */
+    public static synchronized int cantidad() {
+        return cantidad;
+    }
+
+    /**
+     * Registra una talla nueva; se sincroniza para que dos hilos no le den ids distintos
+     * @param talla La etiqueta de la talla
+     * @return El id asignado
+     */
+    private static synchronized short registrar(String talla) {
+        Short existente = IDS.get(talla);
+        if (existente != null) { return existente; }
+        if (cantidad > Short.MAX_VALUE) {
+            throw new IllegalStateException("Se superó el máximo de tallas distintas: " + Short.MAX_VALUE);
+        }
+        if (cantidad == etiquetas.length) {
+            etiquetas = Arrays.copyOf(etiquetas, cantidad * 2);
+        }
+        short id = (short) cantidad;
+        etiquetas[id] = talla;
+        cantidad++;
+        IDS.put(talla, id); /* Se publica al final, cuando la etiqueta ya está en el arreglo */
+        return id;
+    }
+}
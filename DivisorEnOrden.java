@@ -0,0 +1,105 @@
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * @author Alejandra Avilés
+ * Spliterator que recorre un árbol en orden y se puede dividir para usarse con parallelStream.
+ * La pila guarda nodos pendientes: cada nodo se entrega y luego se recorre su subárbol derecho.
+ * Al dividir se entrega el subárbol izquierdo pendiente del nodo más bajo de la pila,
+ * por lo que cada parte conserva el orden y no se copia ningún producto.
+ */
+public class DivisorEnOrden implements Spliterator<Producto> {
+    private final Nodo[] pila;
+    private int tope;
+    private long estimado;
+
+    /**
+     * Constructor del spliterator sobre un árbol completo
+     * @param raiz La raíz del árbol a recorrer
+     * @param altura La altura del árbol, que limita el tamaño de la pila
+     * @param tamano La cantidad de nodos del árbol
+     */
+    public DivisorEnOrden(Nodo raiz, int altura, long tamano) {
+        this(new Nodo[altura], 0, tamano);
+        apilarIzquierdos(raiz);
+    }
+
+    /**
+     * Constructor usado al dividir, a partir de una pila ya preparada
+     * @param pila Los nodos pendientes
+     * @param tope La cantidad de nodos válidos en la pila
+     * @param estimado La cantidad aproximada de productos por recorrer
+     */
+    private DivisorEnOrden(Nodo[] pila, int tope, long estimado) {
+        this.pila = pila;
+        this.tope = tope;
+        this.estimado = estimado;
+    }
+
+    /**
+     * Apila un nodo y toda su rama izquierda
+     * @param nodo El nodo desde el que se desciende
+     */
+    private void apilarIzquierdos(Nodo nodo) {
+        while (nodo != null) {
+            pila[tope++] = nodo;
+            nodo = nodo.izquierdo;
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Producto> accion) {
+        if (tope == 0) { return false; }
+        Nodo nodo = pila[--tope];
+        apilarIzquierdos(nodo.derecho);
+        if (estimado > 0) { estimado--; }
+        accion.accept(nodo.valor);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Producto> accion) {
+        while (tope > 0) {
+            Nodo nodo = pila[--tope];
+            apilarIzquierdos(nodo.derecho);
+            accion.accept(nodo.valor);
+        }
+        estimado = 0;
+    }
+
+    @Override
+    public Spliterator<Producto> trySplit() {
+        if (tope >= 2) {
+            /* Los nodos sobre el fondo son el subárbol izquierdo pendiente: se entregan como prefijo */
+            Nodo[] prefijo = new Nodo[pila.length];
+            System.arraycopy(pila, 1, prefijo, 0, tope - 1);
+            int topePrefijo = tope - 1;
+            for (int i = 1; i < tope; i++) { pila[i] = null; }
+            tope = 1;
+            long mitad = estimado / 2;
+            estimado -= mitad;
+            return new DivisorEnOrden(prefijo, topePrefijo, mitad);
+        }
+        if (tope == 1 && pila[0].derecho != null) {
+            /* Solo queda un nodo y su subárbol derecho: el nodo se entrega solo y aquí queda el subárbol */
+            Nodo nodo = pila[0];
+            pila[0] = null;
+            tope = 0;
+            apilarIzquierdos(nodo.derecho);
+            if (estimado > 0) { estimado--; }
+            return Spliterators.spliterator(new Object[] { nodo.valor }, characteristics());
+        }
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return estimado;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL;
+    }
+}
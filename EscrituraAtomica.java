@@ -0,0 +1,114 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @author Alejandra Avilés
+ * Reemplazo atómico de archivos: el contenido se escribe en un temporal junto al destino,
+ * se fuerza a disco (fsync) y luego se renombra sobre el destino.
+ * Si el programa se cae a mitad de la escritura, el archivo original queda intacto.
+ * El texto se escribe en UTF-8, la misma codificación con la que leen el CSV todos los cargadores.
+ */
+public final class EscrituraAtomica {
+
+    /**
+     * Contenido que se escribe en el archivo temporal
+     */
+    public interface Contenido {
+        void escribir(BufferedWriter bw) throws IOException;
+    }
+
+    /**
+     * Contenido binario que se escribe en el archivo temporal
+     */
+    public interface ContenidoBinario {
+        void escribir(DataOutputStream salida) throws IOException;
+    }
+
+    /**
+     * Vuelca el contenido, de texto o binario, sobre el flujo del temporal
+     */
+    private interface Volcado {
+        void volcar(OutputStream salida) throws IOException;
+    }
+
+    private EscrituraAtomica() { }
+
+    /**
+     * Reemplaza un archivo de texto de forma atómica
+     * @param archivo La ruta del archivo destino
+     * @param contenido Lo que se escribe en el archivo
+     * @throws IOException Si ocurre un error al escribir o renombrar; en ese caso el destino no cambia
+     */
+    public static void escribir(String archivo, Contenido contenido) throws IOException {
+        reemplazar(archivo, salida -> {
+            BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 1 << 16);
+            contenido.escribir(bw);
+            bw.flush();
+        });
+    }
+
+    /**
+     * Reemplaza un archivo binario de forma atómica (por ejemplo, la fotografía de SnapshotBinario)
+     * @param archivo La ruta del archivo destino
+     * @param contenido Lo que se escribe en el archivo
+     * @throws IOException Si ocurre un error al escribir o renombrar; en ese caso el destino no cambia
+     */
+    public static void escribirBinario(String archivo, ContenidoBinario contenido) throws IOException {
+        reemplazar(archivo, salida -> {
+            DataOutputStream datos = new DataOutputStream(new BufferedOutputStream(salida, 1 << 16));
+            contenido.escribir(datos);
+            datos.flush();
+        });
+    }
+
+    /**
+     * Escribe el temporal, lo fuerza a disco y lo renombra sobre el destino
+     * @param archivo La ruta del archivo destino
+     * @param volcado Cómo se escribe el contenido
+     * @throws IOException Si ocurre un error al escribir o renombrar; en ese caso el destino no cambia
+     */
+    private static void reemplazar(String archivo, Volcado volcado) throws IOException {
+        Path destino = Paths.get(archivo).toAbsolutePath();
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (FileOutputStream salida = new FileOutputStream(temporal.toFile())) {
+            volcado.volcar(salida);
+            salida.getChannel().force(true); /* El contenido llega a disco antes de publicarse con el renombre */
+        } catch (IOException e) {
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+        try {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+        sincronizarDirectorio(destino.getParent());
+    }
+
+    /**
+     * Fuerza a disco la entrada del directorio para que el renombre sobreviva a un corte de energía.
+     * Algunos sistemas no permiten abrir directorios; en ese caso se omite.
+     * @param directorio El directorio que contiene el archivo
+     */
+    private static void sincronizarDirectorio(Path directorio) {
+        if (directorio == null) { return; }
+        try (FileChannel canal = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            /* No soportado en esta plataforma (por ejemplo, Windows) */
+        }
+    }
+}
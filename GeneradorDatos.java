@@ -0,0 +1,85 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Alejandra Avilés
+ * Genera inventarios grandes para pruebas de rendimiento a partir de un CSV pequeño,
+ * repitiendo sus filas con SKU y nombre únicos. También genera claves en orden o al azar para BenchmarkSuite.
+ */
+public class GeneradorDatos {
+
+    private GeneradorDatos() { }
+
+    /**
+     * Escala un CSV de inventario hasta la cantidad de filas indicada, con SKU ascendentes
+     * @param origen El CSV base (por ejemplo, inventario_ropa_deportiva_100.csv)
+     * @param destino La ruta del CSV a generar
+     * @param filas La cantidad de productos del archivo generado
+     * @throws IOException Si ocurre un error al leer o escribir
+     */
+    public static void escalar(String origen, String destino, int filas) throws IOException {
+        List<String[]> base = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(origen, StandardCharsets.UTF_8))) {
+            br.readLine(); /* Encabezado */
+            String linea;
+            while ((linea = br.readLine()) != null) {
+                String[] partes = linea.split(",");
+                if (partes.length >= 4) { base.add(partes); }
+            }
+        }
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(destino, StandardCharsets.UTF_8), 1 << 16)) {
+            bw.write("SKU,Nombre,Descripción,Tallas\n");
+            for (int i = 0; i < filas; i++) {
+                String[] fila = base.get(i % base.size());
+                bw.write(String.format("%08d", i + 1));
+                bw.write(',');
+                bw.write(fila[1] + " " + (i + 1));
+                bw.write(',');
+                bw.write(fila[2]);
+                bw.write(',');
+                bw.write(fila[3]);
+                bw.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Genera SKU únicos con el mismo formato que escalar (ocho dígitos)
+     * @param cantidad La cantidad de claves
+     * @param aleatorias true para devolverlas en orden aleatorio, false para orden ascendente
+     * @param semilla La semilla del orden aleatorio, para que cada corrida use los mismos datos
+     * @return Las claves
+     */
+    public static String[] claves(int cantidad, boolean aleatorias, long semilla) {
+        String[] claves = new String[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            claves[i] = String.format("%08d", i + 1);
+        }
+        if (aleatorias) {
+            mezclar(claves, semilla);
+        }
+        return claves;
+    }
+
+    /**
+     * Mezcla un arreglo (Fisher-Yates)
+     * @param valores El arreglo a mezclar
+     * @param semilla La semilla del generador
+     */
+    public static void mezclar(Object[] valores, long semilla) {
+        Random azar = new Random(semilla);
+        for (int i = valores.length - 1; i > 0; i--) {
+            int j = azar.nextInt(i + 1);
+            Object temporal = valores[i];
+            valores[i] = valores[j];
+            valores[j] = temporal;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Alejandra Avilés
+ * Histograma de latencias con cubetas logarítmicas, al estilo de HdrHistogram.
+ * Cada potencia de dos se divide en 16 cubetas, así que cualquier valor se guarda con un error relativo
+ * de a lo sumo 1/16 (6.25 %) usando un arreglo fijo de 960 contadores, sin importar cuántos valores se registren.
+ * Registrar un valor cuesta un par de operaciones de bits y un incremento atómico; no reserva memoria.
+ */
+public class HistogramaLatencia {
+    private static final int BITS_SUBCUBETA = 4;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int LINEALES = 2 * SUBCUBETAS; /* Los valores menores a 32 tienen cubeta propia */
+    private static final int CUBETAS = LINEALES + (63 - 5) * SUBCUBETAS;
+
+    private final AtomicLongArray conteos = new AtomicLongArray(CUBETAS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Registra un valor (por ejemplo, una duración en nanosegundos)
+     * @param valor El valor; los negativos se registran como 0
+     */
+    public void registrar(long valor) {
+        if (valor < 0) { valor = 0; }
+        conteos.incrementAndGet(cubeta(valor));
+        total.increment();
+        suma.add(valor);
+        maximo.accumulate(valor);
+    }
+
+    /**
+     * Cantidad de valores registrados
+     * @return El total
+     */
+    public long cantidad() {
+        return total.sum();
+    }
+
+    /**
+     * Promedio exacto de los valores registrados
+     * @return El promedio, o 0 si no hay valores
+     */
+    public double promedio() {
+        long cantidad = total.sum();
+        return cantidad == 0 ? 0 : (double) suma.sum() / cantidad;
+    }
+
+    /**
+     * Mayor valor registrado (exacto)
+     * @return El máximo, o 0 si no hay valores
+     */
+    public long maximo() {
+        return maximo.get();
+    }
+
+    /**
+     * Valor bajo el cual cae el porcentaje indicado de los registros
+     * @param percentil El percentil, entre 0 y 100 (por ejemplo 99.9)
+     * @return El límite superior de la cubeta que contiene ese percentil, o 0 si no hay valores
+     */
+    public long percentil(double percentil) {
+        long cantidad = total.sum();
+        if (cantidad == 0) { return 0; }
+        long objetivo = Math.max(1, (long) Math.ceil(cantidad * percentil / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += conteos.get(i);
+            if (acumulado >= objetivo) {
+                return Math.min(limiteSuperior(i), maximo());
+            }
+        }
+        return maximo();
+    }
+
+    /**
+     * Deja el histograma en cero
+     */
+    public void reiniciar() {
+        for (int i = 0; i < CUBETAS; i++) {
+            conteos.set(i, 0);
+        }
+        total.reset();
+        suma.reset();
+        maximo.reset();
+    }
+
+    /**
+     * Cubeta de un valor: los menores a 32 son lineales; el resto se ubica por su bit más alto
+     * (la potencia de dos) y los 4 bits siguientes (la subcubeta)
+     * @param valor El valor, no negativo
+     * @return La posición de la cubeta
+     */
+    static int cubeta(long valor) {
+        if (valor < LINEALES) { return (int) valor; }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int desplazamiento = exponente - BITS_SUBCUBETA;
+        return LINEALES + (exponente - 5) * SUBCUBETAS + (int) ((valor >>> desplazamiento) & (SUBCUBETAS - 1));
+    }
+
+    /**
+     * Mayor valor que cae en una cubeta
+     * @param cubeta La posición de la cubeta
+     * @return El límite superior (inclusivo)
+     */
+    static long limiteSuperior(int cubeta) {
+        if (cubeta < LINEALES) { return cubeta; }
+        int exponente = (cubeta - LINEALES) / SUBCUBETAS + 5;
+        int subcubeta = (cubeta - LINEALES) % SUBCUBETAS;
+        int desplazamiento = exponente - BITS_SUBCUBETA;
+        return ((long) (SUBCUBETAS + subcubeta + 1) << desplazamiento) - 1;
+    }
+}
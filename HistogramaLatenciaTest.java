@@ -0,0 +1,42 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class HistogramaLatenciaTest {
+
+    @Test
+    public void testPercentilesDentroDelErrorRelativo() {
+        HistogramaLatencia histograma = new HistogramaLatencia();
+        for (long valor = 1; valor <= 100_000; valor++) {
+            histograma.registrar(valor * 1000); // De 1 µs a 100 ms
+        }
+        assertEquals(100_000, histograma.cantidad());
+        assertEquals(100_000_000, histograma.maximo());
+        assertEquals(50_000_500, histograma.promedio(), 0.001);
+        assertEquals(50_000_000, histograma.percentil(50), 50_000_000 / 16.0);
+        assertEquals(99_000_000, histograma.percentil(99), 99_000_000 / 16.0);
+        assertEquals(100_000_000, histograma.percentil(100));
+    }
+
+    @Test
+    public void testCubetasCubrenTodoElRango() {
+        long anterior = -1;
+        for (int exponente = 0; exponente < 63; exponente++) {
+            long valor = 1L << exponente;
+            int cubeta = HistogramaLatencia.cubeta(valor);
+            assertTrue(HistogramaLatencia.limiteSuperior(cubeta) >= valor);
+            assertTrue(cubeta > anterior);
+            anterior = cubeta;
+        }
+        assertTrue(HistogramaLatencia.limiteSuperior(HistogramaLatencia.cubeta(Long.MAX_VALUE)) == Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testReiniciar() {
+        HistogramaLatencia histograma = new HistogramaLatencia();
+        histograma.registrar(5);
+        histograma.reiniciar();
+        assertEquals(0, histograma.cantidad());
+        assertEquals(0, histograma.percentil(99));
+        assertEquals(0, histograma.maximo());
+    }
+}
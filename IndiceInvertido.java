@@ -0,0 +1,249 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author Alejandra Avilés
+ * Índice invertido de las palabras de la descripción de los productos, para buscar por ejemplo
+ * "algodón" o "dry-fit" sin leer todo el inventario.
+ * Las descripciones se separan en palabras normalizadas (sin mayúsculas ni tildes); una palabra con
+ * guiones se indexa completa y también por partes ("dry-fit", "dry" y "fit").
+ * Cada producto recibe un número creciente y cada palabra guarda la lista de números de los productos
+ * que la contienen, comprimida: se guarda la diferencia con el número anterior en bytes de 7 bits
+ * (varint), así que en una lista densa casi todos los productos ocupan un solo byte.
+ * Al cambiar una descripción el producto recibe un número nuevo y el anterior queda libre, igual que al
+ * quitarlo (ver NumeracionProductos); las listas lo ignoran al buscar hasta la siguiente compactación.
+ */
+public class IndiceInvertido {
+    private final NumeracionProductos numeracion = new NumeracionProductos();
+    private Map<String, Postings> postings = new HashMap<>();
+
+    /**
+     * Lista de números de producto, ascendentes, guardados como diferencias en varint
+     */
+    private static final class Postings {
+        byte[] datos = new byte[8];
+        int largo;
+        int ultimo = -1;
+        int cantidad;
+
+        void agregar(int numero) {
+            if (largo + 5 > datos.length) {
+                datos = Arrays.copyOf(datos, datos.length * 2);
+            }
+            int diferencia = numero - ultimo;
+            while ((diferencia & ~0x7F) != 0) {
+                datos[largo++] = (byte) ((diferencia & 0x7F) | 0x80);
+                diferencia >>>= 7;
+            }
+            datos[largo++] = (byte) diferencia;
+            ultimo = numero;
+            cantidad++;
+        }
+
+        int[] decodificar() {
+            int[] numeros = new int[cantidad];
+            int posicion = 0;
+            int numero = -1;
+            for (int i = 0; i < cantidad; i++) {
+                int diferencia = 0;
+                int desplazamiento = 0;
+                byte b;
+                do {
+                    b = datos[posicion++];
+                    diferencia |= (b & 0x7F) << desplazamiento;
+                    desplazamiento += 7;
+                } while (b < 0);
+                numero += diferencia;
+                numeros[i] = numero;
+            }
+            return numeros;
+        }
+    }
+
+    /**
+     * Agrega un producto al índice
+     * @param producto El producto
+     */
+    public void agregar(Producto producto) {
+        int numero = numeracion.numerar(producto);
+        String descripcion = producto.getDescripcion();
+        if (descripcion == null) { return; }
+        for (String palabra : palabras(descripcion, true)) {
+            postings.computeIfAbsent(palabra, p -> new Postings()).agregar(numero);
+        }
+    }
+
+    /**
+     * Vuelve a indexar un producto cuya descripción cambió
+     * @param producto El producto, con la descripción nueva
+     */
+    public void actualizar(Producto producto) {
+        numeracion.liberar(producto);
+        agregar(producto);
+        compactarSiConviene();
+    }
+
+    /**
+     * Quita un producto del índice; su número queda libre hasta la próxima compactación
+     * @param producto El producto
+     */
+    public void quitar(Producto producto) {
+        numeracion.liberar(producto);
+        compactarSiConviene();
+    }
+
+    /**
+     * Compacta el índice si la numeración lo aconseja
+     */
+    private void compactarSiConviene() {
+        if (numeracion.convieneCompactar()) {
+            compactar();
+        }
+    }
+
+    /**
+     * Cantidad de productos indexados
+     * @return El número de productos
+     */
+    public int tamano() {
+        return numeracion.tamano();
+    }
+
+    /**
+     * Busca los productos cuya descripción contiene las palabras indicadas
+     * @param consulta Las palabras separadas por espacios (por ejemplo "algodón dry-fit")
+     * @param todas true si deben estar todas las palabras (AND), false si basta con una (OR)
+     * @return Los productos encontrados, en el orden en que se indexaron
+     */
+    public List<Producto> buscar(String consulta, boolean todas) {
+        Set<String> palabras = palabras(consulta, false);
+        List<Producto> resultado = new ArrayList<>();
+        if (palabras.isEmpty()) { return resultado; }
+        List<Postings> listas = new ArrayList<>();
+        for (String palabra : palabras) {
+            Postings lista = postings.get(palabra);
+            if (lista != null) {
+                listas.add(lista);
+            } else if (todas) {
+                return resultado; /* Una palabra que ninguna descripción tiene */
+            }
+        }
+        if (todas) {
+            agregarVivos(resultado, interseccion(listas));
+        } else {
+            BitSet union = new BitSet(numeracion.limite());
+            for (Postings lista : listas) {
+                for (int numero : lista.decodificar()) {
+                    union.set(numero);
+                }
+            }
+            for (int numero = union.nextSetBit(0); numero >= 0; numero = union.nextSetBit(numero + 1)) {
+                agregarVivo(resultado, numero);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Intersecta las listas empezando por la más corta, así que el costo depende de ella
+     * @param listas Las listas de las palabras buscadas
+     * @return Los números que están en todas
+     */
+    private static int[] interseccion(List<Postings> listas) {
+        listas.sort((a, b) -> Integer.compare(a.cantidad, b.cantidad));
+        int[] candidatos = listas.get(0).decodificar();
+        int cantidad = candidatos.length;
+        for (int i = 1; i < listas.size() && cantidad > 0; i++) {
+            int[] otra = listas.get(i).decodificar();
+            int quedan = 0;
+            int j = 0;
+            for (int k = 0; k < cantidad && j < otra.length; k++) {
+                while (j < otra.length && otra[j] < candidatos[k]) { j++; }
+                if (j < otra.length && otra[j] == candidatos[k]) {
+                    candidatos[quedan++] = candidatos[k];
+                }
+            }
+            cantidad = quedan;
+        }
+        return Arrays.copyOf(candidatos, cantidad);
+    }
+
+    /**
+     * Agrega al resultado los productos de los números que no quedaron libres
+     * @param resultado La lista de resultados
+     * @param numeros Los números encontrados
+     */
+    private void agregarVivos(List<Producto> resultado, int[] numeros) {
+        for (int numero : numeros) {
+            agregarVivo(resultado, numero);
+        }
+    }
+
+    /**
+     * Agrega al resultado el producto de un número si no quedó libre
+     * @param resultado La lista de resultados
+     * @param numero El número del producto
+     */
+    private void agregarVivo(List<Producto> resultado, int numero) {
+        Producto producto = numeracion.producto(numero);
+        if (producto != null) {
+            resultado.add(producto);
+        }
+    }
+
+    /**
+     * Reconstruye el índice solo con los productos vigentes, renumerándolos desde cero
+     */
+    private void compactar() {
+        List<Producto> vigentes = numeracion.vigentes();
+        numeracion.reiniciar();
+        postings = new HashMap<>();
+        for (Producto producto : vigentes) {
+            agregar(producto);
+        }
+    }
+
+    /**
+     * Separa un texto en palabras normalizadas, sin repetir. Una palabra es una secuencia de letras y
+     * dígitos, que puede tener guiones en medio ("dry-fit")
+     * @param texto El texto
+     * @param conPartes true para agregar también las partes de las palabras con guiones (al indexar)
+     * @return Las palabras en el orden en que aparecen
+     */
+    static Set<String> palabras(String texto, boolean conPartes) {
+        String normalizado = Normalizador.normalizar(texto);
+        Set<String> palabras = new LinkedHashSet<>();
+        int largo = normalizado.length();
+        int i = 0;
+        while (i < largo) {
+            while (i < largo && !Character.isLetterOrDigit(normalizado.charAt(i))) { i++; }
+            int inicio = i;
+            int inicioParte = i;
+            while (i < largo) {
+                char c = normalizado.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    i++;
+                } else if (c == '-' && i + 1 < largo && Character.isLetterOrDigit(normalizado.charAt(i + 1))) {
+                    if (conPartes) { palabras.add(normalizado.substring(inicioParte, i)); }
+                    i++;
+                    inicioParte = i;
+                } else {
+                    break;
+                }
+            }
+            if (i > inicio) {
+                palabras.add(normalizado.substring(inicio, i));
+                if (conPartes && inicioParte > inicio) {
+                    palabras.add(normalizado.substring(inicioParte, i));
+                }
+            }
+        }
+        return palabras;
+    }
+}
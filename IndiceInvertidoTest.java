@@ -0,0 +1,96 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class IndiceInvertidoTest {
+    private static final String ARCHIVO = "inventario_descripciones_test.csv";
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(Paths.get(ARCHIVO));
+    }
+
+    private static Producto producto(String sku, String descripcion) {
+        return new Producto(sku, "Producto " + sku, descripcion, Map.of("M", 1));
+    }
+
+    private static List<String> skus(List<Producto> productos) {
+        List<String> skus = new ArrayList<>();
+        for (Producto producto : productos) {
+            skus.add(producto.getSku());
+        }
+        return skus;
+    }
+
+    private static IndiceInvertido indice() {
+        IndiceInvertido indice = new IndiceInvertido();
+        indice.agregar(producto("1", "Camiseta de algodón orgánico"));
+        indice.agregar(producto("2", "Tela Dry-Fit transpirable"));
+        indice.agregar(producto("3", "Mezcla de algodón y poliéster, tela dry-fit"));
+        indice.agregar(producto("4", "Ajuste cómodo con costuras reforzadas."));
+        return indice;
+    }
+
+    @Test
+    public void testPalabras() {
+        assertEquals(List.of("tela", "dry", "dry-fit", "fit"), new ArrayList<>(IndiceInvertido.palabras("Tela DRY-FIT", true)));
+        assertEquals(List.of("tela", "dry-fit"), new ArrayList<>(IndiceInvertido.palabras("  Tela, dry-fit!", false)));
+        assertTrue(IndiceInvertido.palabras(" -- ", false).isEmpty());
+    }
+
+    @Test
+    public void testBuscarTodasYAlguna() {
+        IndiceInvertido indice = indice();
+        assertEquals(List.of("1", "3"), skus(indice.buscar("ALGODON", true)));
+        assertEquals(List.of("2", "3"), skus(indice.buscar("dry-fit", true)));
+        assertEquals(List.of("2", "3"), skus(indice.buscar("fit", true)));
+        assertEquals(List.of("3"), skus(indice.buscar("algodón dry-fit", true)));
+        assertEquals(List.of("1", "2", "3"), skus(indice.buscar("algodón dry-fit", false)));
+        assertEquals(List.of("1", "4"), skus(indice.buscar("orgánico reforzadas lana", false)));
+        assertTrue(indice.buscar("algodón lana", true).isEmpty());
+        assertTrue(indice.buscar("", false).isEmpty());
+    }
+
+    @Test
+    public void testActualizarYCompactar() {
+        IndiceInvertido indice = new IndiceInvertido();
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Producto producto = producto(String.valueOf(i), "Algodón número " + i);
+            productos.add(producto);
+            indice.agregar(producto);
+        }
+        for (int vuelta = 0; vuelta < 3; vuelta++) { /* Suficientes cambios para forzar la compactación */
+            for (Producto producto : productos) {
+                producto.setDescripcion((vuelta % 2 == 0 ? "Poliéster " : "Algodón ") + "número " + producto.getSku());
+                indice.actualizar(producto);
+            }
+        }
+        assertEquals(2000, indice.tamano());
+        assertTrue(indice.buscar("algodon", true).isEmpty());
+        assertEquals(2000, indice.buscar("poliester", true).size());
+        assertEquals(List.of("1234"), skus(indice.buscar("poliester 1234", true)));
+    }
+
+    @Test
+    public void testEditarProductoActualizaElIndice() throws IOException {
+        Files.write(Paths.get(ARCHIVO), List.of("SKU,Nombre,Descripción,Cantidad por talla",
+            "1,Camiseta,Camiseta de algodón,M:10", "2,Short,Short dry-fit,S:4"));
+        BinaryTree arbolSku = new BinaryTree();
+        Inventario.cargarInventario(ARCHIVO, arbolSku, new BinaryTree());
+        assertEquals(List.of("1"), skus(arbolSku.buscarPorDescripcion("algodón", true)));
+
+        new Inventario().editarProducto(arbolSku, "1", "Camiseta de lino", "añadir", null, ARCHIVO);
+        assertTrue(arbolSku.buscarPorDescripcion("algodón", true).isEmpty());
+        assertEquals(List.of("1"), skus(arbolSku.buscarPorDescripcion("lino", true)));
+
+        arbolSku.insertar("3", producto("3", "Pantalón de algodón"));
+        assertEquals(List.of("3"), skus(arbolSku.buscarPorDescripcion("algodón", true)));
+    }
+}
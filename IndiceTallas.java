@@ -0,0 +1,179 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * @author Alejandra Avilés
+ * Índice de disponibilidad por talla: por cada talla, un mapa de bits con un bit por producto que indica
+ * si tiene unidades de esa talla. "¿Qué productos tienen M y L?" se responde con un AND de dos mapas de
+ * bits, sin recorrer el árbol ni consultar las tallas de cada producto.
+ * Cada producto recibe un número al indexarse y el índice se agrega como su ObservadorStock, así que las
+ * sumas y restas lo actualizan solas; solo hacen algo cuando una cantidad pasa de 0 a positiva o al revés.
+ * Hay pocas tallas y cada una está en buena parte del catálogo, así que un BitSet sin comprimir
+ * (125 KB por talla y millón de productos) es más simple y rápido que un mapa de bits comprimido.
+ * Al quitar un producto se apagan sus bits y su número queda libre (ver NumeracionProductos); al compactar
+ * se renumeran los productos vigentes y se vuelven a leer sus cantidades.
+ */
+public class IndiceTallas implements ObservadorStock {
+    private final NumeracionProductos numeracion = new NumeracionProductos();
+    private BitSet[] porTalla = new BitSet[0]; /* Id de talla en DiccionarioTallas -> productos con unidades */
+
+    /**
+     * Agrega un producto al índice y empieza a observar sus cambios de cantidad
+     * @param producto El producto
+     */
+    public synchronized void agregar(Producto producto) {
+        /* Primero el observador: un cambio durante la lectura de abajo se vuelve a revisar al avisarse */
+        producto.agregarObservador(this);
+        indexar(producto);
+    }
+
+    /**
+     * Quita un producto del índice y deja de observarlo
+     * @param producto El producto
+     */
+    public synchronized void quitar(Producto producto) {
+        int numero = numeracion.liberar(producto);
+        if (numero < 0) { return; }
+        producto.quitarObservador(this);
+        for (BitSet bits : porTalla) {
+            if (bits != null) { bits.clear(numero); }
+        }
+        if (numeracion.convieneCompactar()) {
+            compactar();
+        }
+    }
+
+    /**
+     * Deja de observar todos los productos; se llama cuando el índice se reemplaza por uno nuevo
+     */
+    public synchronized void desconectar() {
+        for (Producto producto : numeracion.vigentes()) {
+            producto.quitarObservador(this);
+        }
+    }
+
+    /**
+     * Solo interesa cuando una cantidad pasa de 0 a positiva o al revés
+     */
+    @Override
+    public void cantidadCambiada(Producto producto, int idTalla, int anterior, int nueva) {
+        if ((anterior > 0) != (nueva > 0)) {
+            revisar(producto, idTalla);
+        }
+    }
+
+    /**
+     * Cantidad de productos indexados
+     * @return El número de productos
+     */
+    public synchronized int tamano() {
+        return numeracion.tamano();
+    }
+
+    /**
+     * Busca los productos con unidades de las tallas indicadas
+     * @param todas true si deben tener todas las tallas (AND), false si basta con una (OR)
+     * @param tallas Las tallas, por ejemplo "M", "L"
+     * @return Los productos, en el orden en que se indexaron
+     */
+    public List<Producto> buscar(boolean todas, String... tallas) {
+        List<Producto> resultado = new ArrayList<>();
+        synchronized (this) {
+            BitSet bits = combinar(todas, tallas);
+            for (int numero = bits.nextSetBit(0); numero >= 0; numero = bits.nextSetBit(numero + 1)) {
+                resultado.add(numeracion.producto(numero));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Cuenta los productos con unidades de las tallas indicadas, sin armar la lista
+     * @param todas true si deben tener todas las tallas (AND), false si basta con una (OR)
+     * @param tallas Las tallas
+     * @return La cantidad de productos
+     */
+    public synchronized int contar(boolean todas, String... tallas) {
+        return combinar(todas, tallas).cardinality();
+    }
+
+    /**
+     * Combina los mapas de bits de las tallas; se llama con el monitor tomado
+     * @param todas true para AND, false para OR
+     * @param tallas Las tallas
+     * @return Un mapa de bits nuevo con el resultado
+     */
+    private BitSet combinar(boolean todas, String... tallas) {
+        BitSet resultado = null;
+        for (String talla : tallas) {
+            int id = DiccionarioTallas.buscar(talla);
+            BitSet bits = id >= 0 && id < porTalla.length && porTalla[id] != null ? porTalla[id] : new BitSet();
+            if (resultado == null) {
+                resultado = (BitSet) bits.clone();
+            } else if (todas) {
+                resultado.and(bits);
+            } else {
+                resultado.or(bits);
+            }
+        }
+        return resultado == null ? new BitSet() : resultado;
+    }
+
+    /**
+     * Da un número al producto y pone sus bits según las cantidades vigentes; se llama con el monitor tomado
+     * @param producto El producto
+     */
+    private void indexar(Producto producto) {
+        int numero = numeracion.numerar(producto);
+        int[] tallas = producto.copiarTallas(); /* Otro hilo puede estar quitando tallas */
+        for (int i = 0; i < tallas.length; i += 2) {
+            if (tallas[i + 1] > 0) {
+                mapa(tallas[i]).set(numero);
+            }
+        }
+    }
+
+    /**
+     * Renumera los productos vigentes desde cero, releyendo sus cantidades; se llama con el monitor tomado.
+     * Siguen siendo observados, y sus avisos esperan al monitor, así que no se pierde ningún cruce por cero.
+     */
+    private void compactar() {
+        List<Producto> vigentes = numeracion.vigentes();
+        numeracion.reiniciar();
+        porTalla = new BitSet[0];
+        for (Producto producto : vigentes) {
+            indexar(producto);
+        }
+    }
+
+    /**
+     * Pone el bit de un producto según su cantidad vigente. Se lee la cantidad en lugar de usar la del
+     * aviso porque los avisos de hilos distintos pueden llegar desordenados; el último en tomar el monitor
+     * siempre ve el valor final.
+     * @param producto El producto
+     * @param idTalla El id de la talla
+     */
+    private synchronized void revisar(Producto producto, int idTalla) {
+        int numero = numeracion.numero(producto);
+        if (numero >= 0) {
+            mapa(idTalla).set(numero, producto.cantidadDeId(idTalla) > 0);
+        }
+    }
+
+    /**
+     * Mapa de bits de una talla, creándolo si no existe; se llama con el monitor tomado
+     * @param idTalla El id de la talla
+     * @return El mapa de bits
+     */
+    private BitSet mapa(int idTalla) {
+        if (idTalla >= porTalla.length) {
+            porTalla = Arrays.copyOf(porTalla, Math.max(idTalla + 1, porTalla.length * 2));
+        }
+        if (porTalla[idTalla] == null) {
+            porTalla[idTalla] = new BitSet();
+        }
+        return porTalla[idTalla];
+    }
+}
@@ -0,0 +1,139 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class IndiceTallasTest {
+
+    private static List<String> skus(List<Producto> productos) {
+        List<String> skus = new ArrayList<>();
+        for (Producto producto : productos) {
+            skus.add(producto.getSku());
+        }
+        return skus;
+    }
+
+    private static BinaryTree arbol() {
+        BinaryTree arbolSku = new BinaryTree();
+        arbolSku.insertar("1", new Producto("1", "Camiseta", "Algodón", Map.of("M", 3, "L", 1)));
+        arbolSku.insertar("2", new Producto("2", "Short", "Dry-fit", Map.of("M", 0, "L", 4)));
+        arbolSku.insertar("3", new Producto("3", "Gorra", "Ajustable", Map.of("S", 2)));
+        return arbolSku;
+    }
+
+    @Test
+    public void testBuscarTodasYAlguna() {
+        BinaryTree arbolSku = arbol();
+        assertEquals(List.of("1"), skus(arbolSku.buscarPorTallas(true, "M")));
+        assertEquals(List.of("1"), skus(arbolSku.buscarPorTallas(true, "M", "L")));
+        assertEquals(List.of("1", "2", "3"), skus(arbolSku.buscarPorTallas(false, "L", "S")));
+        assertEquals(2, arbolSku.contarPorTallas(false, "M", "L"));
+        assertTrue(arbolSku.buscarPorTallas(true, "XXL").isEmpty());
+        assertTrue(arbolSku.buscarPorTallas(true, "M", "XXL").isEmpty());
+    }
+
+    @Test
+    public void testSeActualizaConLasVentas() {
+        BinaryTree arbolSku = arbol();
+        assertEquals(List.of("1"), skus(arbolSku.buscarPorTallas(true, "M")));
+        arbolSku.buscar("2").aumentarCantidad("M", 5);
+        arbolSku.buscar("1").restarCantidad("M", 3);
+        assertEquals(List.of("2"), skus(arbolSku.buscarPorTallas(true, "M")));
+        arbolSku.buscar("3").getTallas().put("M", 1);
+        arbolSku.insertar("4", new Producto("4", "Chaqueta", "Impermeable", Map.of("M", 6)));
+        assertEquals(List.of("2", "3", "4"), skus(arbolSku.buscarPorTallas(true, "M")));
+        arbolSku.buscar("3").setTallas(Map.of("S", 1));
+        assertEquals(List.of("2", "4"), skus(arbolSku.buscarPorTallas(true, "M")));
+    }
+
+    @Test
+    public void testVentasConcurrentesDejanElIndiceConsistente() throws InterruptedException {
+        BinaryTree arbolSku = new BinaryTree();
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Producto producto = new Producto(String.valueOf(i), "Producto " + i, "Generado", Map.of("M", 1));
+            productos.add(producto);
+            arbolSku.insertar(producto.getSku(), producto);
+        }
+        arbolSku.contarPorTallas(true, "M");
+        List<Thread> hilos = new ArrayList<>();
+        for (int h = 0; h < 4; h++) {
+            Thread hilo = new Thread(() -> {
+                for (int vuelta = 0; vuelta < 2000; vuelta++) {
+                    for (Producto producto : productos) {
+                        if (producto.restarCantidad("M", 1) == ResultadoStock.EXITO) {
+                            producto.aumentarCantidad("M", 1);
+                        }
+                    }
+                }
+            });
+            hilos.add(hilo);
+            hilo.start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        assertEquals(100, arbolSku.contarPorTallas(true, "M"));
+    }
+
+    @Test
+    public void testQuitarTallasMientrasSeIndexaNoSeBloquea() throws InterruptedException {
+        Producto producto = new Producto("1", "Camiseta", "Algodón", Map.of("M", 3, "S", 1));
+        IndiceTallas indice = new IndiceTallas();
+        SeguimientoStock seguimiento = new SeguimientoStock(5);
+        /* Uno entra y sale de los índices (monitor del índice y luego el del producto) mientras el otro
+           quita y repone tallas (monitor del producto y luego los avisos a los índices) */
+        Thread indexador = new Thread(() -> {
+            for (int vuelta = 0; vuelta < 20_000; vuelta++) {
+                indice.agregar(producto);
+                seguimiento.agregar(producto);
+                indice.quitar(producto);
+                seguimiento.quitar(producto);
+            }
+        });
+        Thread tallas = new Thread(() -> {
+            for (int vuelta = 0; vuelta < 20_000; vuelta++) {
+                producto.getTallas().remove("S");
+                producto.setTallas(Map.of("M", 3, "S", 1));
+            }
+        });
+        indexador.setDaemon(true); /* Si se bloquean, no retienen la JVM */
+        tallas.setDaemon(true);
+        List<Throwable> errores = new CopyOnWriteArrayList<>();
+        indexador.setUncaughtExceptionHandler((hilo, e) -> errores.add(e));
+        tallas.setUncaughtExceptionHandler((hilo, e) -> errores.add(e));
+        indexador.start();
+        tallas.start();
+        indexador.join(30_000);
+        tallas.join(30_000);
+        assertFalse(indexador.isAlive() || tallas.isAlive(), "Los hilos quedaron bloqueados entre sí.");
+        assertTrue(errores.isEmpty(), errores.toString());
+
+        indice.agregar(producto);
+        assertEquals(1, indice.contar(true, "M", "S"));
+        producto.getTallas().remove("S");
+        assertEquals(0, indice.contar(true, "S"));
+    }
+
+    @Test
+    public void testQuitarYCompactar() {
+        IndiceTallas indice = new IndiceTallas();
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Producto producto = new Producto(String.valueOf(i), "Producto " + i, "Generado", Map.of("M", i % 3));
+            productos.add(producto);
+            indice.agregar(producto);
+        }
+        for (int i = 0; i < 2500; i++) { /* Suficientes para forzar la compactación */
+            indice.quitar(productos.get(i));
+        }
+        assertEquals(500, indice.tamano());
+        assertEquals(334, indice.contar(true, "M"));
+        productos.get(0).aumentarCantidad("M", 5); /* Ya no se observa */
+        productos.get(2502).aumentarCantidad("M", 1);
+        assertEquals(335, indice.contar(true, "M"));
+        assertTrue(skus(indice.buscar(true, "M")).contains("2502"));
+    }
+}
@@ -0,0 +1,285 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * @author Alejandra Avilés
+ * Índice invertido de trigramas (grupos de tres caracteres) sobre los nombres normalizados de los productos.
+ * Cada producto recibe un número (su orden de llegada) y cada trigrama guarda la lista ordenada de los
+ * productos que lo contienen, por lo que las búsquedas no recorren todo el inventario:
+ * - Subcadena ("camis"): se intersectan las listas de los trigramas del fragmento y solo los candidatos
+ *   se comprueban con contains.
+ * - Aproximada ("camisetta"): se cuentan los trigramas que cada candidato comparte con el texto (con
+ *   relleno de espacios en los bordes, como pg_trgm) y se ordenan por la proporción del texto que cubren y
+ *   luego por similitud de Jaccard, así que los errores de tipeo pierden solo unos pocos trigramas.
+ * Los números los lleva NumeracionProductos; al compactar, el índice se reconstruye con los nombres vigentes.
+ */
+public class IndiceTrigramas {
+    private static final double COBERTURA_MINIMA = 0.5; /* Parte del texto buscado que debe compartir un candidato */
+    private static final int MAX_TRIGRAMAS_CONSULTA = 127; /* Los conteos por candidato se guardan en un byte */
+
+    private final NumeracionProductos numeracion = new NumeracionProductos();
+    private List<String> nombres = new ArrayList<>(); /* Nombre normalizado de cada producto */
+    private byte[] trigramasPorProducto = new byte[16]; /* Trigramas distintos de cada nombre, con tope 255 */
+    private Map<Long, Postings> postings = new HashMap<>();
+
+    /**
+     * Lista creciente y ordenada de números de producto
+     */
+    private static final class Postings {
+        int[] valores = new int[4];
+        int tamano;
+
+        void agregar(int producto) {
+            if (tamano == valores.length) {
+                valores = Arrays.copyOf(valores, tamano * 2);
+            }
+            valores[tamano++] = producto;
+        }
+    }
+
+    /**
+     * Agrega un producto al índice
+     * @param producto El producto
+     */
+    public void agregar(Producto producto) {
+        agregar(producto, Normalizador.normalizar(producto.getNombre()));
+    }
+
+    /**
+     * Agrega un producto cuyo nombre ya pasó por Normalizador.normalizar
+     * @param producto El producto
+     * @param nombre El nombre normalizado
+     */
+    void agregar(Producto producto, String nombre) {
+        int numero = numeracion.numerar(producto);
+        nombres.add(nombre);
+        long[] trigramas = trigramas(nombre, true);
+        if (numero == trigramasPorProducto.length) {
+            trigramasPorProducto = Arrays.copyOf(trigramasPorProducto, numero * 2);
+        }
+        trigramasPorProducto[numero] = (byte) Math.min(trigramas.length, 255);
+        for (long trigrama : trigramas) {
+            postings.computeIfAbsent(trigrama, t -> new Postings()).agregar(numero);
+        }
+    }
+
+    /**
+     * Quita un producto del índice
+     * @param producto El producto
+     * @return El nombre normalizado con el que estaba indexado, o null si no estaba
+     */
+    public String quitar(Producto producto) {
+        int numero = numeracion.liberar(producto);
+        if (numero < 0) {
+            return null;
+        }
+        String nombre = nombres.get(numero);
+        if (numeracion.convieneCompactar()) {
+            compactar();
+        }
+        return nombre;
+    }
+
+    /**
+     * Cantidad de productos indexados
+     * @return El número de productos
+     */
+    public int tamano() {
+        return numeracion.tamano();
+    }
+
+    /**
+     * Reconstruye el índice solo con los productos vigentes, renumerándolos desde cero
+     */
+    private void compactar() {
+        List<Producto> vigentes = numeracion.vigentes();
+        List<String> nombresVigentes = new ArrayList<>(vigentes.size());
+        for (Producto producto : vigentes) {
+            nombresVigentes.add(nombres.get(numeracion.numero(producto)));
+        }
+        numeracion.reiniciar();
+        nombres = new ArrayList<>(vigentes.size());
+        trigramasPorProducto = new byte[Math.max(16, vigentes.size())];
+        postings = new HashMap<>();
+        for (int i = 0; i < vigentes.size(); i++) {
+            agregar(vigentes.get(i), nombresVigentes.get(i));
+        }
+    }
+
+    /**
+     * Busca los productos cuyo nombre contiene un fragmento, sin importar mayúsculas ni tildes
+     * @param fragmento El fragmento a buscar
+     * @return Los productos, en el orden en que se indexaron
+     */
+    public List<Producto> buscarSubcadena(String fragmento) {
+        String buscado = Normalizador.normalizar(fragmento);
+        List<Producto> resultado = new ArrayList<>();
+        if (buscado.length() < 3) {
+            /* Un fragmento sin trigramas no se puede filtrar por el índice */
+            for (int i = 0; i < numeracion.limite(); i++) {
+                agregarSiContiene(resultado, i, buscado);
+            }
+            return resultado;
+        }
+        long[] trigramas = trigramas(buscado, false);
+        Postings[] listas = new Postings[trigramas.length];
+        for (int i = 0; i < trigramas.length; i++) {
+            listas[i] = postings.get(trigramas[i]);
+            if (listas[i] == null) { return resultado; } /* Un trigrama que ningún nombre tiene */
+        }
+        Arrays.sort(listas, (a, b) -> Integer.compare(a.tamano, b.tamano));
+        int[] candidatos = Arrays.copyOf(listas[0].valores, listas[0].tamano);
+        int cantidad = candidatos.length;
+        for (int i = 1; i < listas.length && cantidad > 0; i++) {
+            cantidad = intersectar(candidatos, cantidad, listas[i]);
+        }
+        for (int i = 0; i < cantidad; i++) {
+            agregarSiContiene(resultado, candidatos[i], buscado);
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca el primer producto indexado cuyo nombre normalizado es exactamente el dado
+     * @param nombre El nombre normalizado
+     * @return El producto, o null si ninguno tiene ese nombre
+     */
+    public Producto buscarExacto(String nombre) {
+        for (Producto producto : buscarSubcadena(nombre)) {
+            if (nombres.get(numeracion.numero(producto)).equals(nombre)) {
+                return producto;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Busca los productos cuyo nombre se parece a un texto, tolerando errores de tipeo
+     * @param texto El texto buscado (por ejemplo, "camisetta")
+     * @param maximo La cantidad máxima de resultados
+     * @return Los productos más parecidos primero
+     */
+    public List<Producto> buscarAproximado(String texto, int maximo) {
+        long[] trigramas = trigramas(Normalizador.normalizar(texto), true);
+        if (trigramas.length > MAX_TRIGRAMAS_CONSULTA) {
+            trigramas = Arrays.copyOf(trigramas, MAX_TRIGRAMAS_CONSULTA);
+        }
+        int minimo = Math.max(1, (int) Math.ceil(trigramas.length * COBERTURA_MINIMA));
+        byte[] compartidos = new byte[numeracion.limite()];
+        List<Integer> candidatos = new ArrayList<>();
+        for (long trigrama : trigramas) {
+            Postings lista = postings.get(trigrama);
+            if (lista == null) { continue; }
+            for (int i = 0; i < lista.tamano; i++) {
+                int numero = lista.valores[i];
+                if (++compartidos[numero] == minimo) {
+                    candidatos.add(numero); /* Se anota una sola vez, al llegar al mínimo */
+                }
+            }
+        }
+        int consulta = trigramas.length;
+        PriorityQueue<int[]> mejores = new PriorityQueue<>(Math.max(1, maximo), (a, b) -> comparar(a, b, consulta));
+        for (int numero : candidatos) {
+            if (numeracion.producto(numero) == null) { continue; }
+            int[] candidato = {numero, compartidos[numero]};
+            mejores.add(candidato);
+            if (mejores.size() > maximo) {
+                mejores.poll(); /* Se descarta el peor de los que quedan */
+            }
+        }
+        List<Producto> resultado = new ArrayList<>(mejores.size());
+        while (!mejores.isEmpty()) {
+            resultado.add(numeracion.producto(mejores.poll()[0]));
+        }
+        Collections.reverse(resultado);
+        return resultado;
+    }
+
+    /**
+     * Compara dos candidatos de menor a mayor parecido: primero por cuánto del texto cubren y luego por
+     * Jaccard (compartidos / unión), que favorece a los nombres cortos
+     * @param a Candidato {número, trigramas compartidos}
+     * @param b Candidato {número, trigramas compartidos}
+     * @param consulta Trigramas del texto buscado
+     * @return Negativo si a se parece menos que b
+     */
+    private int comparar(int[] a, int[] b, int consulta) {
+        if (a[1] != b[1]) { return Integer.compare(a[1], b[1]); }
+        double jaccardA = (double) a[1] / (consulta + (trigramasPorProducto[a[0]] & 0xFF) - a[1]);
+        double jaccardB = (double) b[1] / (consulta + (trigramasPorProducto[b[0]] & 0xFF) - b[1]);
+        if (jaccardA != jaccardB) { return Double.compare(jaccardA, jaccardB); }
+        return Integer.compare(b[0], a[0]); /* Ante empate, primero el indexado antes */
+    }
+
+    /**
+     * Agrega un producto al resultado si su nombre contiene el fragmento
+     * @param resultado La lista de resultados
+     * @param numero El número del producto
+     * @param buscado El fragmento normalizado
+     */
+    private void agregarSiContiene(List<Producto> resultado, int numero, String buscado) {
+        Producto producto = numeracion.producto(numero);
+        if (producto != null && nombres.get(numero).contains(buscado)) {
+            resultado.add(producto);
+        }
+    }
+
+    /**
+     * Deja en candidatos solo los números que también están en la lista (ambas ordenadas).
+     * Avanza por la lista con búsqueda exponencial, así que cuesta poco aunque la lista sea muy larga.
+     * @param candidatos Los candidatos, ordenados; se reescriben en el mismo arreglo
+     * @param cantidad Cuántos candidatos son válidos
+     * @param lista La lista con la que se intersecta
+     * @return La cantidad de candidatos que quedan
+     */
+    private static int intersectar(int[] candidatos, int cantidad, Postings lista) {
+        int quedan = 0;
+        int desde = 0;
+        for (int i = 0; i < cantidad && desde < lista.tamano; i++) {
+            int buscado = candidatos[i];
+            int paso = 1;
+            int hasta = desde;
+            while (hasta < lista.tamano && lista.valores[hasta] < buscado) {
+                desde = hasta + 1;
+                hasta += paso;
+                paso <<= 1;
+            }
+            int posicion = Arrays.binarySearch(lista.valores, desde, Math.min(hasta + 1, lista.tamano), buscado);
+            if (posicion >= 0) {
+                candidatos[quedan++] = buscado;
+                desde = posicion + 1;
+            } else {
+                desde = -posicion - 1;
+            }
+        }
+        return quedan;
+    }
+
+    /**
+     * Trigramas distintos de un texto, codificados en un long (tres caracteres de 16 bits)
+     * @param texto El texto normalizado
+     * @param conRelleno true para agregar dos espacios al inicio y uno al final (búsqueda aproximada)
+     * @return Los trigramas sin repetir
+     */
+    private static long[] trigramas(String texto, boolean conRelleno) {
+        String base = conRelleno ? "  " + texto + " " : texto;
+        if (base.length() < 3) { return new long[0]; }
+        long[] trigramas = new long[base.length() - 2];
+        for (int i = 0; i < trigramas.length; i++) {
+            trigramas[i] = ((long) base.charAt(i) << 32) | ((long) base.charAt(i + 1) << 16) | base.charAt(i + 2);
+        }
+        Arrays.sort(trigramas);
+        int distintos = 0;
+        for (int i = 0; i < trigramas.length; i++) {
+            if (i == 0 || trigramas[i] != trigramas[i - 1]) {
+                trigramas[distintos++] = trigramas[i];
+            }
+        }
+        return Arrays.copyOf(trigramas, distintos);
+    }
+}
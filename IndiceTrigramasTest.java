@@ -0,0 +1,110 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class IndiceTrigramasTest {
+
+    private static Producto producto(String sku, String nombre) {
+        return new Producto(sku, nombre, "Generado", Map.of("M", 1));
+    }
+
+    private static List<String> skus(List<Producto> productos) {
+        List<String> skus = new ArrayList<>();
+        for (Producto producto : productos) {
+            skus.add(producto.getSku());
+        }
+        return skus;
+    }
+
+    private static IndiceTrigramas indice() {
+        IndiceTrigramas indice = new IndiceTrigramas();
+        indice.agregar(producto("1", "Camiseta Dry-Fit"));
+        indice.agregar(producto("2", "Camisa Oxford"));
+        indice.agregar(producto("3", "Pantalón Deportivo"));
+        indice.agregar(producto("4", "Sudadera con Capucha"));
+        indice.agregar(producto("5", "Calcetines Deportivos"));
+        return indice;
+    }
+
+    @Test
+    public void testBuscarSubcadena() {
+        IndiceTrigramas indice = indice();
+        assertEquals(List.of("1", "2"), skus(indice.buscarSubcadena("camis")));
+        assertEquals(List.of("3", "5"), skus(indice.buscarSubcadena("DEPORTIV")));
+        assertEquals(List.of("3"), skus(indice.buscarSubcadena("pantalon"))); /* Sin tilde */
+        assertEquals(List.of("4"), skus(indice.buscarSubcadena("con cap")));
+        assertTrue(indice.buscarSubcadena("chaqueta").isEmpty());
+    }
+
+    @Test
+    public void testBuscarSubcadenaNoDevuelveFalsosPositivos() {
+        IndiceTrigramas indice = new IndiceTrigramas();
+        indice.agregar(producto("1", "abcxbcd")); /* Tiene los trigramas de "abcd" pero no la subcadena */
+        indice.agregar(producto("2", "xabcdx"));
+        assertEquals(List.of("2"), skus(indice.buscarSubcadena("abcd")));
+    }
+
+    @Test
+    public void testBuscarSubcadenaCorta() {
+        IndiceTrigramas indice = indice();
+        assertEquals(List.of("1", "2", "4", "5"), skus(indice.buscarSubcadena("Ca")));
+        assertEquals(List.of("3", "4"), skus(indice.buscarSubcadena("ón"))); /* "Pantalón" y "con" */
+        assertEquals(5, indice.buscarSubcadena("").size());
+    }
+
+    @Test
+    public void testBuscarAproximadoToleraErrores() {
+        IndiceTrigramas indice = indice();
+        assertEquals("1", indice.buscarAproximado("camisetta", 3).get(0).getSku());
+        assertEquals("3", indice.buscarAproximado("pantalon deportvo", 3).get(0).getSku());
+        assertEquals("4", indice.buscarAproximado("Sudadera", 3).get(0).getSku());
+        assertTrue(indice.buscarAproximado("zzzz", 3).isEmpty());
+    }
+
+    @Test
+    public void testBuscarAproximadoRespetaElMaximo() {
+        IndiceTrigramas indice = new IndiceTrigramas();
+        for (int i = 0; i < 100; i++) {
+            indice.agregar(producto(String.valueOf(i), "Camiseta " + i));
+        }
+        indice.agregar(producto("exacto", "Camiseta"));
+        List<Producto> resultado = indice.buscarAproximado("camiseta", 5);
+        assertEquals(5, resultado.size());
+        assertEquals("exacto", resultado.get(0).getSku()); /* El nombre más corto tiene mayor Jaccard */
+    }
+
+    @Test
+    public void testArbolMantieneElIndiceAlInsertar() {
+        BinaryTree arbolNombre = new BinaryTree();
+        Producto camiseta = producto("1", "Camiseta Dry-Fit");
+        arbolNombre.insertar(camiseta.getNombre(), camiseta);
+        arbolNombre.indexarNombres();
+        Producto chaqueta = producto("2", "Chaqueta Cortavientos");
+        arbolNombre.insertar(chaqueta.getNombre(), chaqueta);
+        assertEquals(List.of("2"), skus(arbolNombre.buscarPorFragmento("cortav")));
+        assertEquals("2", arbolNombre.buscarNombreAproximado("chaquetta", 1).get(0).getSku());
+    }
+
+    @Test
+    public void testQuitarYCompactar() {
+        IndiceTrigramas indice = new IndiceTrigramas();
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Producto producto = producto(String.valueOf(i), (i % 2 == 0 ? "Camiseta " : "Short ") + i);
+            productos.add(producto);
+            indice.agregar(producto);
+        }
+        assertEquals("camiseta 0", indice.quitar(productos.get(0)));
+        assertNull(indice.quitar(productos.get(0)));
+        for (int i = 1; i < 2500; i++) { /* Suficientes para forzar la compactación */
+            indice.quitar(productos.get(i));
+        }
+        assertEquals(500, indice.tamano());
+        assertEquals(250, indice.buscarSubcadena("camis").size());
+        assertEquals(List.of("2998"), skus(indice.buscarSubcadena("camiseta 2998")));
+        assertTrue(indice.buscarSubcadena("camiseta 24").isEmpty());
+        assertEquals("2998", indice.buscarAproximado("camiseta 2998", 1).get(0).getSku());
+    }
+}
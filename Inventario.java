@@ -1,10 +1,15 @@
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * @author Alejandra Avilés
@@ -12,15 +17,19 @@ import java.util.Map;
  * Permite cargar productos desde un CSV, editar produtos existentes y guardar el inventario en un archivo.
  */
 public class Inventario {
+    static final String ENCABEZADO_CSV = "SKU,Nombre,Descripción,Tallas\n";
 
     /**
-     * Carga el inventario desde un archivo e inserta en dos árboles binarios (Sku y Nombre)
+     * Carga el inventario desde un archivo e inserta en dos árboles binarios (Sku y Nombre).
+     * Los productos se leen primero a una lista y luego cada árbol se construye balanceado en bloque.
      * @param archivo La ruta del archivo CSV
      * @param arbolSku El árbol binario que almacena productos por SKU
      * @param arbolNombre El árbol binario que almacena productos por nombre
      */
     public static void cargarInventario(String archivo, BinaryTree arbolSku, BinaryTree arbolNombre) {
-        try (BufferedReader br = new BufferedReader(new FileReader(archivo))) { 
+        long inicio = Metricas.inicio();
+        List<Producto> productos = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(archivo, StandardCharsets.UTF_8))) { 
             String linea;
             boolean esPrimeraLinea = true; /* Variable para ignorar los encabezados de CSV */
             while ((linea = br.readLine()) != null) {
@@ -31,31 +40,43 @@ public class Inventario {
                 if(linea.trim().isEmpty()){
                     continue; /* Salta línea en caso esté vacía */
                 }
-                String[] partes = linea.split(",");
-                if (partes.length < 4) {
+                Producto producto = ParserCsv.parsear(linea);
+                if (producto == null) {
                     System.out.println("Línea inválida: " + linea); /* Salto de líneas con formato incorrecto */
                     continue;
                 }
-                String sku = partes[0];
-                String nombre = partes[1];
-                String descripcion = partes[2];
-                String[] tallasStr = partes[3].split("\\|");
-                Map<String, Integer> tallas = new HashMap<>();
-                for (String talla : tallasStr) {
-                    String[] tallaPartes = talla.split(":");
-                    tallas.put(tallaPartes[0], Integer.parseInt(tallaPartes[1]));
-                }
-                Producto producto = new Producto(sku, nombre, descripcion, tallas);
-                arbolSku.insertar(sku, producto);
-                arbolNombre.insertar(nombre, producto);
+                productos.add(producto);
             }
         }   catch (IOException e) {
             e.printStackTrace();
         }
+        cargarEnArbol(arbolSku, productos, Producto::getSku);
+        cargarEnArbol(arbolNombre, productos, Producto::getNombre);
+        arbolNombre.indexarNombres(); /* Índice para búsquedas por nombre en O(1) */
+        Metricas.CARGAR.registrar(inicio);
+    }
+
+    /**
+     * Ordena los productos por la clave del árbol y los carga en bloque.
+     * El ordenamiento es estable (los repetidos conservan el orden del archivo) y, como es TimSort,
+     * cuesta O(n) cuando el CSV ya viene ordenado por esa clave.
+     * @param arbol El árbol a cargar
+     * @param productos Los productos en el orden del archivo
+     * @param clave Función que obtiene la clave de cada producto (SKU o nombre)
+     */
+    static void cargarEnArbol(BinaryTree arbol, List<Producto> productos, Function<Producto, String> clave) {
+        Producto[] valores = productos.toArray(new Producto[0]);
+        Arrays.sort(valores, Comparator.comparing(clave));
+        String[] claves = new String[valores.length];
+        for (int i = 0; i < valores.length; i++) {
+            claves[i] = clave.apply(valores[i]);
+        }
+        arbol.cargarOrdenados(claves, valores, valores.length);
     }
 
     /**
-     * Edición de un producto del árbol de inventario
+     * Edición de un producto del árbol de inventario.
+     * Si el archivo tiene una bitácora activa, cada cambio se agrega a ella en lugar de reescribir el CSV.
      * @param arbolSku El árbol binario que almacena productos por SKU
      * @param sku El SKU del producto a editar
      * @param nuevaDescripcion La nueva descripción de un producto
@@ -66,51 +87,184 @@ public class Inventario {
     public void editarProducto(BinaryTree arbolSku, String sku, String nuevaDescripcion, String operacion, Map<String, Integer> cantidades, String archivo) {
         Producto producto = arbolSku.buscar(sku);
         if (producto != null) {
-            if (nuevaDescripcion != null && !nuevaDescripcion.isEmpty()) {
-                producto.setDescripcion(nuevaDescripcion);
+            arbolSku.invalidarCache(sku);
+            Bitacora bitacora = Bitacora.activa(archivo);
+            Persistidor persistidor = Persistidor.activo(archivo);
+            if (persistidor != null) {
+                /* Solo se marca el cambio; el CSV se guarda después en segundo plano */
+                persistidor.modificar(() -> aplicarEdicion(arbolSku, producto, nuevaDescripcion, operacion, cantidades, bitacora));
+                return;
             }
-            
-            if (cantidades != null && !cantidades.isEmpty()) {
-                for (Map.Entry<String, Integer> entry : cantidades.entrySet()) {
-                    String talla = entry.getKey();
-                    int cantidad = entry.getValue();
-                    
-                    if (operacion.equals("añadir")) {
-                        producto.aumentarCantidad(talla, cantidad);
-                    } else if (operacion.equals("restar")) {
-                        producto.restarCantidad(talla, cantidad);
-                    }
-                }
+            aplicarEdicion(arbolSku, producto, nuevaDescripcion, operacion, cantidades, bitacora);
+            if (bitacora == null) {
+                Inventario.guardarInventario(archivo, arbolSku);
             }
-            
-            Inventario.guardarInventario(archivo, arbolSku);
         } else {
             System.out.println("El producto con el SKU " + sku + " no existe.");
         }
     }
+
+    /**
+     * Aplica la edición sobre el producto y, si hay bitácora, registra cada cambio
+     * @param arbolSku El árbol binario que almacena productos por SKU (mantiene el índice de descripciones)
+     * @param producto El producto a editar
+     * @param nuevaDescripcion La nueva descripción, o vacía para no cambiarla
+     * @param operacion "añadir" o "restar"
+     * @param cantidades Las tallas y cantidades a sumar o restar
+     * @param bitacora La bitácora activa del archivo, o null
+     */
+    private static void aplicarEdicion(BinaryTree arbolSku, Producto producto, String nuevaDescripcion, String operacion, Map<String, Integer> cantidades, Bitacora bitacora) {
+        String sku = producto.getSku();
+        if (nuevaDescripcion != null && !nuevaDescripcion.isEmpty()) {
+            arbolSku.cambiarDescripcion(producto, nuevaDescripcion);
+            if (bitacora != null) {
+                bitacora.registrarDescripcion(sku, nuevaDescripcion);
+            }
+        }
+        
+        if (cantidades != null && !cantidades.isEmpty()) {
+            for (Map.Entry<String, Integer> entry : cantidades.entrySet()) {
+                String talla = entry.getKey();
+                int cantidad = entry.getValue();
+                int diferencia = 0;
+                
+                if (operacion.equals("añadir")) {
+                    producto.aumentarCantidad(talla, cantidad);
+                    diferencia = cantidad;
+                } else if (operacion.equals("restar")) {
+                    ResultadoStock resultado = producto.restarCantidad(talla, cantidad);
+                    if (resultado == ResultadoStock.INSUFICIENTE) {
+                        System.out.println("No hay suficiente cantidad para restar de la talla " + talla);
+                    } else if (resultado == ResultadoStock.TALLA_INEXISTENTE) {
+                        System.out.println("La talla " + talla + " no existe en el producto.");
+                    } else {
+                        diferencia = -cantidad;
+                    }
+                }
+
+                if (bitacora != null && diferencia != 0) {
+                    bitacora.registrarCantidad(producto, talla, diferencia);
+                }
+            }
+        }
+    }
     
     /**
-     * Guarda el inventario en un archivo CSV
+     * Aplica un pedido de varias líneas (SKU, talla, diferencia) todo o nada (ver Transaccion) y lo
+     * persiste como una sola unidad: un registro en la bitácora o un único guardado del CSV.
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     * @param transaccion El pedido a aplicar
+     * @param archivo La ruta del CSV que guardará el inventario actualizado
+     * @return EXITO, o el motivo por el que no se aplicó ninguna línea
+     */
+    public static ResultadoStock aplicarTransaccion(BinaryTree arbolSku, Transaccion transaccion, String archivo) {
+        ResultadoStock resultado = transaccion.aplicar(arbolSku::buscar);
+        if (resultado == ResultadoStock.EXITO) {
+            registrarTransaccion(arbolSku, transaccion, archivo);
+        }
+        return resultado;
+    }
+
+    /**
+     * Persiste una transacción ya aplicada en memoria
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     * @param transaccion La transacción aplicada
+     * @param archivo La ruta del CSV del inventario
+     */
+    static void registrarTransaccion(BinaryTree arbolSku, Transaccion transaccion, String archivo) {
+        Bitacora bitacora = Bitacora.activa(archivo);
+        Persistidor persistidor = Persistidor.activo(archivo);
+        if (bitacora != null) {
+            bitacora.registrarTransaccion(transaccion);
+        } else if (persistidor != null) {
+            persistidor.registrarCambio();
+        } else {
+            guardarInventario(archivo, arbolSku);
+        }
+    }
+
+    /**
+     * Guarda el inventario en un archivo CSV.
+     * Se escribe en un archivo temporal que se fuerza a disco y luego reemplaza al CSV de forma atómica,
+     * así que un error a mitad del guardado no deja el inventario truncado.
+     * Si el archivo tiene una bitácora o un persistidor activo, el guardado pasa por ellos.
      * @param archivo Ruta del archivo CSV
      * @param arbolSku El árbol binario que almacena productos por SKU
      */
     public static void guardarInventario(String archivo, BinaryTree arbolSku) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(archivo))) {
-            bw.write("SKU,Nombre,Descripción,Tallas\n");
+        long inicio = Metricas.inicio();
+        Bitacora bitacora = Bitacora.activa(archivo);
+        Persistidor persistidor = Persistidor.activo(archivo);
+        if (bitacora != null) {
+            bitacora.guardarAhora();
+        } else if (persistidor != null) {
+            persistidor.guardarAhora();
+        } else {
+            try {
+                EscrituraAtomica.escribir(archivo, bw -> {
+                    bw.write(ENCABEZADO_CSV);
+                    arbolSku.listarParaGuardar(bw);
+                });
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        Metricas.GUARDAR.registrar(inicio);
+    }
+
+    /**
+     * Serializa el inventario en memoria con el formato del CSV
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     * @return El contenido completo del CSV, con encabezado
+     */
+    static String serializarInventario(BinaryTree arbolSku) {
+        StringWriter contenido = new StringWriter();
+        try (BufferedWriter bw = new BufferedWriter(contenido)) {
+            bw.write(ENCABEZADO_CSV);
             arbolSku.listarParaGuardar(bw);
+        } catch (IOException e) {
+            e.printStackTrace(); /* StringWriter no lanza IOException */
+        }
+        return contenido.toString();
+    }
+
+    /**
+     * Exporta el inventario al formato binario de arranque rápido (ver SnapshotBinario)
+     * @param archivoBinario La ruta del archivo binario
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     */
+    public static void exportarSnapshot(String archivoBinario, BinaryTree arbolSku) {
+        try {
+            SnapshotBinario.exportar(archivoBinario, arbolSku);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * Obtiene el último SKU utilizado en el CSV para añadir productos nuevos
+     * Carga el inventario desde el formato binario, sin procesar texto
+     * @param archivoBinario La ruta del archivo binario
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     * @param arbolNombre El árbol binario que almacena productos por nombre
+     */
+    public static void importarSnapshot(String archivoBinario, BinaryTree arbolSku, BinaryTree arbolNombre) {
+        try {
+            SnapshotBinario.importar(archivoBinario, arbolSku, arbolNombre);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Obtiene el último SKU utilizado en el CSV para añadir productos nuevos.
+     * También considera los productos agregados en la bitácora que todavía no llegan al CSV.
      * @param archivo La ruta del CSV que almacena los productos
      * @return El último SKU utilizado
      */
     public static String obtenerUltimoSku(String archivo){
         String ultimoSku = "0";
-        try (BufferedReader br = new BufferedReader(new FileReader(archivo))) {
+        int mayor = 0;
+        try (BufferedReader br = new BufferedReader(new FileReader(archivo, StandardCharsets.UTF_8))) {
             String linea;
             boolean esPrimeraLinea = true;
             while ((linea = br.readLine()) != null) {
@@ -118,17 +272,21 @@ public class Inventario {
                     esPrimeraLinea = false;
                     continue;
                 }
-                String[] partes = linea.split(",");
-                if (partes.length > 0) {
-                    String skuActual = partes[0];
-                    if (Integer.parseInt(skuActual) > Integer.parseInt(ultimoSku)){
-                        ultimoSku = skuActual; /* Actualiza el SKU al último elemento encontrado */
-                    }
+                String skuActual = ParserCsv.primerCampo(linea); /* Solo se lee el primer campo */
+                int valor = Integer.parseInt(skuActual);
+                if (valor > mayor){
+                    mayor = valor;
+                    ultimoSku = skuActual; /* Actualiza el SKU al último elemento encontrado */
                 }
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
+        Bitacora bitacora = Bitacora.activa(archivo);
+        if (bitacora != null && bitacora.mayorSkuAgregado() > mayor) {
+            /* Conserva el ancho del SKU del CSV (por ejemplo "031" después de "030") */
+            ultimoSku = String.format("%0" + ultimoSku.length() + "d", bitacora.mayorSkuAgregado());
+        }
         return ultimoSku;
     }
 }
\ No newline at end of file
@@ -0,0 +1,452 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * @author Alejandra Avilés
+ * Inventario compartido por varios hilos (por ejemplo, varias cajas en la misma JVM).
+ * Usa un StampedLock sobre los dos árboles: las búsquedas se hacen con lecturas optimistas, que no
+ * bloquean ni escriben en memoria compartida, y solo si un escritor las interrumpe se repiten con el
+ * candado de lectura. Los listados usan el candado de lectura, así que varios corren a la vez.
+ * Las altas, bajas, cambios de nombre y ediciones toman el candado de escritura y modifican ambos índices
+ * (SKU y nombre) dentro de la misma sección, por lo que un lector nunca ve uno sin el otro.
+ * Las sumas y restas de stock no lo toman: usan los contadores atómicos de Producto.
+ * Los productos devueltos pueden cambiar después; para leer una cantidad consistente se usa cantidad().
+ */
+public class InventarioConcurrente {
+    /* Un AVL de 2^31 nodos mide a lo sumo unos 45 niveles; más pasos indican un recorrido inconsistente */
+    private static final int MAX_PASOS = 64;
+
+    private final BinaryTree arbolSku;
+    private final BinaryTree arbolNombre;
+    private final String archivo;
+    private final AlmacenInventario almacen; /* Las altas y ediciones pasan por él, bajo el candado de escritura */
+    private final StampedLock candado = new StampedLock();
+
+    /**
+     * Constructor de la clase InventarioConcurrente
+     * @param arbolSku El árbol binario que almacena productos por SKU (ya cargado)
+     * @param arbolNombre El árbol binario que almacena productos por nombre (ya cargado)
+     * @param archivo La ruta del CSV donde se guardan los cambios
+     */
+    public InventarioConcurrente(BinaryTree arbolSku, BinaryTree arbolNombre, String archivo) {
+        this(new AlmacenInventario(arbolSku, arbolNombre, archivo));
+    }
+
+    /**
+     * Constructor de la clase InventarioConcurrente sobre un almacén ya cargado
+     * @param almacen El almacén con los árboles e índices del inventario
+     */
+    public InventarioConcurrente(AlmacenInventario almacen) {
+        this.almacen = almacen;
+        this.arbolSku = almacen.getArbolSku();
+        this.arbolNombre = almacen.getArbolNombre();
+        this.archivo = almacen.getArchivo();
+        arbolNombre.asegurarIndiceNombres(); /* Que las lecturas nunca tengan que construirlos */
+        arbolSku.asegurarIndiceDescripciones();
+        arbolSku.asegurarIndiceTallas();
+    }
+
+    /**
+     * Busca un producto por SKU
+     * @param sku El SKU del producto
+     * @return El producto encontrado o null si no existe
+     */
+    public Producto buscar(String sku) {
+        long inicio = Metricas.inicio();
+        CacheProductos cache = arbolSku.getCache();
+        long generacion = cache == null ? 0 : cache.generacion(); /* Antes de leer: una baja en medio la avanza */
+        Producto producto = leer(() -> arbolSku.buscarAcotado(sku, MAX_PASOS));
+        Metricas.BUSCAR.registrar(inicio);
+        if (producto != null && cache != null) {
+            cache.admitir(sku, producto, generacion); /* Solo después de validar la lectura */
+        }
+        return producto;
+    }
+
+    /**
+     * Busca un producto por nombre, sin importar mayúsculas, tildes ni espacios externos
+     * @param nombre El nombre del producto
+     * @return El producto encontrado o null si no existe
+     */
+    public Producto buscarPorNombre(String nombre) {
+        String normalizado = Normalizador.normalizar(nombre); /* Fuera de la lectura, no depende del árbol */
+        return leer(() -> arbolNombre.buscarPorNombreNormalizado(normalizado));
+    }
+
+    /**
+     * Obtiene la cantidad de una talla de un producto, leída de forma consistente
+     * @param sku El SKU del producto
+     * @param talla La talla
+     * @return La cantidad, o -1 si el producto no existe
+     */
+    public int cantidad(String sku, String talla) {
+        return leer(() -> {
+            Producto producto = arbolSku.buscarAcotado(sku, MAX_PASOS);
+            return producto == null ? -1 : producto.cantidadDe(talla);
+        });
+    }
+
+    /**
+     * Cantidad de productos en el inventario
+     * @return El número de productos
+     */
+    public int tamano() {
+        return leer(arbolSku::tamano);
+    }
+
+    /**
+     * Lista todos los productos en orden; puede correr junto con otros listados y búsquedas
+     * @param porSku true para listar por SKU, false para listar por nombre
+     */
+    public void listar(boolean porSku) {
+        long sello = candado.readLock();
+        try {
+            (porSku ? arbolSku : arbolNombre).listar(porSku);
+        } finally {
+            candado.unlockRead(sello);
+        }
+    }
+
+    /**
+     * Lista todos los productos en orden en cualquier destino (ver BinaryTree.listar(Appendable, boolean))
+     * @param destino Donde se escribe el listado
+     * @param porSku true para listar por SKU, false para listar por nombre
+     * @throws IOException Si el destino falla al escribir
+     */
+    public void listar(Appendable destino, boolean porSku) throws IOException {
+        long sello = candado.readLock();
+        try {
+            (porSku ? arbolSku : arbolNombre).listar(destino, porSku);
+        } finally {
+            candado.unlockRead(sello);
+        }
+    }
+
+    /**
+     * Obtiene una página de productos por SKU o por nombre (ver BinaryTree.pagina). Entre una página y
+     * la siguiente no se retiene el candado; el cursor es una clave, así que las altas intermedias no
+     * hacen que se repitan ni se salten productos ya vistos.
+     * @param porSku true para paginar por SKU, false para paginar por nombre
+     * @param despuesDe El cursor de la página anterior, o null para la primera
+     * @param cantidad La cantidad máxima de productos de la página
+     * @return La página
+     */
+    public Pagina pagina(boolean porSku, String despuesDe, int cantidad) {
+        long sello = candado.readLock();
+        try {
+            return (porSku ? arbolSku : arbolNombre).pagina(despuesDe, cantidad);
+        } finally {
+            candado.unlockRead(sello);
+        }
+    }
+
+    /**
+     * Copia los productos de un rango de SKU
+     * @param desde El primer SKU (inclusivo), o null para empezar desde el inicio
+     * @param hasta El último SKU (exclusivo), o null para llegar al final
+     * @return Los productos del rango, en orden
+     */
+    public List<Producto> rango(String desde, String hasta) {
+        long sello = candado.readLock();
+        try {
+            return new ArrayList<>(arbolSku.rango(desde, true, hasta, false));
+        } finally {
+            candado.unlockRead(sello);
+        }
+    }
+
+    /**
+     * Busca los productos cuyo nombre contiene un fragmento (ver BinaryTree.buscarPorFragmento).
+     * Usa el candado de lectura: el índice de trigramas crece con las altas y no admite lecturas optimistas.
+     * @param fragmento El fragmento del nombre
+     * @return Los productos encontrados
+     */
+    public List<Producto> buscarPorFragmento(String fragmento) {
+        long sello = candado.readLock();
+        try {
+            return arbolNombre.buscarPorFragmento(fragmento);
+        } finally {
+            candado.unlockRead(sello);
+        }
+    }
+
+    /**
+     * Busca los productos con el nombre más parecido (ver BinaryTree.buscarNombreAproximado)
+     * @param texto El nombre aproximado
+     * @param maximo La cantidad máxima de resultados
+     * @return Los productos, del más parecido al menos parecido
+     */
+    public List<Producto> buscarNombreAproximado(String texto, int maximo) {
+        long sello = candado.readLock();
+        try {
+            return arbolNombre.buscarNombreAproximado(texto, maximo);
+        } finally {
+            candado.unlockRead(sello);
+        }
+    }
+
+    /**
+     * Busca los productos por palabras de su descripción (ver BinaryTree.buscarPorDescripcion)
+     * @param palabras Las palabras separadas por espacios
+     * @param todas true si deben estar todas las palabras, false si basta con una
+     * @return Los productos encontrados
+     */
+    public List<Producto> buscarPorDescripcion(String palabras, boolean todas) {
+        long sello = candado.readLock();
+        try {
+            return arbolSku.buscarPorDescripcion(palabras, todas);
+        } finally {
+            candado.unlockRead(sello);
+        }
+    }
+
+    /**
+     * Busca los productos con unidades de las tallas indicadas (ver BinaryTree.buscarPorTallas).
+     * El índice se actualiza con las ventas sin candados, así que el resultado refleja el stock del momento.
+     * @param todas true si deben tener todas las tallas, false si basta con una
+     * @param tallas Las tallas
+     * @return Los productos encontrados
+     */
+    public List<Producto> buscarPorTallas(boolean todas, String... tallas) {
+        long sello = candado.readLock();
+        try {
+            return arbolSku.buscarPorTallas(todas, tallas);
+        } finally {
+            candado.unlockRead(sello);
+        }
+    }
+
+    /**
+     * Empieza a seguir el stock para las consultas de reposición (ver BinaryTree.activarSeguimiento).
+     * Toma el candado de escritura porque activarlo asigna el seguimiento del árbol: con el de lectura, dos
+     * llamadas simultáneas podrían crear dos seguimientos y dejar uno observando los productos para siempre.
+     * El seguimiento se sincroniza solo, así que después se consulta sin pasar por este candado.
+     * @param umbral Los productos con menos unidades que este valor se consideran con stock bajo
+     * @return El seguimiento
+     */
+    public SeguimientoStock activarSeguimiento(int umbral) {
+        long sello = candado.writeLock();
+        try {
+            return arbolSku.activarSeguimiento(umbral);
+        } finally {
+            candado.unlockWrite(sello);
+        }
+    }
+
+    /**
+     * Agrega un producto a ambos árboles de forma atómica
+     * @param sku El SKU del nuevo producto
+     * @param nombre El nombre del nuevo producto
+     * @param descripcion La descripción del nuevo producto
+     * @param tallas Un mapa de tallas y cantidades del nuevo producto
+     * @return true si se agregó, false si el SKU o el nombre ya existían
+     */
+    public boolean agregarProducto(String sku, String nombre, String descripcion, Map<String, Integer> tallas) {
+        return escribir(() -> almacen.agregar(sku, nombre, descripcion, tallas));
+    }
+
+    /**
+     * Elimina un producto de ambos árboles de forma atómica (ver AlmacenInventario.eliminar). Una búsqueda
+     * optimista que lo encontró justo antes no lo vuelve a meter en la caché (ver buscar)
+     * @param sku El SKU del producto
+     * @return true si se eliminó, false si no existía
+     */
+    public boolean eliminarProducto(String sku) {
+        return escribir(() -> almacen.eliminar(sku));
+    }
+
+    /**
+     * Cambia el nombre de un producto en ambos árboles de forma atómica (ver AlmacenInventario.renombrar)
+     * @param sku El SKU del producto
+     * @param nombre El nuevo nombre
+     * @return true si se cambió, false si el producto no existe o el nombre ya es de otro producto
+     */
+    public boolean renombrarProducto(String sku, String nombre) {
+        return escribir(() -> almacen.renombrar(sku, nombre));
+    }
+
+    /**
+     * Edita la descripción o las cantidades de un producto (ver Inventario.editarProducto)
+     * @param sku El SKU del producto a editar
+     * @param nuevaDescripcion La nueva descripción, o vacía para no cambiarla
+     * @param operacion "añadir" o "restar"
+     * @param cantidades Las tallas y cantidades a sumar o restar
+     */
+    public void editarProducto(String sku, String nuevaDescripcion, String operacion, Map<String, Integer> cantidades) {
+        escribir(() -> {
+            almacen.editar(sku, nuevaDescripcion, operacion, cantidades);
+            return null;
+        });
+    }
+
+    /**
+     * Suma unidades a una talla de un producto sin tomar el candado del inventario
+     * @param sku El SKU del producto
+     * @param talla La talla
+     * @param cantidad Las unidades a sumar
+     * @return EXITO, o PRODUCTO_INEXISTENTE
+     */
+    public ResultadoStock aumentarCantidad(String sku, String talla, int cantidad) {
+        Producto producto = buscar(sku);
+        if (producto == null) {
+            return ResultadoStock.PRODUCTO_INEXISTENTE;
+        }
+        producto.aumentarCantidad(talla, cantidad);
+        registrarCantidad(producto, talla, cantidad);
+        return ResultadoStock.EXITO;
+    }
+
+    /**
+     * Resta unidades de una talla de un producto sin tomar el candado del inventario: la reserva se hace
+     * con compareAndSet sobre la cantidad, así que varias cajas pueden vender el mismo SKU en paralelo
+     * y nunca se vende más de lo que hay
+     * @param sku El SKU del producto
+     * @param talla La talla
+     * @param cantidad Las unidades a restar
+     * @return EXITO, INSUFICIENTE, TALLA_INEXISTENTE o PRODUCTO_INEXISTENTE
+     */
+    public ResultadoStock restarCantidad(String sku, String talla, int cantidad) {
+        Producto producto = buscar(sku);
+        if (producto == null) {
+            return ResultadoStock.PRODUCTO_INEXISTENTE;
+        }
+        ResultadoStock resultado = producto.restarCantidad(talla, cantidad);
+        if (resultado == ResultadoStock.EXITO) {
+            registrarCantidad(producto, talla, -cantidad);
+        }
+        return resultado;
+    }
+
+    /**
+     * Aplica un pedido de varias líneas todo o nada, sin tomar el candado del inventario (ver Transaccion),
+     * y lo persiste como una sola unidad
+     * @param transaccion El pedido a aplicar
+     * @return EXITO, o el motivo por el que no se aplicó ninguna línea
+     */
+    public ResultadoStock aplicarTransaccion(Transaccion transaccion) {
+        ResultadoStock resultado = transaccion.aplicar(this::buscar);
+        if (resultado != ResultadoStock.EXITO) {
+            return resultado;
+        }
+        if (Bitacora.activa(archivo) == null && Persistidor.activo(archivo) == null) {
+            guardar(); /* Guardado síncrono del CSV, con el candado de lectura */
+        } else {
+            Bitacora bitacora = bitacora();
+            Inventario.registrarTransaccion(arbolSku, transaccion, archivo);
+            rotarBitacora(bitacora);
+        }
+        return resultado;
+    }
+
+    /**
+     * Persiste un cambio de cantidad ya aplicado: una línea en la bitácora, un aviso al persistidor
+     * o, si el archivo se guarda de forma síncrona, el CSV completo
+     * @param producto El producto modificado
+     * @param talla La talla modificada
+     * @param diferencia Lo que se sumó (o restó, si es negativo)
+     */
+    private void registrarCantidad(Producto producto, String talla, int diferencia) {
+        Bitacora bitacora = bitacora();
+        if (bitacora != null) {
+            bitacora.registrarCantidad(producto, talla, diferencia);
+            rotarBitacora(bitacora);
+            return;
+        }
+        Persistidor persistidor = Persistidor.activo(archivo);
+        if (persistidor != null) {
+            persistidor.registrarCambio();
+            return;
+        }
+        guardar();
+    }
+
+    /**
+     * Aplica un cambio sobre los árboles con el candado de escritura y, si con él la bitácora llegó a su
+     * umbral, la rota antes de soltarlo, así que la fotografía de la rotación es consistente
+     * @param cambio El cambio
+     * @return Lo que devolvió el cambio
+     */
+    private <T> T escribir(Supplier<T> cambio) {
+        long sello = candado.writeLock();
+        try {
+            Bitacora bitacora = bitacora();
+            T resultado = cambio.get();
+            if (bitacora != null) {
+                bitacora.rotarSiHaceFalta();
+            }
+            return resultado;
+        } finally {
+            candado.unlockWrite(sello);
+        }
+    }
+
+    /**
+     * Obtiene la bitácora activa del archivo con la rotación diferida (ver Bitacora.diferirRotacion):
+     * las ventas no toman el candado, así que no pueden recorrer el árbol al rotar
+     * @return La bitácora, o null si no hay una activa
+     */
+    private Bitacora bitacora() {
+        Bitacora bitacora = Bitacora.activa(archivo);
+        if (bitacora != null) {
+            bitacora.diferirRotacion();
+        }
+        return bitacora;
+    }
+
+    /**
+     * Rota la bitácora, si llegó a su umbral, con el candado de lectura: así ninguna alta, baja o cambio
+     * de nombre modifica el árbol mientras se toma la fotografía. Se llama después de registrar una venta.
+     * @param bitacora La bitácora, o null
+     */
+    private void rotarBitacora(Bitacora bitacora) {
+        if (bitacora == null || !bitacora.rotacionPendiente()) { return; }
+        long sello = candado.readLock();
+        try {
+            bitacora.rotarSiHaceFalta();
+        } finally {
+            candado.unlockRead(sello);
+        }
+    }
+
+    /**
+     * Guarda el inventario en el CSV (o a través de su bitácora o persistidor)
+     */
+    public void guardar() {
+        long sello = candado.readLock();
+        try {
+            Inventario.guardarInventario(archivo, arbolSku);
+        } finally {
+            candado.unlockRead(sello);
+        }
+    }
+
+    /**
+     * Ejecuta una lectura primero de forma optimista y, si un escritor la invalidó (o el recorrido
+     * falló por leer un estado a medias), la repite con el candado de lectura
+     * @param lectura La lectura sobre los árboles
+     * @return El resultado de la lectura
+     */
+    private <T> T leer(Supplier<T> lectura) {
+        long sello = candado.tryOptimisticRead();
+        if (sello != 0) {
+            try {
+                T resultado = lectura.get();
+                if (candado.validate(sello)) {
+                    return resultado;
+                }
+            } catch (RuntimeException e) {
+                /* Estado inconsistente por una escritura concurrente; se repite con candado */
+            }
+        }
+        sello = candado.readLock();
+        try {
+            return lectura.get();
+        } finally {
+            candado.unlockRead(sello);
+        }
+    }
+}
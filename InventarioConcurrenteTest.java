@@ -0,0 +1,217 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class InventarioConcurrenteTest {
+    private static final int ESCRITORES = 4;
+    private static final int LECTORES = 4;
+    private static final int ALTAS_POR_ESCRITOR = 300;
+    private static final int CAMBIOS_POR_ESCRITOR = 2_000;
+
+    private BinaryTree arbolSku;
+    private BinaryTree arbolNombre;
+    private String archivo;
+    private InventarioConcurrente inventario;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        arbolSku = new BinaryTree();
+        arbolNombre = new BinaryTree();
+        archivo = "inventario_concurrente_test.csv";
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(archivo, StandardCharsets.UTF_8))) {
+            bw.write("SKU,Nombre,Descripción,Tallas\n");
+            bw.write("0000,Camiseta,Camiseta de algodón,S:100000|M:5\n");
+        }
+        Inventario.cargarInventario(archivo, arbolSku, arbolNombre);
+        /* Los cambios se guardan en segundo plano para no reescribir el CSV en cada edición */
+        Persistidor.activar(archivo, arbolSku, 60_000, 1_000_000);
+        inventario = new InventarioConcurrente(arbolSku, arbolNombre, archivo);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Persistidor.detener(archivo);
+        Files.deleteIfExists(Paths.get(archivo));
+    }
+
+    @Test
+    public void testEscritoresYLectoresConcurrentes() throws InterruptedException {
+        AtomicBoolean escribiendo = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<String> errores = new ConcurrentLinkedQueue<>();
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Thread> escritores = new ArrayList<>();
+        List<Thread> lectores = new ArrayList<>();
+
+        for (int e = 0; e < ESCRITORES; e++) {
+            int escritor = e;
+            escritores.add(new Thread(() -> {
+                esperar(inicio);
+                for (int i = 0; i < CAMBIOS_POR_ESCRITOR; i++) {
+                    if (i < ALTAS_POR_ESCRITOR) {
+                        String sku = String.format("%d%04d", escritor + 1, i);
+                        inventario.agregarProducto(sku, "Producto " + sku, "Generado", Map.of("L", 1));
+                    }
+                    inventario.aumentarCantidad("0000", "M", 1);
+                    inventario.restarCantidad("0000", "S", 1);
+                }
+            }));
+        }
+        for (int l = 0; l < LECTORES; l++) {
+            int lector = l;
+            lectores.add(new Thread(() -> {
+                esperar(inicio);
+                int anteriorM = 0;
+                int vuelta = 0;
+                while (escribiendo.get()) {
+                    /* Las cantidades solo suben (M) o bajan (S) y siempre suman lo mismo */
+                    int m = inventario.cantidad("0000", "M");
+                    if (m < anteriorM) {
+                        errores.add("La cantidad de M retrocedió de " + anteriorM + " a " + m);
+                    }
+                    anteriorM = m;
+                    /* Un alta visible por SKU también debe ser visible por nombre */
+                    String sku = String.format("%d%04d", lector % ESCRITORES + 1, vuelta++ % ALTAS_POR_ESCRITOR);
+                    if (inventario.buscar(sku) != null && inventario.buscarPorNombre("producto " + sku) == null) {
+                        errores.add("El producto " + sku + " está en el índice de SKU pero no en el de nombres");
+                    }
+                    if (vuelta % 500 == 0) {
+                        inventario.rango("1", "2"); /* Listado en paralelo con las búsquedas */
+                    }
+                }
+            }));
+        }
+
+        escritores.forEach(Thread::start);
+        lectores.forEach(Thread::start);
+        inicio.countDown();
+        for (Thread escritor : escritores) {
+            escritor.join();
+        }
+        escribiendo.set(false);
+        for (Thread lector : lectores) {
+            lector.join();
+        }
+
+        assertTrue(errores.isEmpty(), String.join("\n", errores));
+        int cambios = ESCRITORES * CAMBIOS_POR_ESCRITOR;
+        assertEquals(5 + cambios, inventario.cantidad("0000", "M"), "Se perdieron aumentos concurrentes.");
+        assertEquals(100000 - cambios, inventario.cantidad("0000", "S"), "Se perdieron restas concurrentes.");
+        assertEquals(1 + ESCRITORES * ALTAS_POR_ESCRITOR, inventario.tamano());
+        assertEquals(inventario.tamano(), arbolNombre.tamano());
+        assertTrue(arbolSku.altura() <= 1.45 * (Math.log(arbolSku.tamano() + 2) / Math.log(2)), "El árbol quedó desbalanceado.");
+        for (int e = 0; e < ESCRITORES; e++) {
+            for (int i = 0; i < ALTAS_POR_ESCRITOR; i++) {
+                String sku = String.format("%d%04d", e + 1, i);
+                assertSame(inventario.buscar(sku), inventario.buscarPorNombre("Producto " + sku));
+            }
+        }
+    }
+
+    @Test
+    public void testOperacionesBasicas() {
+        Map<String, Integer> tallas = new HashMap<>();
+        tallas.put("M", 3);
+        inventario.agregarProducto("0001", "Sudadera", "Sudadera con capucha", tallas);
+        assertEquals(3, inventario.cantidad("0001", "M"));
+        assertEquals("0001", inventario.buscarPorNombre("  SUDADERA ").getSku());
+
+        assertEquals(ResultadoStock.INSUFICIENTE, inventario.restarCantidad("0001", "M", 5));
+        assertEquals(ResultadoStock.PRODUCTO_INEXISTENTE, inventario.restarCantidad("9999", "M", 1));
+        assertEquals(3, inventario.cantidad("0001", "M"));
+        assertEquals(-1, inventario.cantidad("9999", "M"));
+        assertEquals(2, inventario.rango(null, null).size());
+    }
+
+    @Test
+    public void testLaBitacoraRotaMientrasOtroHiloAgrega() throws InterruptedException {
+        Persistidor.detener(archivo);
+        Bitacora bitacora = Bitacora.abrir(archivo, arbolSku, arbolNombre, 64); /* Umbral bajo: rota decenas de veces */
+        ConcurrentLinkedQueue<Throwable> errores = new ConcurrentLinkedQueue<>();
+        CountDownLatch inicio = new CountDownLatch(1);
+        Thread altas = new Thread(() -> {
+            esperar(inicio);
+            for (int i = 0; i < 3_000; i++) {
+                String sku = String.format("1%04d", i);
+                inventario.agregarProducto(sku, "Producto " + sku, "Generado", Map.of("L", 1));
+            }
+        });
+        Thread ventas = new Thread(() -> {
+            esperar(inicio);
+            for (int i = 0; i < 3_000; i++) {
+                inventario.aumentarCantidad("0000", "M", 1);
+            }
+        });
+        altas.setUncaughtExceptionHandler((hilo, e) -> errores.add(e));
+        ventas.setUncaughtExceptionHandler((hilo, e) -> errores.add(e));
+        altas.start();
+        ventas.start();
+        inicio.countDown();
+        altas.join();
+        ventas.join();
+        assertTrue(errores.isEmpty(), errores.toString());
+
+        /* Sin escribir el CSV al cerrar: la última fotografía y los registros posteriores deben bastar */
+        bitacora.esperarCompactacion();
+        BinaryTree recuperadoSku = new BinaryTree();
+        BinaryTree recuperadoNombre = new BinaryTree();
+        Inventario.cargarInventario(archivo, recuperadoSku, recuperadoNombre);
+        Bitacora.abrir(archivo, recuperadoSku, recuperadoNombre, 64);
+        try {
+            assertEquals(3_001, recuperadoSku.tamano());
+            assertEquals(3_005, recuperadoSku.buscar("0000").cantidadDe("M"));
+            assertEquals(1, recuperadoSku.buscar("12999").cantidadDe("L"));
+        } finally {
+            Bitacora.cerrar(archivo);
+            try {
+                Files.deleteIfExists(Paths.get(archivo + ".bitacora"));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Test
+    public void testActivarSeguimientoALaVezNoDejaSeguimientosConectados() throws InterruptedException {
+        for (int i = 0; i < 2_000; i++) { /* Alarga el recorrido que hace cada activación */
+            String sku = String.format("1%04d", i);
+            inventario.agregarProducto(sku, "Producto " + sku, "Generado", Map.of("L", 1));
+        }
+        ConcurrentLinkedQueue<SeguimientoStock> seguimientos = new ConcurrentLinkedQueue<>();
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Thread> hilos = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            hilos.add(new Thread(() -> {
+                esperar(inicio);
+                seguimientos.add(inventario.activarSeguimiento(10));
+            }));
+        }
+        hilos.forEach(Thread::start);
+        inicio.countDown();
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        /* Cada activación reemplaza y desconecta a la anterior: solo el último sigue viendo las ventas */
+        inventario.aumentarCantidad("0000", "M", 1);
+        assertEquals(1, seguimientos.stream().filter(seguimiento -> seguimiento.totalTalla("M") == 6).count());
+    }
+
+    private static void esperar(CountDownLatch inicio) {
+        try {
+            inicio.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,6 +2,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -17,7 +18,7 @@ public class InventarioTest {
         archivo = "inventario_test.csv";
 
         // Crear un archivo de prueba con datos iniciales
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(archivo))) {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(archivo, StandardCharsets.UTF_8))) {
             bw.write("SKU,Nombre,Descripción,Tallas\n");
             bw.write("1,Camiseta,Camiseta de algodón,S:10|M:5\n");
             bw.write("2,Pantalón,Pantalón de mezclilla,S:8|M:4\n");
@@ -53,7 +54,7 @@ public void testGuardarInventario() {
     inventario.guardarInventario(archivo, arbolSku);
     
     // Leer el archivo y verificar que los cambios se hayan guardado
-    try (BufferedReader br = new BufferedReader(new FileReader(archivo))) {
+    try (BufferedReader br = new BufferedReader(new FileReader(archivo, StandardCharsets.UTF_8))) {
         String linea;
         boolean encontrado = false;
         while ((linea = br.readLine()) != null) {
@@ -102,7 +103,7 @@ public void testObtenerUltimoSku() {
 public void testCargarInventarioConArchivoVacio() {
     // Crear un archivo vacío para la prueba
     String archivoVacio = "inventario_vacio.csv";
-    try (BufferedWriter bw = new BufferedWriter(new FileWriter(archivoVacio))) {
+    try (BufferedWriter bw = new BufferedWriter(new FileWriter(archivoVacio, StandardCharsets.UTF_8))) {
         // No se escribe nada, el archivo queda vacío
     } catch (IOException e) {
         e.printStackTrace();
@@ -120,7 +121,7 @@ public void testCargarInventarioConArchivoVacio() {
 public void testCargarInventarioConFormatoIncorrecto() {
     // Crear un archivo con formato incorrecto
     String archivoIncorrecto = "inventario_incorrecto.csv";
-    try (BufferedWriter bw = new BufferedWriter(new FileWriter(archivoIncorrecto))) {
+    try (BufferedWriter bw = new BufferedWriter(new FileWriter(archivoIncorrecto, StandardCharsets.UTF_8))) {
         bw.write("SKU,Nombre,Descripción,Tallas\n");
         bw.write("1,Camiseta\n"); // Falta la parte de tallas
     } catch (IOException e) {
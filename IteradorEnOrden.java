@@ -0,0 +1,104 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @author Alejandra Avilés
+ * Iterador perezoso que recorre un árbol en orden (inorden), opcionalmente acotado a un rango de claves.
+ * Solo guarda el camino pendiente en un arreglo del tamaño de la altura del árbol,
+ * así que no copia los productos ni crea objetos por cada elemento.
+ * Con límites, desciende directamente hasta la primera clave del rango y se detiene al pasar el final,
+ * por lo que recorrer k productos cuesta O(log n + k).
+ */
+public class IteradorEnOrden implements Iterator<Producto> {
+    private final Nodo[] pila;
+    private int tope;
+    private final String hasta;
+    private final boolean hastaInclusivo;
+    private String ultimaClave;
+
+    /**
+     * Constructor del iterador sobre todo el árbol
+     * @param raiz La raíz del árbol a recorrer
+     * @param altura La altura del árbol, que limita el tamaño de la pila
+     */
+    public IteradorEnOrden(Nodo raiz, int altura) {
+        this(raiz, altura, null, true, null, true);
+    }
+
+    /**
+     * Constructor del iterador acotado a un rango de claves
+     * @param raiz La raíz del árbol a recorrer
+     * @param altura La altura del árbol, que limita el tamaño de la pila
+     * @param desde La clave inicial del rango, o null para empezar desde la menor
+     * @param desdeInclusivo true si la clave inicial forma parte del rango
+     * @param hasta La clave final del rango, o null para llegar hasta la mayor
+     * @param hastaInclusivo true si la clave final forma parte del rango
+     */
+    public IteradorEnOrden(Nodo raiz, int altura, String desde, boolean desdeInclusivo, String hasta, boolean hastaInclusivo) {
+        this.pila = new Nodo[altura];
+        this.tope = 0;
+        this.hasta = hasta;
+        this.hastaInclusivo = hastaInclusivo;
+        if (desde == null) {
+            apilarIzquierdos(raiz);
+        } else {
+            /* Solo se apilan los nodos que quedan dentro del rango; los menores se saltan por la derecha */
+            Nodo nodo = raiz;
+            while (nodo != null) {
+                int comparacion = nodo.clave.compareTo(desde);
+                if (comparacion > 0 || (comparacion == 0 && desdeInclusivo)) {
+                    pila[tope++] = nodo;
+                    nodo = nodo.izquierdo;
+                } else {
+                    nodo = nodo.derecho;
+                }
+            }
+        }
+        descartarFueraDeRango();
+    }
+
+    /**
+     * Apila un nodo y toda su rama izquierda
+     * @param nodo El nodo desde el que se desciende
+     */
+    private void apilarIzquierdos(Nodo nodo) {
+        while (nodo != null) {
+            pila[tope++] = nodo;
+            nodo = nodo.izquierdo;
+        }
+    }
+
+    /**
+     * Vacía la pila si el siguiente nodo ya pasó el final del rango
+     */
+    private void descartarFueraDeRango() {
+        if (hasta == null || tope == 0) { return; }
+        int comparacion = pila[tope - 1].clave.compareTo(hasta);
+        if (comparacion > 0 || (comparacion == 0 && !hastaInclusivo)) {
+            tope = 0;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return tope > 0;
+    }
+
+    @Override
+    public Producto next() {
+        if (tope == 0) { throw new NoSuchElementException(); }
+        Nodo nodo = pila[--tope];
+        apilarIzquierdos(nodo.derecho);
+        descartarFueraDeRango();
+        ultimaClave = nodo.clave;
+        return nodo.valor;
+    }
+
+    /**
+     * Clave del último producto entregado por next(), que sirve como cursor para continuar después
+     * @return La clave, o null si todavía no se llamó a next()
+     */
+    public String ultimaClave() {
+        return ultimaClave;
+    }
+}
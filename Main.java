@@ -12,12 +12,17 @@ public class Main {
      * @param args Argumentos de línea de comandos 
     */
     public static void main(String[] args) {
-        BinaryTree arbolSku = new BinaryTree();
-        BinaryTree arbolNombre = new BinaryTree();
-        Inventario inventario = new Inventario();
+        /* Un solo almacén mantiene ambos árboles y sus índices */
+        AlmacenInventario almacen = new AlmacenInventario("inventario_ropa_deportiva_30.csv");
+        /* Caché de los SKU más vendidos delante de las búsquedas */
+        almacen.activarCache(512);
+        /* Latencias y forma de los árboles, visibles por JMX (JConsole, VisualVM) */
+        almacen.activarMetricas();
 
         /* Carga de datos desde el CSV */
-        Inventario.cargarInventario("inventario_ropa_deportiva_30.csv", arbolSku, arbolNombre);
+        almacen.cargar();
+        /* Las ediciones se agregan a una bitácora en lugar de reescribir el CSV completo */
+        almacen.abrirBitacora();
         Scanner scanner = new Scanner(System.in);
         int opcion;
 
@@ -29,7 +34,9 @@ public class Main {
             System.out.println("3. Buscar producto por nombre");
             System.out.println("4. Editar producto");
             System.out.println("5. Agregar producto");
-            System.out.println("6. Salir");
+            System.out.println("6. Eliminar producto");
+            System.out.println("7. Cambiar nombre de producto");
+            System.out.println("8. Salir");
             System.out.print("Seleccione una opción: ");
             opcion = scanner.nextInt();
             scanner.nextLine(); // Limpieza del buffer
@@ -41,10 +48,10 @@ public class Main {
                 scanner.nextLine();
                 if (tipoListado == 1) {
                     System.out.println("Listado de productos por SKU:");
-                    arbolSku.listar(true);
+                    almacen.listar(true);
                 } else if (tipoListado == 2){
                     System.out.println("Listado de productos por Nombre:");
-                    arbolNombre.listar(false);
+                    almacen.listar(false);
                 } else {
                     System.out.println("Opción inválida. Regresando al menú.");
                 }
@@ -52,7 +59,7 @@ public class Main {
             case 2: /* Buscar producto por SKU */
                 System.out.print("Ingrese el SKU del producto: ");
                 String skuBuscar = scanner.nextLine();
-                Producto productoEncontrado = arbolSku.buscar(skuBuscar);
+                Producto productoEncontrado = almacen.buscar(skuBuscar);
                 if (productoEncontrado != null) {
                     System.out.println("Producto encontrado: " + productoEncontrado.getNombre() + ", " + productoEncontrado.getDescripcion() + ", Tallas: " + productoEncontrado.getTallas());
                 } else {
@@ -62,17 +69,20 @@ public class Main {
             case 3: /* Buscar producto por nombre */
                 System.out.println("Ingrese el nombre del producto: ");
                 String nombreBuscar = scanner.nextLine();
-                Producto productoPorNombre = arbolNombre.buscarPorNombre(nombreBuscar);
+                Producto productoPorNombre = almacen.buscarPorNombre(nombreBuscar);
                 if (productoPorNombre != null) {
                     System.out.println("Producto encontrado: " + productoPorNombre.getNombre() + ", " + productoPorNombre.getDescripcion() + ", Tallas: " + productoPorNombre.getTallas());
                 } else {
                     System.out.println("Producto no encontrado.");
+                    for (Producto parecido : almacen.buscarNombreAproximado(nombreBuscar, 5)) { /* Sugerencias ante errores de tipeo */
+                        System.out.println("¿Quiso decir: " + parecido.getNombre() + " (" + parecido.getSku() + ")?");
+                    }
                 }
                 break;
             case 4: /* Editar producto */
                 System.out.print("Ingrese el SKU del producto a editar: ");
                 String skuEditar = scanner.nextLine();
-                Producto productoEditar = arbolSku.buscar(skuEditar);
+                Producto productoEditar = almacen.buscar(skuEditar);
                 if (productoEditar != null) {
                     System.out.print("Ingrese la nueva descripción (deje en blanco para no cambiar): ");
                     String nuevaDescripcion = scanner.nextLine();
@@ -95,7 +105,7 @@ public class Main {
                         }
                     
                     /* Actualización del producto */
-                    inventario.editarProducto(arbolSku, skuEditar, nuevaDescripcion, operacion, cantidades, "inventario_ropa_deportiva_30.csv");
+                    almacen.editar(skuEditar, nuevaDescripcion, operacion, cantidades);
                     System.out.println("Producto actualizado.");
                     } else {
                     System.out.println("Producto no encontrado.");
@@ -114,7 +124,7 @@ public class Main {
 
                 System.out.println("Ingrese el nombre del nuevo producto: ");
                 String nuevoNombre = scanner.nextLine();
-                if (arbolNombre.buscar(nuevoNombre) != null){
+                if (almacen.buscarPorNombre(nuevoNombre) != null){
                     System.out.println("El producto con el nombre " + nuevoNombre + " ya existe en el sistema.");
                     return;
                 }
@@ -134,16 +144,34 @@ public class Main {
                         }
                     }
                 }
-                arbolSku.agregarProducto(arbolSku, arbolNombre, skuNuevo, nuevoNombre, nuevaDescripcion, tallas, "inventario_ropa_deportiva_30.csv");
-                System.out.println("Producto "+ skuNuevo + ": " + nuevoNombre + " agregado exitosamente.");
+                if (almacen.agregar(skuNuevo, nuevoNombre, nuevaDescripcion, tallas)) {
+                    System.out.println("Producto "+ skuNuevo + ": " + nuevoNombre + " agregado exitosamente.");
+                }
+                break;
+            case 6: /* Eliminar producto */
+                System.out.print("Ingrese el SKU del producto a eliminar: ");
+                String skuEliminar = scanner.nextLine();
+                if (almacen.eliminar(skuEliminar)) {
+                    System.out.println("Producto " + skuEliminar + " eliminado.");
+                }
+                break;
+            case 7: /* Cambiar nombre de producto */
+                System.out.print("Ingrese el SKU del producto: ");
+                String skuRenombrar = scanner.nextLine();
+                System.out.print("Ingrese el nuevo nombre: ");
+                String nombreNuevo = scanner.nextLine();
+                if (almacen.renombrar(skuRenombrar, nombreNuevo)) {
+                    System.out.println("Producto " + skuRenombrar + " renombrado a " + nombreNuevo + ".");
+                }
                 break;
-            case 6: /* Salir */
+            case 8: /* Salir */
+                almacen.cerrar(); /* Deja todos los cambios en el CSV */
                 System.out.println("Saliendo del programa.");
                 break;
             default: /* Opción inválida */
                 System.out.println("Opción no válida. Intente de nuevo.");
             }
-        } while (opcion != 6);
+        } while (opcion != 8);
             scanner.close();
         }
     }
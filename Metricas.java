@@ -0,0 +1,168 @@
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * @author Alejandra Avilés
+ * Métricas del inventario en ejecución, publicadas por JMX (por ejemplo, para verlas con JConsole o VisualVM).
+ * Por cada operación (buscar, buscarPorNombre, insertar, cargarInventario, guardarInventario) hay un
+ * histograma de latencias, y por cada árbol se publican la cantidad de nodos, la altura y la profundidad
+ * promedio de las búsquedas, que es la primera señal de que el árbol se degrada, además de los aciertos
+ * y fallos de su caché (ver BinaryTree.activarCache).
+ * Están apagadas hasta llamar a activar(...); apagadas, cada operación solo lee un booleano volatile.
+ */
+public final class Metricas {
+    public static final Operacion BUSCAR = new Operacion("BinaryTree.buscar");
+    public static final Operacion BUSCAR_POR_NOMBRE = new Operacion("BinaryTree.buscarPorNombre");
+    public static final Operacion INSERTAR = new Operacion("BinaryTree.insertar");
+    public static final Operacion CARGAR = new Operacion("Inventario.cargarInventario");
+    public static final Operacion GUARDAR = new Operacion("Inventario.guardarInventario");
+    private static final Operacion[] OPERACIONES = {BUSCAR, BUSCAR_POR_NOMBRE, INSERTAR, CARGAR, GUARDAR};
+    private static final String DOMINIO = "inventario";
+
+    private static volatile boolean activas;
+
+    private Metricas() { }
+
+    /**
+     * Enciende las métricas y las publica por JMX, junto con los indicadores de los árboles indicados
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     * @param arbolNombre El árbol binario que almacena productos por nombre
+     */
+    public static synchronized void activar(BinaryTree arbolSku, BinaryTree arbolNombre) {
+        try {
+            for (Operacion operacion : OPERACIONES) {
+                publicar(new ObjectName(DOMINIO + ":type=Operacion,name=" + operacion.nombre), operacion);
+            }
+            publicar(new ObjectName(DOMINIO + ":type=Arbol,name=sku"), new Arbol(arbolSku));
+            publicar(new ObjectName(DOMINIO + ":type=Arbol,name=nombre"), new Arbol(arbolNombre));
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+        activas = true;
+    }
+
+    /**
+     * Apaga las métricas (los valores acumulados se conservan)
+     */
+    public static void desactivar() {
+        activas = false;
+    }
+
+    /**
+     * Marca el inicio de una operación medida
+     * @return El instante actual en nanosegundos, o 0 si las métricas están apagadas
+     */
+    public static long inicio() {
+        return activas ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Registra una búsqueda que recorrió el árbol: su latencia y cuántos nodos visitó.
+     * Los aciertos de la caché solo registran su latencia en BUSCAR, para no bajar la profundidad promedio.
+     * @param arbol El árbol donde se buscó
+     * @param inicio El valor devuelto por inicio(); si es 0 no se registra nada
+     * @param nodos Los nodos visitados
+     */
+    static void registrarBusqueda(BinaryTree arbol, long inicio, int nodos) {
+        if (inicio != 0) {
+            BUSCAR.registrar(inicio);
+            arbol.busquedas.increment();
+            arbol.nodosVisitados.add(nodos);
+        }
+    }
+
+    /**
+     * Registra un objeto en el servidor JMX de la plataforma, reemplazando uno anterior con el mismo nombre
+     * @param nombre El nombre JMX
+     * @param mbean El objeto a publicar
+     * @throws JMException Si el registro falla
+     */
+    private static void publicar(ObjectName nombre, Object mbean) throws JMException {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        if (servidor.isRegistered(nombre)) {
+            servidor.unregisterMBean(nombre);
+        }
+        servidor.registerMBean(mbean, nombre);
+    }
+
+    /**
+     * Atributos JMX de una operación medida; las latencias se publican en microsegundos
+     */
+    public interface OperacionMBean {
+        long getCantidad();
+        double getPromedioMicros();
+        double getP50Micros();
+        double getP99Micros();
+        double getP999Micros();
+        double getMaximoMicros();
+        void reiniciar();
+    }
+
+    /**
+     * Latencias y conteo de una operación
+     */
+    public static final class Operacion implements OperacionMBean {
+        private final String nombre;
+        private final HistogramaLatencia histograma = new HistogramaLatencia();
+
+        private Operacion(String nombre) {
+            this.nombre = nombre;
+        }
+
+        /**
+         * Registra una ejecución que empezó en el instante indicado
+         * @param inicio El valor devuelto por Metricas.inicio(); si es 0 no se registra nada
+         */
+        public void registrar(long inicio) {
+            if (inicio != 0) {
+                histograma.registrar(System.nanoTime() - inicio);
+            }
+        }
+
+        public HistogramaLatencia getHistograma() { return histograma; }
+        @Override public long getCantidad() { return histograma.cantidad(); }
+        @Override public double getPromedioMicros() { return histograma.promedio() / 1000.0; }
+        @Override public double getP50Micros() { return histograma.percentil(50) / 1000.0; }
+        @Override public double getP99Micros() { return histograma.percentil(99) / 1000.0; }
+        @Override public double getP999Micros() { return histograma.percentil(99.9) / 1000.0; }
+        @Override public double getMaximoMicros() { return histograma.maximo() / 1000.0; }
+        @Override public void reiniciar() { histograma.reiniciar(); }
+    }
+
+    /**
+     * Atributos JMX de la forma de un árbol
+     */
+    public interface ArbolMBean {
+        int getNodos();
+        int getAltura();
+        long getBusquedas();
+        double getProfundidadPromedioBusqueda();
+        long getAciertosCache();
+        long getFallosCache();
+        double getTasaAciertosCache();
+    }
+
+    /**
+     * Indicadores de un árbol; se calculan al consultarlos, en O(1)
+     */
+    public static final class Arbol implements ArbolMBean {
+        private final BinaryTree arbol;
+
+        private Arbol(BinaryTree arbol) {
+            this.arbol = arbol;
+        }
+
+        @Override public int getNodos() { return arbol.tamano(); }
+        @Override public int getAltura() { return arbol.altura(); }
+        @Override public long getBusquedas() { return arbol.busquedas.sum(); }
+        @Override public double getProfundidadPromedioBusqueda() {
+            long busquedas = arbol.busquedas.sum();
+            return busquedas == 0 ? 0 : (double) arbol.nodosVisitados.sum() / busquedas;
+        }
+        @Override public long getAciertosCache() { return arbol.getCache() == null ? 0 : arbol.getCache().aciertos(); }
+        @Override public long getFallosCache() { return arbol.getCache() == null ? 0 : arbol.getCache().fallos(); }
+        @Override public double getTasaAciertosCache() { return arbol.getCache() == null ? 0 : arbol.getCache().tasaAciertos(); }
+    }
+}
@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class MetricasTest {
+
+    @AfterEach
+    public void tearDown() {
+        Metricas.desactivar();
+    }
+
+    @Test
+    public void testOperacionesYArbolesSePublicanPorJmx() throws Exception {
+        BinaryTree arbolSku = new BinaryTree();
+        BinaryTree arbolNombre = new BinaryTree();
+        Metricas.activar(arbolSku, arbolNombre);
+        Metricas.BUSCAR.reiniciar();
+        Inventario.cargarInventario("inventario_ropa_deportiva_30.csv", arbolSku, arbolNombre);
+        for (int i = 0; i < 10; i++) {
+            arbolSku.buscar("001");
+        }
+        arbolNombre.buscarPorNombre("cualquiera");
+
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        ObjectName buscar = new ObjectName("inventario:type=Operacion,name=BinaryTree.buscar");
+        assertEquals(10L, servidor.getAttribute(buscar, "Cantidad"));
+        assertTrue((Double) servidor.getAttribute(buscar, "P99Micros") > 0);
+
+        ObjectName sku = new ObjectName("inventario:type=Arbol,name=sku");
+        assertEquals(arbolSku.tamano(), servidor.getAttribute(sku, "Nodos"));
+        assertEquals(arbolSku.altura(), servidor.getAttribute(sku, "Altura"));
+        double profundidad = (Double) servidor.getAttribute(sku, "ProfundidadPromedioBusqueda");
+        assertTrue(profundidad >= 1 && profundidad <= arbolSku.altura());
+        assertTrue((Long) servidor.getAttribute(new ObjectName("inventario:type=Operacion,name=Inventario.cargarInventario"), "Cantidad") >= 1);
+    }
+
+    @Test
+    public void testLosAciertosDeCacheNoCuentanComoProfundidad() {
+        BinaryTree arbol = new BinaryTree();
+        for (int i = 0; i < 100; i++) {
+            String sku = String.format("%03d", i);
+            arbol.insertar(sku, new Producto(sku, "Producto " + sku, "Generado", Map.of("M", 1)));
+        }
+        arbol.activarCache(16);
+        Metricas.activar(arbol, new BinaryTree());
+        Metricas.BUSCAR.reiniciar();
+        arbol.buscar("050");
+        long nodos = arbol.nodosVisitados.sum();
+        for (int i = 0; i < 10; i++) {
+            arbol.buscar("050");
+        }
+
+        assertEquals(11, Metricas.BUSCAR.getCantidad());
+        assertEquals(10, arbol.getCache().aciertos());
+        assertEquals(1, arbol.busquedas.sum());
+        assertEquals(nodos, arbol.nodosVisitados.sum());
+    }
+
+    @Test
+    public void testApagadasNoRegistranNada() {
+        Metricas.desactivar();
+        Metricas.BUSCAR.reiniciar();
+        BinaryTree arbol = new BinaryTree();
+        arbol.buscar("1");
+        assertEquals(0, Metricas.BUSCAR.getCantidad());
+        assertEquals(0, arbol.busquedas.sum());
+    }
+}
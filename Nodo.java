@@ -7,6 +7,7 @@ public class Nodo {
     String clave;
     Producto valor;
     Nodo izquierdo, derecho;
+    int altura; /* Altura del subárbol con raíz en este nodo, usada para balancear */
 
     /**
      * Constructor de la clase Nodo
@@ -20,5 +21,6 @@ public class Nodo {
         this.valor = valor;
         this.izquierdo = null;
         this.derecho = null;
+        this.altura = 1;
     }
 }
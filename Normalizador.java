@@ -0,0 +1,29 @@
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * @author Alejandra Avilés
+ * Clase utilitaria que lleva los textos a una forma canónica para poder compararlos
+ * sin importar mayúsculas, tildes ni espacios al inicio o al final.
+ */
+public final class Normalizador {
+
+    private Normalizador() { }
+
+    /**
+     * Normaliza un texto: elimina espacios externos, quita tildes y diacríticos y lo pasa a minúsculas
+     * @param texto El texto a normalizar
+     * @return El texto normalizado ("  Pantalón " se convierte en "pantalon")
+     */
+    public static String normalizar(String texto) {
+        String recortado = texto.trim();
+        boolean esAscii = true;
+        for (int i = 0; i < recortado.length() && esAscii; i++) {
+            esAscii = recortado.charAt(i) < 0x80;
+        }
+        if (!esAscii) {
+            recortado = Normalizer.normalize(recortado, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        }
+        return recortado.toLowerCase(Locale.ROOT);
+    }
+}
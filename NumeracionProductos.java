@@ -0,0 +1,110 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Alejandra Avilés
+ * Numeración de productos compartida por los índices (IndiceTallas, IndiceTrigramas e IndiceInvertido).
+ * Cada producto recibe un número creciente, que los índices usan como posición en sus listas o mapas de bits.
+ * Al quitar un producto su número queda libre (el producto pasa a null) y los índices lo saltan al buscar.
+ * Cuando los números libres superan a los usados conviene compactar: el índice toma los vigentes,
+ * reinicia la numeración y los vuelve a agregar, así sus estructuras no crecen con productos eliminados.
+ * No se sincroniza; cada índice la usa con su propio monitor, si lo tiene.
+ */
+final class NumeracionProductos {
+    private static final int MINIMO_PARA_COMPACTAR = 1024;
+
+    private List<Producto> productos = new ArrayList<>(); /* Número -> producto, null si quedó libre */
+    private Map<Producto, Integer> numeros = new IdentityHashMap<>();
+    private int libres;
+
+    /**
+     * Da el siguiente número a un producto
+     * @param producto El producto
+     * @return Su número
+     */
+    int numerar(Producto producto) {
+        int numero = productos.size();
+        productos.add(producto);
+        numeros.put(producto, numero);
+        return numero;
+    }
+
+    /**
+     * Libera el número de un producto
+     * @param producto El producto
+     * @return El número que tenía, o -1 si no estaba numerado
+     */
+    int liberar(Producto producto) {
+        Integer numero = numeros.remove(producto);
+        if (numero == null) { return -1; }
+        productos.set(numero, null);
+        libres++;
+        return numero;
+    }
+
+    /**
+     * Número de un producto
+     * @param producto El producto
+     * @return Su número, o -1 si no está numerado
+     */
+    int numero(Producto producto) {
+        Integer numero = numeros.get(producto);
+        return numero == null ? -1 : numero;
+    }
+
+    /**
+     * Producto de un número
+     * @param numero El número, entre 0 y limite() - 1
+     * @return El producto, o null si el número quedó libre
+     */
+    Producto producto(int numero) {
+        return productos.get(numero);
+    }
+
+    /**
+     * Cantidad de números entregados desde la última compactación, libres incluidos
+     * @return El número que recibirá el siguiente producto
+     */
+    int limite() {
+        return productos.size();
+    }
+
+    /**
+     * Cantidad de productos numerados
+     * @return El número de productos vigentes
+     */
+    int tamano() {
+        return productos.size() - libres;
+    }
+
+    /**
+     * Indica si los números libres ya superan a los usados
+     * @return true si conviene compactar
+     */
+    boolean convieneCompactar() {
+        return libres >= MINIMO_PARA_COMPACTAR && libres > productos.size() - libres;
+    }
+
+    /**
+     * Productos vigentes
+     * @return Los productos, en orden de número
+     */
+    List<Producto> vigentes() {
+        List<Producto> vigentes = new ArrayList<>(tamano());
+        for (Producto producto : productos) {
+            if (producto != null) { vigentes.add(producto); }
+        }
+        return vigentes;
+    }
+
+    /**
+     * Olvida todos los números; el siguiente producto vuelve a recibir el 0
+     */
+    void reiniciar() {
+        productos = new ArrayList<>();
+        numeros = new IdentityHashMap<>();
+        libres = 0;
+    }
+}
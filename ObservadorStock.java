@@ -0,0 +1,18 @@
+/**
+ * @author Alejandra Avilés
+ * Recibe los cambios de cantidad de las tallas de un producto (ver Producto.agregarObservador).
+ * Se llama desde el hilo que hizo el cambio, sin candados tomados y después de aplicarlo; si varios hilos
+ * cambian la misma talla a la vez, los avisos pueden llegar en otro orden, así que quien necesite el
+ * valor vigente debe leerlo del producto en lugar de confiar en el último aviso.
+ */
+public interface ObservadorStock {
+
+    /**
+     * Una talla del producto cambió de cantidad (al agregarla, quitarla, sumar, restar o asignar)
+     * @param producto El producto
+     * @param idTalla El id de la talla en DiccionarioTallas
+     * @param anterior La cantidad antes del cambio (0 si la talla no existía)
+     * @param nueva La cantidad después del cambio (0 si la talla se quitó)
+     */
+    void cantidadCambiada(Producto producto, int idTalla, int anterior, int nueva);
+}
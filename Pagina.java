@@ -0,0 +1,39 @@
+import java.util.List;
+
+/**
+ * @author Alejandra Avilés
+ * Una página de productos en orden de clave, obtenida con BinaryTree.pagina.
+ * El cursor es la clave del último producto de la página: para pedir la siguiente se pasa como
+ * "después de", así que cada página cuesta O(log n + tamaño) aunque el árbol cambie entre una y otra.
+ */
+public class Pagina {
+    private final List<Producto> productos;
+    private final String cursor;
+    private final boolean hayMas;
+
+    /**
+     * Constructor de la clase Pagina
+     * @param productos Los productos de la página, en orden
+     * @param cursor La clave del último producto (si la página está vacía, el cursor pedido)
+     * @param hayMas true si quedan productos después de esta página
+     */
+    public Pagina(List<Producto> productos, String cursor, boolean hayMas) {
+        this.productos = productos;
+        this.cursor = cursor;
+        this.hayMas = hayMas;
+    }
+
+    /**
+     * @param getProductos Obtiene los productos de la página
+     * @return Los productos
+     *
+     * @param getCursor Obtiene la clave desde la que sigue la próxima página
+     * @return El cursor (si la página está vacía, el mismo que se pidió)
+     *
+     * @param hayMas Indica si hay más productos después de esta página
+     * @return true si hay más
+     */
+    public List<Producto> getProductos() { return productos; }
+    public String getCursor() { return cursor; }
+    public boolean hayMas() { return hayMas; }
+}
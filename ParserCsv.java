@@ -0,0 +1,265 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Alejandra Avilés
+ * Lector y escritor de registros del CSV de inventario.
+ * Recorre cada línea una sola vez carácter por carácter: no usa split ni arreglos intermedios,
+ * convierte las cantidades directamente a int (las tallas van a DiccionarioTallas, sin mapas ni Integer)
+ * y acepta campos entre comillas que contienen comas
+ * (las comillas internas se escriben dobles, como en "Camiseta ""Pro"", talla única").
+ * Los campos entre comillas no pueden contener saltos de línea porque los cargadores leen por línea.
+ */
+public final class ParserCsv {
+
+    private ParserCsv() { }
+
+    /**
+     * Convierte una línea (o un tramo de un texto mayor) en un producto
+     * @param texto El texto que contiene la línea
+     * @param inicio La posición donde empieza la línea
+     * @param fin La posición donde termina la línea (exclusiva, sin el salto de línea)
+     * @return El producto, o null si la línea no tiene los cuatro campos o las tallas están mal formadas
+     */
+    public static Producto parsear(String texto, int inicio, int fin) {
+        Cursor cursor = new Cursor(texto, inicio, fin);
+        String sku = cursor.siguienteCampo();
+        String nombre = cursor.siguienteCampo();
+        String descripcion = cursor.siguienteCampo();
+        if (descripcion == null || cursor.agotado()) {
+            return null;
+        }
+        return cursor.siguientesTallas(sku, nombre, descripcion);
+    }
+
+    /**
+     * Convierte una línea completa en un producto
+     * @param linea La línea con formato SKU,Nombre,Descripción,talla:cantidad|talla:cantidad
+     * @return El producto, o null si la línea es inválida
+     */
+    public static Producto parsear(String linea) {
+        return parsear(linea, 0, linea.length());
+    }
+
+    /**
+     * Obtiene solo el primer campo de una línea, sin procesar el resto
+     * @param linea La línea del CSV
+     * @return El primer campo (el SKU)
+     */
+    public static String primerCampo(String linea) {
+        return new Cursor(linea, 0, linea.length()).siguienteCampo();
+    }
+
+    /**
+     * Separa todos los campos de un tramo de texto, respetando las comillas.
+     * Pensado para registros cortos como los de la bitácora, no para la carga masiva.
+     * @param texto El texto que contiene el registro
+     * @param inicio La posición donde empieza el registro
+     * @param fin La posición donde termina el registro (exclusiva)
+     * @return Los campos en orden
+     */
+    public static List<String> campos(String texto, int inicio, int fin) {
+        List<String> campos = new ArrayList<>();
+        Cursor cursor = new Cursor(texto, inicio, fin);
+        String campo;
+        while ((campo = cursor.siguienteCampo()) != null) {
+            campos.add(campo);
+        }
+        return campos;
+    }
+
+    /**
+     * Indica si un tramo de texto solo contiene espacios, sin crear una subcadena
+     * @param texto El texto
+     * @param inicio La posición inicial
+     * @param fin La posición final (exclusiva)
+     * @return true si el tramo está vacío o es solo espacios
+     */
+    public static boolean esBlanco(String texto, int inicio, int fin) {
+        for (int i = inicio; i < fin; i++) {
+            if (texto.charAt(i) > ' ') { return false; }
+        }
+        return true;
+    }
+
+    /**
+     * Escribe un producto como una línea del CSV, poniendo comillas solo en los campos que las necesitan
+     * @param destino Donde se escribe la línea
+     * @param producto El producto a escribir
+     * @throws IOException Si ocurre un error al escribir
+     */
+    public static void escribir(Appendable destino, Producto producto) throws IOException {
+        escribirCampo(destino, producto.getSku());
+        destino.append(',');
+        escribirCampo(destino, producto.getNombre());
+        destino.append(',');
+        escribirCampo(destino, producto.getDescripcion());
+        destino.append(',');
+        for (int i = 0; i < producto.cantidadTallas(); i++) {
+            if (i > 0) { destino.append('|'); }
+            destino.append(producto.talla(i)).append(':').append(String.valueOf(producto.cantidad(i)));
+        }
+        destino.append('\n');
+    }
+
+    /**
+     * Escribe un campo, entre comillas si contiene comas, comillas o saltos de línea
+     * @param destino Donde se escribe el campo
+     * @param campo El valor del campo
+     * @throws IOException Si ocurre un error al escribir
+     */
+    public static void escribirCampo(Appendable destino, String campo) throws IOException {
+        boolean requiereComillas = false;
+        for (int i = 0; i < campo.length() && !requiereComillas; i++) {
+            char c = campo.charAt(i);
+            requiereComillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!requiereComillas) {
+            destino.append(campo);
+            return;
+        }
+        destino.append('"');
+        for (int i = 0; i < campo.length(); i++) {
+            char c = campo.charAt(i);
+            if (c == '"') { destino.append('"'); }
+            destino.append(c);
+        }
+        destino.append('"');
+    }
+
+    /**
+     * Posición de lectura dentro de una línea
+     */
+    private static final class Cursor {
+        private final String texto;
+        private final int fin;
+        private int posicion;
+        private boolean terminado;
+
+        Cursor(String texto, int inicio, int fin) {
+            this.texto = texto;
+            this.posicion = inicio;
+            this.fin = fin;
+        }
+
+        /**
+         * @return true si ya no quedan campos por leer
+         */
+        boolean agotado() {
+            return terminado;
+        }
+
+        /**
+         * Lee el siguiente campo y avanza después de la coma que lo termina
+         * @return El campo, o null si ya no quedan campos
+         */
+        String siguienteCampo() {
+            if (terminado) { return null; }
+            String campo;
+            if (posicion < fin && texto.charAt(posicion) == '"') {
+                campo = campoEntreComillas();
+            } else {
+                int inicio = posicion;
+                while (posicion < fin && texto.charAt(posicion) != ',') { posicion++; }
+                campo = texto.substring(inicio, posicion);
+            }
+            if (posicion < fin) {
+                posicion++; /* Salta la coma */
+            } else {
+                terminado = true;
+            }
+            return campo;
+        }
+
+        /**
+         * Lee un campo entre comillas; solo usa un StringBuilder si hay comillas dobles internas
+         * @return El campo sin las comillas externas
+         */
+        private String campoEntreComillas() {
+            int inicio = ++posicion;
+            StringBuilder conEscapes = null;
+            while (posicion < fin) {
+                char c = texto.charAt(posicion);
+                if (c == '"') {
+                    if (posicion + 1 < fin && texto.charAt(posicion + 1) == '"') {
+                        if (conEscapes == null) { conEscapes = new StringBuilder(); }
+                        conEscapes.append(texto, inicio, posicion + 1);
+                        posicion += 2;
+                        inicio = posicion;
+                        continue;
+                    }
+                    break;
+                }
+                posicion++;
+            }
+            String campo;
+            if (conEscapes == null) {
+                campo = texto.substring(inicio, posicion);
+            } else {
+                campo = conEscapes.append(texto, inicio, posicion).toString();
+            }
+            posicion++; /* Salta la comilla de cierre */
+            while (posicion < fin && texto.charAt(posicion) != ',') { posicion++; } /* Ignora lo que siga a la comilla */
+            return campo;
+        }
+
+        /**
+         * Lee el campo de tallas (talla:cantidad|talla:cantidad) convirtiendo las cantidades directamente a int,
+         * y arma el producto con los arreglos de ids y cantidades
+         * @param sku El SKU ya leído
+         * @param nombre El nombre ya leído
+         * @param descripcion La descripción ya leída
+         * @return El producto, o null si el campo de tallas está vacío o mal formado
+         */
+        Producto siguientesTallas(String sku, String nombre, String descripcion) {
+            int finCampo = posicion;
+            int separadores = 0;
+            while (finCampo < fin && texto.charAt(finCampo) != ',') {
+                if (texto.charAt(finCampo) == ':') { separadores++; }
+                finCampo++;
+            }
+            short[] ids = new short[separadores];
+            int[] cantidades = new int[separadores];
+            int cantidadTallas = 0;
+            int i = posicion;
+            while (i < finCampo) {
+                int inicioTalla = i;
+                while (i < finCampo && texto.charAt(i) != ':' && texto.charAt(i) != '|') { i++; }
+                if (i == finCampo || texto.charAt(i) != ':') {
+                    if (i == inicioTalla) { i++; continue; } /* Segmento vacío, como en "s:1||m:2" */
+                    return null;
+                }
+                short id = DiccionarioTallas.id(texto.substring(inicioTalla, i));
+                i++; /* Salta los dos puntos */
+                boolean negativo = i < finCampo && texto.charAt(i) == '-';
+                if (negativo) { i++; }
+                int inicioNumero = i;
+                long cantidad = 0;
+                while (i < finCampo && texto.charAt(i) >= '0' && texto.charAt(i) <= '9') {
+                    cantidad = cantidad * 10 + (texto.charAt(i) - '0');
+                    if (cantidad > Integer.MAX_VALUE) { return null; }
+                    i++;
+                }
+                if (i == inicioNumero || (i < finCampo && texto.charAt(i) != '|')) {
+                    return null;
+                }
+                int posicionTalla = 0;
+                while (posicionTalla < cantidadTallas && ids[posicionTalla] != id) { posicionTalla++; }
+                if (posicionTalla == cantidadTallas) { cantidadTallas++; } /* Una talla repetida se sobrescribe */
+                ids[posicionTalla] = id;
+                cantidades[posicionTalla] = (int) (negativo ? -cantidad : cantidad);
+                i++; /* Salta la barra */
+            }
+            if (cantidadTallas == 0) {
+                return null;
+            }
+            if (cantidadTallas < separadores) {
+                ids = Arrays.copyOf(ids, cantidadTallas);
+                cantidades = Arrays.copyOf(cantidades, cantidadTallas);
+            }
+            return new Producto(sku, nombre, descripcion, ids, cantidades);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+
+public class ParserCsvTest {
+
+    @Test
+    public void testParsearLineaSimple() {
+        Producto producto = ParserCsv.parsear("001,Camiseta Running,Camiseta ligera,s:10|xl:10|m:20");
+        assertNotNull(producto);
+        assertEquals("001", producto.getSku());
+        assertEquals("Camiseta Running", producto.getNombre());
+        assertEquals("Camiseta ligera", producto.getDescripcion());
+        assertEquals(3, producto.getTallas().size());
+        assertEquals(20, producto.getTallas().get("m"));
+    }
+
+    @Test
+    public void testParsearCamposEntreComillas() {
+        Producto producto = ParserCsv.parsear("002,\"Short \"\"Pro\"\"\",\"Tela elástica, ajuste cómodo\",s:1");
+        assertNotNull(producto);
+        assertEquals("Short \"Pro\"", producto.getNombre());
+        assertEquals("Tela elástica, ajuste cómodo", producto.getDescripcion());
+        assertEquals(1, producto.getTallas().get("s"));
+    }
+
+    @Test
+    public void testParsearTramoDeTexto() {
+        String texto = "1,a,b,s:1\n2,c,d,m:2\n";
+        Producto segundo = ParserCsv.parsear(texto, 10, 19);
+        assertEquals("2", segundo.getSku());
+        assertEquals(2, segundo.getTallas().get("m"));
+    }
+
+    @Test
+    public void testLineasInvalidas() {
+        assertNull(ParserCsv.parsear("1,Camiseta"));
+        assertNull(ParserCsv.parsear("1,Camiseta,Descripción"));
+        assertNull(ParserCsv.parsear("1,Camiseta,Descripción,"));
+        assertNull(ParserCsv.parsear("1,Camiseta,Descripción,s"));
+        assertNull(ParserCsv.parsear("1,Camiseta,Descripción,s:diez"));
+    }
+
+    @Test
+    public void testEscribirYVolverALeer() throws IOException {
+        Producto original = ParserCsv.parsear("003,\"Gorra, edición \"\"limitada\"\"\",Visera curva,m:4");
+        StringBuilder linea = new StringBuilder();
+        ParserCsv.escribir(linea, original);
+        Producto leido = ParserCsv.parsear(linea.substring(0, linea.length() - 1));
+        assertEquals(original.getNombre(), leido.getNombre());
+        assertEquals(original.getTallas(), leido.getTallas());
+        assertEquals("003", ParserCsv.primerCampo(linea.toString()));
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Alejandra Avilés
+ * Persistencia diferida (write-behind) del inventario.
+ * Las ediciones solo marcan el inventario como modificado; un hilo en segundo plano agrupa los cambios
+ * y guarda el CSV cada cierto intervalo o cuando se acumula un lote de cambios, lo que ocurra primero.
+ * La escritura se hace con EscrituraAtomica, así que un corte a mitad del guardado no pierde el inventario.
+ * Las modificaciones se hacen con modificar(...) para que la fotografía que se guarda sea consistente.
+ * Los cambios de cantidad sin candados (ver Producto.restarCantidad) solo avisan con registrarCambio().
+ */
+public class Persistidor {
+    private static final Map<String, Persistidor> ACTIVOS = new ConcurrentHashMap<>(); /* activo() se consulta en cada venta */
+
+    private final String archivo;
+    private final BinaryTree arbolSku;
+    private final int tamanoLote;
+    private final ScheduledExecutorService hilo;
+    private final AtomicInteger pendientes = new AtomicInteger();
+    private final AtomicBoolean programado = new AtomicBoolean();
+
+    /**
+     * Constructor del persistidor
+     * @param archivo La ruta del CSV del inventario
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     * @param intervaloMs Cada cuántos milisegundos se guardan los cambios pendientes
+     * @param tamanoLote La cantidad de cambios que dispara un guardado inmediato
+     */
+    private Persistidor(String archivo, BinaryTree arbolSku, long intervaloMs, int tamanoLote) {
+        this.archivo = archivo;
+        this.arbolSku = arbolSku;
+        this.tamanoLote = tamanoLote;
+        this.hilo = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread nuevo = new Thread(tarea, "persistidor-" + archivo);
+            nuevo.setDaemon(true);
+            return nuevo;
+        });
+        hilo.scheduleWithFixedDelay(() -> guardarPendientes(false), intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Activa el guardado diferido de un archivo
+     * @param archivo La ruta del CSV del inventario
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     * @param intervaloMs Cada cuántos milisegundos se guardan los cambios pendientes
+     * @param tamanoLote La cantidad de cambios que dispara un guardado inmediato
+     * @return El persistidor activo
+     */
+    public static synchronized Persistidor activar(String archivo, BinaryTree arbolSku, long intervaloMs, int tamanoLote) {
+        detener(archivo);
+        Persistidor persistidor = new Persistidor(archivo, arbolSku, intervaloMs, tamanoLote);
+        ACTIVOS.put(archivo, persistidor);
+        return persistidor;
+    }
+
+    /**
+     * Obtiene el persistidor activo de un archivo
+     * @param archivo La ruta del CSV del inventario
+     * @return El persistidor, o null si el archivo se guarda de forma síncrona
+     */
+    public static Persistidor activo(String archivo) {
+        return ACTIVOS.get(archivo);
+    }
+
+    /**
+     * Guarda los cambios pendientes y detiene el persistidor de un archivo
+     * @param archivo La ruta del CSV del inventario
+     */
+    public static synchronized void detener(String archivo) {
+        Persistidor persistidor = ACTIVOS.remove(archivo);
+        if (persistidor != null) {
+            persistidor.flush();
+            persistidor.hilo.shutdown();
+        }
+    }
+
+    /**
+     * Aplica un cambio al inventario y lo marca como pendiente de guardar.
+     * Al completar un lote, programa un guardado inmediato en segundo plano.
+     * @param cambio La modificación a aplicar sobre los árboles o productos
+     */
+    public void modificar(Runnable cambio) {
+        synchronized (this) {
+            cambio.run();
+            registrarCambio();
+        }
+    }
+
+    /**
+     * Marca como pendiente un cambio que ya se aplicó sin pasar por modificar(...), como una resta de
+     * stock con compareAndSet. No toma el candado: se cuenta después del cambio, así que si la fotografía
+     * en curso no lo alcanzó a ver, queda pendiente para el siguiente guardado.
+     */
+    public void registrarCambio() {
+        if (pendientes.incrementAndGet() >= tamanoLote && programado.compareAndSet(false, true)) {
+            hilo.execute(() -> guardarPendientes(false));
+        }
+    }
+
+    /**
+     * Guarda ya los cambios pendientes y espera a que queden en disco. Pensado para el cierre del programa.
+     */
+    public void flush() {
+        esperar(hilo.submit(() -> guardarPendientes(false)));
+    }
+
+    /**
+     * Guarda ya el inventario completo, tenga o no cambios pendientes, y espera a que quede en disco
+     */
+    public void guardarAhora() {
+        esperar(hilo.submit(() -> guardarPendientes(true)));
+    }
+
+    /**
+     * Espera a que termine un guardado
+     * @param guardado La tarea de guardado
+     */
+    private static void esperar(Future<?> guardado) {
+        try {
+            guardado.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Toma la fotografía del inventario bajo el candado (solo CPU) y la escribe fuera de él (disco).
+     * Siempre corre en el hilo del persistidor, así que las escrituras nunca se solapan.
+     * @param forzar true para guardar aunque no haya cambios pendientes
+     */
+    private void guardarPendientes(boolean forzar) {
+        String contenido;
+        int guardados;
+        synchronized (this) {
+            programado.set(false);
+            if (pendientes.get() == 0 && !forzar) { return; }
+            guardados = pendientes.getAndSet(0); /* Antes de la fotografía: lo que llegue después queda pendiente */
+            contenido = Inventario.serializarInventario(arbolSku);
+        }
+        try {
+            EscrituraAtomica.escribir(archivo, bw -> bw.write(contenido));
+        } catch (IOException e) {
+            e.printStackTrace();
+            pendientes.addAndGet(guardados); /* Se reintenta en el siguiente intervalo */
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PersistidorTest {
+    private BinaryTree arbolSku;
+    private BinaryTree arbolNombre;
+    private String archivo;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        arbolSku = new BinaryTree();
+        arbolNombre = new BinaryTree();
+        archivo = "inventario_persistidor_test.csv";
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(archivo, StandardCharsets.UTF_8))) {
+            bw.write("SKU,Nombre,Descripción,Tallas\n");
+            bw.write("1,Camiseta,Camiseta de algodón,S:10|M:5\n");
+        }
+        Inventario.cargarInventario(archivo, arbolSku, arbolNombre);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Persistidor.detener(archivo);
+        Files.deleteIfExists(Paths.get(archivo));
+    }
+
+    private Map<String, Integer> tallas(String talla, int cantidad) {
+        Map<String, Integer> tallas = new HashMap<>();
+        tallas.put(talla, cantidad);
+        return tallas;
+    }
+
+    private int cantidadGuardada(String sku, String talla) {
+        BinaryTree leido = new BinaryTree();
+        Inventario.cargarInventario(archivo, leido, new BinaryTree());
+        return leido.buscar(sku).getTallas().get(talla);
+    }
+
+    @Test
+    public void testCambiosSeAgrupanHastaElFlush() throws IOException {
+        Persistidor persistidor = Persistidor.activar(archivo, arbolSku, 60_000, 100);
+        List<String> original = Files.readAllLines(Paths.get(archivo));
+        Inventario inventario = new Inventario();
+        for (int i = 0; i < 10; i++) {
+            inventario.editarProducto(arbolSku, "1", null, "añadir", tallas("S", 1), archivo);
+        }
+        assertEquals(original, Files.readAllLines(Paths.get(archivo)), "Las ediciones no deberían escribir en disco.");
+        assertEquals(20, arbolSku.buscar("1").getTallas().get("S"));
+
+        persistidor.flush();
+        assertEquals(20, cantidadGuardada("1", "S"));
+    }
+
+    @Test
+    public void testLoteCompletoSeGuardaEnSegundoPlano() throws InterruptedException {
+        Persistidor persistidor = Persistidor.activar(archivo, arbolSku, 60_000, 3);
+        arbolSku.agregarProducto(arbolSku, arbolNombre, "2", "Gorra", "Gorra deportiva", tallas("M", 2), archivo);
+        Inventario inventario = new Inventario();
+        inventario.editarProducto(arbolSku, "1", null, "restar", tallas("M", 1), archivo);
+        inventario.editarProducto(arbolSku, "2", null, "añadir", tallas("M", 1), archivo);
+        persistidor.flush(); /* Espera el guardado del lote, que ya estaba en cola */
+        assertEquals(4, cantidadGuardada("1", "M"));
+        assertEquals(3, cantidadGuardada("2", "M"));
+    }
+
+    @Test
+    public void testIntervaloGuardaSinFlush() throws InterruptedException {
+        Persistidor.activar(archivo, arbolSku, 20, 1_000);
+        new Inventario().editarProducto(arbolSku, "1", null, "añadir", tallas("M", 5), archivo);
+        long limite = System.currentTimeMillis() + 5_000;
+        while (cantidadGuardada("1", "M") != 10 && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+        assertEquals(10, cantidadGuardada("1", "M"));
+        assertFalse(Files.exists(Paths.get(archivo + ".tmp")), "No debería quedar el archivo temporal.");
+    }
+}
@@ -1,12 +1,49 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * @author Alejandra Avilés
  * Clase representante de un producto con cada uno de sus caracterísiticas solicitadas.
+ * Las tallas se guardan como dos arreglos paralelos: el id de cada talla en DiccionarioTallas y su cantidad.
+ * Con unas seis tallas por producto esto ocupa unos 80 bytes, frente a unos 400 de un HashMap con
+ * sus entradas e Integer, es decir, alrededor de 300 MB menos por millón de productos.
+ * getTallas sigue entregando un Map, que es una vista sobre esos arreglos.
+ *
+ * Las cantidades se modifican con compareAndSet sobre el arreglo (VarHandle), sin candados, así que varias
+ * cajas pueden vender la misma talla a la vez sin perder ni sobrevender unidades. Solo agregar o quitar
+ * tallas toma el monitor del producto: copia las cantidades a arreglos nuevos marcando las casillas viejas
+ * como movidas, de modo que un compareAndSet sobre el arreglo viejo falla y se repite sobre el nuevo.
+ * Cada cambio de cantidad actualiza el total del producto (cantidadTotal) y se avisa a sus ObservadorStock,
+ * si tiene (por ejemplo, IndiceTallas y SeguimientoStock).
  */
 public class Producto {
+    private static final short[] SIN_IDS = new short[0];
+    private static final int[] SIN_CANTIDADES = new int[0];
+
+    private static final VarHandle CANTIDAD = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final int MOVIDA = Integer.MIN_VALUE; /* Casilla ya copiada a un arreglo nuevo */
+    private static final ObservadorStock[] SIN_OBSERVADORES = new ObservadorStock[0];
+    private static final VarHandle TOTAL;
+    static {
+        try {
+            TOTAL = MethodHandles.lookup().findVarHandle(Producto.class, "total", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private String sku, nombre, descripcion;
-    private Map<String, Integer> tallas;
+    private volatile short[] idsTallas = SIN_IDS;
+    private volatile int[] cantidades = SIN_CANTIDADES;
+    private volatile int total; /* Suma de las cantidades de todas las tallas */
+    private volatile ObservadorStock[] observadores = SIN_OBSERVADORES;
 
     /**
      * Constructor de la clase Producto
@@ -19,70 +56,479 @@ public class Producto {
         this.sku = sku;
         this.nombre = nombre;
         this.descripcion = descripcion;
-        this.tallas = tallas;
+        setTallas(tallas);
+    }
+
+    /**
+     * Constructor usado por los cargadores, que reciben las tallas ya convertidas a ids
+     * @param sku           El SKU del producto
+     * @param nombre        El nombre del producto
+     * @param descripcion   La descripción del producto
+     * @param idsTallas     Los ids de las tallas en DiccionarioTallas (sin repetir)
+     * @param cantidades    La cantidad de cada talla, en la misma posición que su id
+     */
+    Producto(String sku, String nombre, String descripcion, short[] idsTallas, int[] cantidades) {
+        this.sku = sku;
+        this.nombre = nombre;
+        this.descripcion = descripcion;
+        this.idsTallas = idsTallas;
+        this.cantidades = cantidades;
+        int suma = 0;
+        for (int cantidad : cantidades) { suma += cantidad; }
+        this.total = suma;
     }
+
     /* Getters */
     /**
      * @param getSku Obtiene el SKU del producto
      * @return El SKU
-     * 
+     *
      * @param getNombre Obtiene el nombre del producto
      * @return nombre
-     * 
+     *
      * @param getDescripcion Obtiene la descripción del producto
      * @return descripcion
-     * 
-     * @param getTallas Obtiene la descripción del producto
+     *
+     * @param getTallas Obtiene las tallas del producto, como una vista modificable sobre sus arreglos
      * @return tallas y cantidades
      */
     public String getSku() { return sku; }
     public String getNombre() { return nombre; }
     public String getDescripcion() { return descripcion; }
-    public Map<String, Integer> getTallas() { return tallas; }
+    public Map<String, Integer> getTallas() { return new VistaTallas(); }
 
     /* Setters */
         /**
      * @param setSku Establece el SKU del producto
-     * 
+     *
      * @param setNombre Establece el nombre del producto
-     * 
+     *
      * @param setDescripcion Establece la descripción del producto
-     * 
-     * @param setTallas Establece la descripción del producto
+     *
+     * @param setTallas Establece las tallas del producto (null equivale a ninguna)
      */
     public void setSku(String sku) { this.sku = sku; }
     public void setNombre(String nombre) { this.nombre = nombre; }
     public void setDescripcion(String descripcion) { this.descripcion = descripcion; }
-    public void setTallas(Map<String, Integer> tallas) { this.tallas = tallas; }
+    public void setTallas(Map<String, Integer> tallas) {
+        int[] avisos = reemplazarTallas(tallas);
+        /* Los avisos salen fuera del monitor: un observador puede tomar el suyo y luego llamar a quitarObservador */
+        for (int i = 0; i < avisos.length; i += 3) {
+            notificar(avisos[i], avisos[i + 1], avisos[i + 2]);
+        }
+    }
+
+    /**
+     * Reemplaza los arreglos de tallas con el monitor tomado, sin avisar a los observadores
+     * @param tallas Las tallas nuevas (null equivale a ninguna)
+     * @return Los cambios a avisar, de a tres enteros: id de la talla, cantidad anterior y cantidad nueva
+     */
+    private synchronized int[] reemplazarTallas(Map<String, Integer> tallas) {
+        short[] idsViejos = idsTallas;
+        int[] viejas = congelar(); /* Las restas en curso sobre los arreglos viejos reintentan sobre los nuevos */
+        short[] ids = SIN_IDS;
+        int[] valores = SIN_CANTIDADES;
+        if (tallas != null && !tallas.isEmpty()) {
+            ids = new short[tallas.size()];
+            valores = new int[tallas.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> en : tallas.entrySet()) {
+                ids[i] = DiccionarioTallas.id(en.getKey());
+                valores[i] = en.getValue();
+                i++;
+            }
+        }
+        publicar(ids, valores);
+        int[] avisos = new int[(idsViejos.length + ids.length) * 3];
+        int cantidad = 0;
+        for (int i = 0; i < idsViejos.length; i++) {
+            int posicion = posicion(ids, idsViejos[i]);
+            avisos[cantidad++] = idsViejos[i];
+            avisos[cantidad++] = viejas[i];
+            avisos[cantidad++] = posicion < 0 ? 0 : valores[posicion];
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (posicion(idsViejos, ids[i]) < 0) {
+                avisos[cantidad++] = ids[i];
+                avisos[cantidad++] = 0;
+                avisos[cantidad++] = valores[i];
+            }
+        }
+        return Arrays.copyOf(avisos, cantidad);
+    }
+
+    /* Acceso directo a las tallas, sin crear objetos */
+    /**
+     * Los accesos por posición suponen que no se quitan tallas a la vez (agregar sí es seguro);
+     * quien pueda competir con una baja de talla usa copiarTallas
+     * @param cantidadTallas Cantidad de tallas que tiene el producto
+     * @param talla Etiqueta de la talla en una posición (de 0 a cantidadTallas - 1)
+     * @param cantidad Cantidad de la talla en una posición
+     * @param cantidadTotal Suma de las cantidades de todas las tallas, mantenida con cada cambio
+     * @param cantidadDe Cantidad de una talla por su etiqueta, o 0 si el producto no la tiene
+     */
+    public int cantidadTallas() { return idsTallas.length; }
+    public int cantidadTotal() { return total; }
+    public String talla(int posicion) { return DiccionarioTallas.etiqueta(idsTallas[posicion]); }
+    public int cantidad(int posicion) {
+        int valor;
+        while ((valor = (int) CANTIDAD.getVolatile(cantidades, posicion)) == MOVIDA) {
+            Thread.onSpinWait(); /* Otro hilo está pasando las tallas a arreglos nuevos */
+        }
+        return valor;
+    }
+    short idTalla(int posicion) { return idsTallas[posicion]; }
+    public int cantidadDe(String talla) {
+        return cantidadDeId(DiccionarioTallas.buscar(talla));
+    }
+
+    /**
+     * Copia de las tallas vigentes que no depende de las posiciones, así que sirve aunque otro hilo quite
+     * tallas a la vez. Se leen las cantidades antes que los ids (ver publicar()): si entre ambas lecturas
+     * se publicaron arreglos nuevos, las cantidades leídas ya estaban movidas y se reintenta.
+     * @return De a dos enteros: id de la talla en DiccionarioTallas y su cantidad
+     */
+    int[] copiarTallas() {
+        while (true) {
+            int[] valores = cantidades;
+            short[] ids = idsTallas;
+            if (ids.length == valores.length) {
+                int[] copia = new int[ids.length * 2];
+                int i = 0;
+                for (; i < ids.length; i++) {
+                    int valor = (int) CANTIDAD.getVolatile(valores, i);
+                    if (valor == MOVIDA) { break; }
+                    copia[2 * i] = ids[i];
+                    copia[2 * i + 1] = valor;
+                }
+                if (i == ids.length) { return copia; }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Cantidad de una talla por su id en DiccionarioTallas
+     * @param id El id de la talla (o -1)
+     * @return La cantidad, o 0 si el producto no tiene esa talla
+     */
+    int cantidadDeId(int id) {
+        while (true) {
+            int[] valores = cantidades; /* Primero las cantidades y luego los ids, ver publicar() */
+            int posicion = posicion(idsTallas, id);
+            if (posicion < 0) { return 0; }
+            if (posicion < valores.length) {
+                int valor = (int) CANTIDAD.getVolatile(valores, posicion);
+                if (valor != MOVIDA) { return valor; }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Busca la posición de una talla en un arreglo de ids
+     * @param ids Los ids de las tallas del producto
+     * @param id El id de la talla (o -1)
+     * @return La posición, o -1 si el producto no tiene esa talla
+     */
+    private static int posicion(short[] ids, int id) {
+        if (id < 0) { return -1; }
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) { return i; }
+        }
+        return -1;
+    }
+
+    /**
+     * Agrega una talla con cantidad 0 si el producto todavía no la tiene
+     * @param id El id de la talla
+     */
+    private synchronized void agregarTalla(short id) {
+        if (posicion(idsTallas, id) >= 0) { return; }
+        int anteriores = idsTallas.length;
+        short[] ids = Arrays.copyOf(idsTallas, anteriores + 1);
+        ids[anteriores] = id;
+        publicar(ids, Arrays.copyOf(congelar(), anteriores + 1));
+    }
+
+    /**
+     * Quita una talla de los arreglos y lo avisa a los observadores, ya fuera del monitor
+     * @param id El id de la talla
+     * @return La cantidad que tenía, o null si el producto no la tenía
+     */
+    private Integer quitarTalla(int id) {
+        Integer anterior = sacarTalla(id);
+        if (anterior != null) {
+            notificar(id, anterior, 0);
+        }
+        return anterior;
+    }
+
+    /**
+     * Quita una talla de los arreglos con el monitor tomado, sin avisar a los observadores
+     * @param id El id de la talla
+     * @return La cantidad que tenía, o null si el producto no la tenía
+     */
+    private synchronized Integer sacarTalla(int id) {
+        int posicion = posicion(idsTallas, id);
+        if (posicion < 0) { return null; }
+        int[] actuales = congelar();
+        int ultimas = idsTallas.length - posicion - 1;
+        short[] ids = new short[idsTallas.length - 1];
+        int[] valores = new int[actuales.length - 1];
+        System.arraycopy(idsTallas, 0, ids, 0, posicion);
+        System.arraycopy(actuales, 0, valores, 0, posicion);
+        System.arraycopy(idsTallas, posicion + 1, ids, posicion, ultimas);
+        System.arraycopy(actuales, posicion + 1, valores, posicion, ultimas);
+        publicar(ids, valores);
+        return actuales[posicion];
+    }
+
+    /**
+     * Marca cada casilla del arreglo de cantidades actual como movida y devuelve una copia de sus valores.
+     * getAndSet es atómico, así que cualquier compareAndSet concurrente queda en la copia o falla y se reintenta.
+     * Se llama con el monitor del producto tomado.
+     * @return Las cantidades vigentes al momento de congelar
+     */
+    private int[] congelar() {
+        int[] viejas = cantidades;
+        int[] copia = new int[viejas.length];
+        for (int i = 0; i < viejas.length; i++) {
+            copia[i] = (int) CANTIDAD.getAndSet(viejas, i, MOVIDA);
+        }
+        return copia;
+    }
+
+    /**
+     * Publica arreglos nuevos: primero los ids y luego las cantidades. Como los lectores leen en el orden
+     * contrario, un lector con cantidades viejas e ids nuevos siempre encuentra la casilla movida y reintenta.
+     * @param ids Los ids nuevos
+     * @param valores Las cantidades nuevas
+     */
+    private void publicar(short[] ids, int[] valores) {
+        idsTallas = ids;
+        cantidades = valores;
+    }
+
+    /**
+     * Agrega un observador de los cambios de cantidad
+     * @param observador El observador
+     */
+    public synchronized void agregarObservador(ObservadorStock observador) {
+        ObservadorStock[] nuevos = Arrays.copyOf(observadores, observadores.length + 1);
+        nuevos[observadores.length] = observador;
+        observadores = nuevos;
+    }
+
+    /**
+     * Quita un observador agregado antes
+     * @param observador El observador
+     */
+    public synchronized void quitarObservador(ObservadorStock observador) {
+        for (int i = 0; i < observadores.length; i++) {
+            if (observadores[i] == observador) {
+                ObservadorStock[] nuevos = new ObservadorStock[observadores.length - 1];
+                System.arraycopy(observadores, 0, nuevos, 0, i);
+                System.arraycopy(observadores, i + 1, nuevos, i, nuevos.length - i);
+                observadores = nuevos;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Registra un cambio de cantidad: lo suma al total y lo avisa a los observadores. Se llama después
+     * de aplicar el cambio, así que un observador puede leer la cantidad vigente
+     * @param id El id de la talla
+     * @param anterior La cantidad antes del cambio
+     * @param nueva La cantidad después del cambio
+     */
+    private void notificar(int id, int anterior, int nueva) {
+        if (anterior == nueva) { return; }
+        TOTAL.getAndAdd(this, nueva - anterior);
+        for (ObservadorStock observador : observadores) {
+            observador.cantidadCambiada(this, id, anterior, nueva);
+        }
+    }
+
+    /**
+     * Asigna la cantidad de una talla, agregándola si no existe
+     * @param talla La talla
+     * @param cantidad La cantidad nueva
+     */
+    private void asignar(String talla, int cantidad) {
+        short id = DiccionarioTallas.id(talla);
+        while (true) {
+            int[] valores = cantidades;
+            int posicion = posicion(idsTallas, id);
+            if (posicion < 0) {
+                agregarTalla(id);
+                continue;
+            }
+            if (posicion < valores.length) {
+                int actual = (int) CANTIDAD.getVolatile(valores, posicion);
+                if (actual != MOVIDA && CANTIDAD.compareAndSet(valores, posicion, actual, cantidad)) {
+                    notificar(id, actual, cantidad);
+                    return;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
 
-    /** 
+    /**
      * Actualización de las tallas de productos con nuevas cantidades.
-     * 
+     *
      * @param nuevasTallas Un mapa de tallas y la cantidad de productos por agregar (actualizar)
     */
     public void actualizarTallas(Map<String, Integer> nuevasTallas) {
         for (Map.Entry<String, Integer> en : nuevasTallas.entrySet()) {
-            String talla = en.getKey();
-            Integer cantidad = en.getValue();
-            tallas.put(talla, cantidad);
+            asignar(en.getKey(), en.getValue());
         }
     }
 
+    /**
+     * Suma unidades a una talla sin candados (compareAndSet); si la talla no existe, se agrega
+     * @param talla La talla
+     * @param cantidad Las unidades a sumar
+     */
     public void aumentarCantidad(String talla, int cantidad) {
-        tallas.put(talla, tallas.getOrDefault(talla, 0) + cantidad);
-    }
-    
-    public void restarCantidad(String talla, int cantidad) {
-        if (tallas.containsKey(talla)) {
-            int nuevaCantidad = tallas.get(talla) - cantidad;
-            if (nuevaCantidad < 0) {
-                System.out.println("No hay suficiente cantidad para restar de la talla " + talla);
-            } else {
-                tallas.put(talla, nuevaCantidad);
+        short id = DiccionarioTallas.id(talla);
+        while (true) {
+            int[] valores = cantidades;
+            int posicion = posicion(idsTallas, id);
+            if (posicion < 0) {
+                agregarTalla(id);
+                continue;
             }
-        } else {
-            System.out.println("La talla " + talla + " no existe en el producto.");
+            if (posicion < valores.length) {
+                int actual = (int) CANTIDAD.getVolatile(valores, posicion);
+                if (actual != MOVIDA && CANTIDAD.compareAndSet(valores, posicion, actual, actual + cantidad)) {
+                    notificar(id, actual, actual + cantidad);
+                    return;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Devuelve unidades reservadas antes con restarCantidad. A diferencia de aumentarCantidad no agrega la
+     * talla: si se quitó mientras tanto, las unidades ya no tienen dónde volver. Una casilla movida solo
+     * indica que la talla se está copiando a un arreglo nuevo, así que se reintenta sobre ese arreglo.
+     * @param talla La talla
+     * @param cantidad Las unidades a devolver
+     * @return EXITO, o TALLA_INEXISTENTE si la talla ya no existe
+     */
+    ResultadoStock devolverCantidad(String talla, int cantidad) {
+        int id = DiccionarioTallas.buscar(talla);
+        while (true) {
+            int[] valores = cantidades;
+            int posicion = posicion(idsTallas, id);
+            if (posicion < 0) { return ResultadoStock.TALLA_INEXISTENTE; }
+            if (posicion < valores.length) {
+                int actual = (int) CANTIDAD.getVolatile(valores, posicion);
+                if (actual != MOVIDA && CANTIDAD.compareAndSet(valores, posicion, actual, actual + cantidad)) {
+                    notificar(id, actual, actual + cantidad);
+                    return ResultadoStock.EXITO;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Resta unidades de una talla sin candados: con compareAndSet se reserva la cantidad completa o no
+     * se resta nada, así que dos ventas simultáneas nunca dejan la talla en negativo.
+     * @param talla La talla
+     * @param cantidad Las unidades a restar
+     * @return EXITO, INSUFICIENTE si no alcanzan las unidades o TALLA_INEXISTENTE
+     */
+    public ResultadoStock restarCantidad(String talla, int cantidad) {
+        int id = DiccionarioTallas.buscar(talla);
+        while (true) {
+            int[] valores = cantidades;
+            int posicion = posicion(idsTallas, id);
+            if (posicion < 0) { return ResultadoStock.TALLA_INEXISTENTE; }
+            if (posicion < valores.length) {
+                int actual = (int) CANTIDAD.getVolatile(valores, posicion);
+                if (actual != MOVIDA) {
+                    if (actual - cantidad < 0) { return ResultadoStock.INSUFICIENTE; }
+                    if (CANTIDAD.compareAndSet(valores, posicion, actual, actual - cantidad)) {
+                        notificar(id, actual, actual - cantidad);
+                        return ResultadoStock.EXITO;
+                    }
+                    continue; /* Otra venta cambió la cantidad; se reintenta con el valor nuevo */
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Vista de las tallas como Map; lee y escribe directamente sobre los arreglos del producto
+     */
+    private class VistaTallas extends AbstractMap<String, Integer> {
+        @Override
+        public int size() {
+            return idsTallas.length;
+        }
+
+        @Override
+        public boolean containsKey(Object talla) {
+            return posicion(idsTallas, DiccionarioTallas.buscar(talla)) >= 0;
+        }
+
+        @Override
+        public Integer get(Object talla) {
+            return containsKey(talla) ? cantidadDe((String) talla) : null;
+        }
+
+        @Override
+        public Integer put(String talla, Integer cantidad) {
+            Integer anterior = get(talla);
+            asignar(talla, cantidad);
+            return anterior;
+        }
+
+        @Override
+        public Integer remove(Object talla) {
+            return quitarTalla(DiccionarioTallas.buscar(talla));
+        }
+
+        @Override
+        public Set<Map.Entry<String, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Integer>>() {
+                @Override
+                public int size() {
+                    return idsTallas.length;
+                }
+
+                @Override
+                public Iterator<Map.Entry<String, Integer>> iterator() {
+                    return new Iterator<Map.Entry<String, Integer>>() {
+                        private int siguiente = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return siguiente < idsTallas.length;
+                        }
+
+                        @Override
+                        public Map.Entry<String, Integer> next() {
+                            if (!hasNext()) { throw new NoSuchElementException(); }
+                            int posicion = siguiente++;
+                            return new AbstractMap.SimpleImmutableEntry<>(talla(posicion), cantidad(posicion));
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (siguiente == 0) { throw new IllegalStateException(); }
+                            quitarTalla(idsTallas[--siguiente]);
+                        }
+                    };
+                }
+            };
         }
     }
-    
-}
\ No newline at end of file
+}
@@ -1,8 +1,11 @@
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ProductoTest {
     private Producto producto;
@@ -64,17 +67,83 @@ public class ProductoTest {
 
     @Test
     public void testRestarCantidad() {
-        producto.restarCantidad("S", 3);
+        assertEquals(ResultadoStock.EXITO, producto.restarCantidad("S", 3));
         assertEquals(7, producto.getTallas().get("S")); // 10 - 3
 
         producto.restarCantidad("M", 5);
         assertEquals(0, producto.getTallas().get("M")); // 5 - 5
 
         // Intentar restar más de lo que hay
-        producto.restarCantidad("S", 10); // Debería imprimir un mensaje
+        assertEquals(ResultadoStock.INSUFICIENTE, producto.restarCantidad("S", 10));
         assertEquals(7, producto.getTallas().get("S")); // Sin cambios
 
         // Intentar restar de una talla que no existe
-        producto.restarCantidad("L", 1); // Debería imprimir un mensaje
+        assertEquals(ResultadoStock.TALLA_INEXISTENTE, producto.restarCantidad("L", 1));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAccesoDirectoYVistaDeTallas() {
+        assertEquals(2, producto.cantidadTallas());
+        assertEquals(10, producto.cantidadDe("S"));
+        assertEquals(0, producto.cantidadDe("XXL")); // talla inexistente
+
+        // La vista escribe sobre los arreglos del producto
+        Map<String, Integer> vista = producto.getTallas();
+        vista.put("L", 4);
+        vista.remove("M");
+        assertEquals(4, producto.cantidadDe("L"));
+        assertFalse(producto.getTallas().containsKey("M"));
+        assertEquals(2, producto.cantidadTallas());
+
+        // Las etiquetas repetidas comparten el mismo id en el diccionario
+        Producto otro = new Producto("SKU789", "Short", "Short deportivo", Map.of("L", 1));
+        assertSame(producto.talla(producto.cantidadTallas() - 1), otro.talla(0));
+    }
+
+    @Test
+    public void testRestasConcurrentesNoSobrevenden() throws InterruptedException {
+        producto.setTallas(Map.of("S", 1000));
+        AtomicInteger vendidas = new AtomicInteger();
+        AtomicInteger rechazadas = new AtomicInteger();
+        List<Thread> hilos = new ArrayList<>();
+        for (int h = 0; h < 8; h++) {
+            int hilo = h;
+            hilos.add(new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    if (producto.restarCantidad("S", 1) == ResultadoStock.EXITO) {
+                        vendidas.incrementAndGet();
+                    } else {
+                        rechazadas.incrementAndGet();
+                    }
+                    if (i % 20 == 0) {
+                        producto.aumentarCantidad("T" + hilo + "-" + i, 1); // Agrega tallas mientras se vende
+                    }
+                }
+            }));
+        }
+        hilos.forEach(Thread::start);
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        assertEquals(1000, vendidas.get());
+        assertEquals(600, rechazadas.get());
+        assertEquals(0, producto.cantidadDe("S"));
+        assertEquals(81, producto.cantidadTallas()); // S y 80 tallas nuevas
+    }
+
+    @Test
+    public void testObservadorRecibeCadaCambio() {
+        List<String> avisos = new ArrayList<>();
+        producto.agregarObservador((p, idTalla, anterior, nueva) ->
+            avisos.add(DiccionarioTallas.etiqueta(idTalla) + ":" + anterior + "->" + nueva));
+        producto.restarCantidad("M", 5);
+        producto.aumentarCantidad("L", 2);
+        producto.restarCantidad("S", 50); /* Insuficiente: no cambia nada */
+        producto.getTallas().remove("S");
+        assertEquals(List.of("M:5->0", "L:0->2", "S:10->0"), avisos);
+
+        avisos.clear();
+        producto.setTallas(Map.of("L", 2, "XL", 1));
+        assertEquals(List.of("XL:0->1"), avisos); /* M estaba en 0 y L no cambió */
+    }
+}
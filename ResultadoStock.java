@@ -0,0 +1,15 @@
+/**
+ * @author Alejandra Avilés
+ * Resultado de restar unidades de una talla. Reemplaza los mensajes impresos para que
+ * quien vende decida qué hacer cuando la resta no se puede completar.
+ */
+public enum ResultadoStock {
+    /** Se restó la cantidad completa */
+    EXITO,
+    /** No hay unidades suficientes; no se restó nada */
+    INSUFICIENTE,
+    /** El producto no tiene esa talla */
+    TALLA_INEXISTENTE,
+    /** No existe un producto con ese SKU */
+    PRODUCTO_INEXISTENTE
+}
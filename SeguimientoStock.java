@@ -0,0 +1,377 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author Alejandra Avilés
+ * Seguimiento del stock para reposición, sin recorrer el inventario.
+ * Cada producto se guarda en un montículo mínimo indexado según su total de unidades (Producto.cantidadTotal);
+ * como el seguimiento es ObservadorStock de cada producto, una venta solo lo reacomoda en O(log n).
+ * - menores(K): los K productos con menos unidades, en O(K log K) recorriendo el montículo desde la raíz.
+ * - debajoDe(T): los productos con menos de T unidades, en O(m) para m resultados: se poda el montículo
+ *   y se ordena por conteo, ya que los totales bajo el umbral caen en un rango chico.
+ * - totalTalla: unidades de una talla en todo el inventario, sumadas con cada cambio.
+ * - Oyente: recibe un aviso cuando el total de un producto baja del umbral, sin consultar periódicamente.
+ * Al quitar un producto, el último del montículo ocupa su lugar y el de número más alto toma su número,
+ * así que los arreglos siempre miden lo que el catálogo vigente.
+ */
+public class SeguimientoStock implements ObservadorStock {
+    private final int umbral;
+    private final List<Oyente> oyentes = new CopyOnWriteArrayList<>();
+    private final Map<Producto, Integer> numeros = new IdentityHashMap<>();
+    private Producto[] productos = new Producto[16]; /* Número -> producto */
+    private int[] posiciones = new int[16]; /* Número -> posición en el montículo */
+    private int[] monticulo = new int[16]; /* Números de producto, con el menor total en la raíz */
+    private int[] totales = new int[16]; /* Total con el que está ubicado cada elemento, en el orden del montículo */
+    private int tamano;
+    private long[] totalesPorTalla = new long[0]; /* Id de talla en DiccionarioTallas -> unidades */
+
+    /**
+     * Recibe los avisos de stock bajo
+     */
+    public interface Oyente {
+        /**
+         * El total de un producto bajó del umbral (se avisa una vez por cada cruce)
+         * @param producto El producto
+         * @param total Su total de unidades en ese momento
+         */
+        void stockBajo(Producto producto, int total);
+    }
+
+    /**
+     * Constructor del seguimiento
+     * @param umbral Los productos con menos unidades que este valor se consideran con stock bajo
+     */
+    public SeguimientoStock(int umbral) {
+        this.umbral = umbral;
+    }
+
+    /**
+     * Agrega un producto y empieza a observar sus cambios de cantidad
+     * @param producto El producto
+     */
+    public void agregar(Producto producto) {
+        synchronized (this) {
+            if (numeros.containsKey(producto)) { return; }
+            int numero = numeros.size();
+            if (numero == productos.length) {
+                int capacidad = numero * 2;
+                productos = Arrays.copyOf(productos, capacidad);
+                totales = Arrays.copyOf(totales, capacidad);
+                posiciones = Arrays.copyOf(posiciones, capacidad);
+                monticulo = Arrays.copyOf(monticulo, capacidad);
+            }
+            numeros.put(producto, numero);
+            productos[numero] = producto;
+            /* Primero el observador: un cambio durante la lectura de abajo se vuelve a revisar al avisarse */
+            producto.agregarObservador(this);
+            totales[tamano] = producto.cantidadTotal();
+            monticulo[tamano] = numero;
+            posiciones[numero] = tamano;
+            subir(tamano++);
+            int[] tallas = producto.copiarTallas(); /* Otro hilo puede estar quitando tallas */
+            for (int i = 0; i < tallas.length; i += 2) {
+                sumarTalla(tallas[i], tallas[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Quita un producto y deja de observarlo. Sus cantidades actuales se restan de los totales por talla;
+     * igual que al agregarlo, una venta que ocurra justo mientras se quita puede quedar contada.
+     * @param producto El producto
+     */
+    public synchronized void quitar(Producto producto) {
+        Integer numero = numeros.remove(producto);
+        if (numero == null) { return; }
+        producto.quitarObservador(this);
+        int[] tallas = producto.copiarTallas();
+        for (int i = 0; i < tallas.length; i += 2) {
+            sumarTalla(tallas[i], -tallas[i + 1]);
+        }
+        int posicion = posiciones[numero];
+        tamano--;
+        if (posicion != tamano) {
+            monticulo[posicion] = monticulo[tamano];
+            totales[posicion] = totales[tamano];
+            posiciones[monticulo[posicion]] = posicion;
+            reubicar(posicion);
+        }
+        int ultimo = numeros.size(); /* Número más alto en uso antes de quitar */
+        if (numero != ultimo) {
+            Producto movido = productos[ultimo];
+            productos[numero] = movido;
+            numeros.put(movido, numero);
+            posiciones[numero] = posiciones[ultimo];
+            monticulo[posiciones[numero]] = numero;
+            reubicar(posiciones[numero]); /* El número desempata, así que puede cambiar su lugar */
+        }
+        productos[ultimo] = null;
+    }
+
+    /**
+     * Deja de observar todos los productos; se llama cuando el seguimiento se reemplaza por otro
+     */
+    public synchronized void desconectar() {
+        for (int numero = 0; numero < numeros.size(); numero++) {
+            productos[numero].quitarObservador(this);
+        }
+    }
+
+    /**
+     * Agrega un oyente de avisos de stock bajo
+     * @param oyente El oyente
+     */
+    public void agregarOyente(Oyente oyente) {
+        oyentes.add(oyente);
+    }
+
+    /**
+     * Umbral de stock bajo
+     * @return El umbral
+     */
+    public int getUmbral() {
+        return umbral;
+    }
+
+    /**
+     * Reubica el producto en el montículo, suma el cambio al total de la talla y avisa a los oyentes
+     * si el producto cruzó el umbral hacia abajo. Los oyentes se llaman fuera del monitor.
+     */
+    @Override
+    public void cantidadCambiada(Producto producto, int idTalla, int anterior, int nueva) {
+        int total;
+        boolean cruzo;
+        synchronized (this) {
+            Integer numero = numeros.get(producto);
+            if (numero == null) { return; }
+            sumarTalla(idTalla, nueva - anterior);
+            /* Se usa el total vigente: los avisos de hilos distintos pueden llegar desordenados */
+            total = producto.cantidadTotal();
+            int posicion = posiciones[numero];
+            int previo = totales[posicion];
+            if (total == previo) { return; }
+            totales[posicion] = total;
+            if (total < previo) {
+                subir(posicion);
+            } else {
+                bajar(posicion);
+            }
+            cruzo = previo >= umbral && total < umbral;
+        }
+        if (cruzo) {
+            for (Oyente oyente : oyentes) {
+                oyente.stockBajo(producto, total);
+            }
+        }
+    }
+
+    /**
+     * Los productos con menos unidades
+     * @param cantidad La cantidad de productos (K)
+     * @return Hasta K productos, del que tiene menos unidades al que tiene más
+     */
+    public synchronized List<Producto> menores(int cantidad) {
+        return recorrerEnOrden(cantidad);
+    }
+
+    /**
+     * Los productos con menos unidades que un valor
+     * @param umbral El valor (T)
+     * @return Los productos con total menor que T, del que tiene menos unidades al que tiene más
+     *         (entre productos con el mismo total, en cualquier orden)
+     */
+    public synchronized List<Producto> debajoDe(int umbral) {
+        /* Recorrido en profundidad que poda cada subárbol cuya raíz ya no está debajo del umbral */
+        int[] encontrados = new int[16];
+        int cantidad = 0;
+        int minimo = Integer.MAX_VALUE;
+        int[] pila = new int[64];
+        int cima = 0;
+        if (tamano > 0) { pila[cima++] = 0; }
+        while (cima > 0) {
+            int posicion = pila[--cima];
+            if (totales[posicion] >= umbral) { continue; }
+            if (cantidad == encontrados.length) { encontrados = Arrays.copyOf(encontrados, cantidad * 2); }
+            encontrados[cantidad++] = posicion;
+            minimo = Math.min(minimo, totales[posicion]);
+            for (int hijo = 2 * posicion + 1; hijo <= 2 * posicion + 2 && hijo < tamano; hijo++) {
+                if (cima == pila.length) { pila = Arrays.copyOf(pila, cima * 2); }
+                pila[cima++] = hijo;
+            }
+        }
+        return ordenarPorTotal(encontrados, cantidad, minimo, umbral);
+    }
+
+    /**
+     * Ordena posiciones del montículo por total. Los totales caen en [minimo, umbral), que suele ser un rango
+     * chico, así que se usa ordenamiento por conteo en O(m + rango); si el rango es grande se usa Arrays.sort.
+     * @param posiciones Las posiciones encontradas
+     * @param cantidad Cuántas posiciones son válidas
+     * @param minimo El menor total entre ellas
+     * @param umbral El límite (exclusivo) de los totales
+     * @return Los productos ordenados por total
+     */
+    private List<Producto> ordenarPorTotal(int[] posiciones, int cantidad, int minimo, int umbral) {
+        List<Producto> resultado = new ArrayList<>(cantidad);
+        long rango = (long) umbral - minimo;
+        if (cantidad == 0) { return resultado; }
+        if (rango > 4L * cantidad + 1024) {
+            long[] claves = new long[cantidad];
+            for (int i = 0; i < cantidad; i++) {
+                claves[i] = ((long) totales[posiciones[i]] << 32) | monticulo[posiciones[i]];
+            }
+            Arrays.sort(claves);
+            for (long clave : claves) {
+                resultado.add(productos[(int) clave]);
+            }
+            return resultado;
+        }
+        int[] inicios = new int[(int) rango + 1];
+        for (int i = 0; i < cantidad; i++) {
+            inicios[totales[posiciones[i]] - minimo + 1]++;
+        }
+        for (int i = 1; i < inicios.length; i++) {
+            inicios[i] += inicios[i - 1];
+        }
+        Producto[] ordenados = new Producto[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            ordenados[inicios[totales[posiciones[i]] - minimo]++] = productos[monticulo[posiciones[i]]];
+        }
+        resultado.addAll(Arrays.asList(ordenados));
+        return resultado;
+    }
+
+    /**
+     * Unidades de una talla en todos los productos seguidos. Cada producto aporta sus cantidades al
+     * agregarse y luego cada cambio; una venta que ocurra justo mientras el producto se agrega puede
+     * contarse dos veces, así que conviene agregar los productos antes de abrir las ventas.
+     * @param talla La talla
+     * @return La suma de sus cantidades
+     */
+    public synchronized long totalTalla(String talla) {
+        int id = DiccionarioTallas.buscar(talla);
+        return id >= 0 && id < totalesPorTalla.length ? totalesPorTalla[id] : 0;
+    }
+
+    /**
+     * Cantidad de productos seguidos
+     * @return El número de productos
+     */
+    public synchronized int tamano() {
+        return tamano;
+    }
+
+    /**
+     * Extrae productos en orden de total sin modificar el montículo: una cola auxiliar parte de la raíz y,
+     * cada vez que saca una posición, agrega sus dos hijos. Solo visita los resultados y sus hijos.
+     * @param maximo La cantidad máxima de productos
+     * @return Los productos en orden ascendente de total
+     */
+    private List<Producto> recorrerEnOrden(int maximo) {
+        List<Producto> resultado = new ArrayList<>();
+        if (tamano == 0 || maximo <= 0) { return resultado; }
+        PriorityQueue<Integer> frontera = new PriorityQueue<>((a, b) -> comparar(a, b));
+        frontera.add(0);
+        while (!frontera.isEmpty() && resultado.size() < maximo) {
+            int posicion = frontera.poll();
+            resultado.add(productos[monticulo[posicion]]);
+            for (int hijo = 2 * posicion + 1; hijo <= 2 * posicion + 2 && hijo < tamano; hijo++) {
+                frontera.add(hijo);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Compara dos posiciones del montículo por total y, ante empate, por número (el orden de llegada,
+     * salvo para el producto que se renumera al quitar otro)
+     * @param a Una posición
+     * @param b Otra posición
+     * @return Negativo si a va antes que b
+     */
+    private int comparar(int a, int b) {
+        int porTotal = Integer.compare(totalEn(a), totalEn(b));
+        return porTotal != 0 ? porTotal : Integer.compare(monticulo[a], monticulo[b]);
+    }
+
+    /**
+     * Total del producto ubicado en una posición del montículo
+     * @param posicion La posición
+     * @return El total
+     */
+    private int totalEn(int posicion) {
+        return totales[posicion]; /* Junto al montículo, así que recorrerlo no salta por la memoria */
+    }
+
+    /**
+     * Sube un elemento mientras vaya antes que su padre
+     * @param posicion La posición del elemento
+     */
+    private void subir(int posicion) {
+        while (posicion > 0) {
+            int padre = (posicion - 1) / 2;
+            if (comparar(padre, posicion) <= 0) { return; }
+            intercambiar(posicion, padre);
+            posicion = padre;
+        }
+    }
+
+    /**
+     * Baja un elemento mientras alguno de sus hijos vaya antes que él
+     * @param posicion La posición del elemento
+     */
+    private void bajar(int posicion) {
+        while (true) {
+            int menor = posicion;
+            for (int hijo = 2 * posicion + 1; hijo <= 2 * posicion + 2 && hijo < tamano; hijo++) {
+                if (comparar(hijo, menor) < 0) { menor = hijo; }
+            }
+            if (menor == posicion) { return; }
+            intercambiar(posicion, menor);
+            posicion = menor;
+        }
+    }
+
+    /**
+     * Sube o baja un elemento hasta su lugar, después de que cambió lo que se compara
+     * @param posicion La posición del elemento
+     */
+    private void reubicar(int posicion) {
+        int numero = monticulo[posicion];
+        subir(posicion);
+        bajar(posiciones[numero]);
+    }
+
+    /**
+     * Intercambia dos posiciones del montículo y actualiza el índice de posiciones
+     * @param a Una posición
+     * @param b Otra posición
+     */
+    private void intercambiar(int a, int b) {
+        int numero = monticulo[a];
+        monticulo[a] = monticulo[b];
+        monticulo[b] = numero;
+        int total = totales[a];
+        totales[a] = totales[b];
+        totales[b] = total;
+        posiciones[monticulo[a]] = a;
+        posiciones[monticulo[b]] = b;
+    }
+
+    /**
+     * Suma unidades al total de una talla; se llama con el monitor tomado
+     * @param idTalla El id de la talla
+     * @param unidades Las unidades (negativas para restar)
+     */
+    private void sumarTalla(int idTalla, int unidades) {
+        if (idTalla >= totalesPorTalla.length) {
+            totalesPorTalla = Arrays.copyOf(totalesPorTalla, Math.max(idTalla + 1, totalesPorTalla.length * 2));
+        }
+        totalesPorTalla[idTalla] += unidades;
+    }
+}
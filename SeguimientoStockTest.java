@@ -0,0 +1,144 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class SeguimientoStockTest {
+
+    private static List<String> skus(List<Producto> productos) {
+        List<String> skus = new ArrayList<>();
+        for (Producto producto : productos) {
+            skus.add(producto.getSku());
+        }
+        return skus;
+    }
+
+    private static BinaryTree arbol() {
+        BinaryTree arbolSku = new BinaryTree();
+        arbolSku.insertar("1", new Producto("1", "Camiseta", "Algodón", Map.of("M", 3, "L", 1)));
+        arbolSku.insertar("2", new Producto("2", "Short", "Dry-fit", Map.of("M", 10, "L", 4)));
+        arbolSku.insertar("3", new Producto("3", "Gorra", "Ajustable", Map.of("S", 2)));
+        arbolSku.insertar("4", new Producto("4", "Chaqueta", "Impermeable", Map.of("M", 7)));
+        return arbolSku;
+    }
+
+    @Test
+    public void testTotalDelProducto() {
+        Producto producto = new Producto("1", "Camiseta", "Algodón", Map.of("M", 3, "L", 1));
+        assertEquals(4, producto.cantidadTotal());
+        producto.aumentarCantidad("S", 5);
+        producto.restarCantidad("M", 2);
+        producto.actualizarTallas(Map.of("L", 10));
+        assertEquals(16, producto.cantidadTotal());
+        producto.getTallas().remove("L");
+        assertEquals(6, producto.cantidadTotal());
+    }
+
+    @Test
+    public void testMenoresYDebajoDe() {
+        BinaryTree arbolSku = arbol();
+        SeguimientoStock seguimiento = arbolSku.activarSeguimiento(5);
+        assertEquals(List.of("3", "1"), skus(seguimiento.menores(2)));
+        assertEquals(List.of("3", "1"), skus(seguimiento.debajoDe(5)));
+        assertEquals(List.of("3", "1", "4", "2"), skus(seguimiento.menores(10)));
+        assertEquals(20, seguimiento.totalTalla("M"));
+
+        arbolSku.buscar("2").restarCantidad("M", 10);
+        arbolSku.buscar("3").aumentarCantidad("S", 20);
+        arbolSku.insertar("5", new Producto("5", "Medias", "Algodón", Map.of("M", 0)));
+        List<String> bajos = skus(seguimiento.debajoDe(5));
+        assertEquals("5", bajos.get(0));
+        assertEquals(Set.of("1", "2"), new HashSet<>(bajos.subList(1, 3))); /* Ambos con 4 unidades */
+        assertEquals(List.of("5", "1", "2"), skus(seguimiento.menores(3))); /* Los empates, por llegada */
+        assertEquals(10, seguimiento.totalTalla("M"));
+        assertEquals(22, seguimiento.totalTalla("S"));
+    }
+
+    @Test
+    public void testAvisaUnaVezAlCruzarElUmbral() {
+        BinaryTree arbolSku = arbol();
+        SeguimientoStock seguimiento = arbolSku.activarSeguimiento(5);
+        List<String> avisos = new ArrayList<>();
+        seguimiento.agregarOyente((producto, total) -> avisos.add(producto.getSku() + ":" + total));
+        Producto chaqueta = arbolSku.buscar("4");
+        chaqueta.restarCantidad("M", 1); /* 6: sigue sobre el umbral */
+        chaqueta.restarCantidad("M", 2); /* 4: cruza */
+        chaqueta.restarCantidad("M", 1); /* 3: ya estaba abajo */
+        chaqueta.aumentarCantidad("M", 10);
+        chaqueta.restarCantidad("M", 13); /* 0: cruza otra vez */
+        assertEquals(List.of("4:4", "4:0"), avisos);
+    }
+
+    @Test
+    public void testCoincideConUnRecorridoTrasCambiosAlAzar() {
+        BinaryTree arbolSku = new BinaryTree();
+        Random azar = new Random(7);
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Producto producto = new Producto(String.format("%04d", i), "Producto " + i, "Generado", Map.of("M", azar.nextInt(50)));
+            productos.add(producto);
+            arbolSku.insertar(producto.getSku(), producto);
+        }
+        SeguimientoStock seguimiento = arbolSku.activarSeguimiento(10);
+        for (int i = 0; i < 5000; i++) {
+            Producto producto = productos.get(azar.nextInt(productos.size()));
+            if (azar.nextBoolean()) {
+                producto.aumentarCantidad(azar.nextBoolean() ? "M" : "L", azar.nextInt(5));
+            } else {
+                producto.restarCantidad("M", azar.nextInt(5));
+            }
+        }
+        List<Integer> esperados = new ArrayList<>();
+        long totalM = 0;
+        for (Producto producto : productos) {
+            esperados.add(producto.cantidadTotal());
+            totalM += producto.cantidadDe("M");
+        }
+        esperados.sort(null);
+        List<Integer> obtenidos = new ArrayList<>();
+        for (Producto producto : seguimiento.menores(20)) {
+            obtenidos.add(producto.cantidadTotal());
+        }
+        assertEquals(esperados.subList(0, 20), obtenidos);
+        assertEquals(totalM, seguimiento.totalTalla("M"));
+        for (Producto producto : seguimiento.debajoDe(10)) {
+            assertTrue(producto.cantidadTotal() < 10);
+        }
+        assertEquals(esperados.stream().filter(total -> total < 10).count(), seguimiento.debajoDe(10).size());
+    }
+
+    @Test
+    public void testQuitarMantieneElMonticulo() {
+        SeguimientoStock seguimiento = new SeguimientoStock(5);
+        List<Producto> productos = new ArrayList<>();
+        Random azar = new Random(11);
+        for (int i = 0; i < 500; i++) {
+            Producto producto = new Producto(String.valueOf(i), "Producto " + i, "Generado", Map.of("M", azar.nextInt(100)));
+            productos.add(producto);
+            seguimiento.agregar(producto);
+        }
+        long totalM = 0;
+        for (int i = 0; i < productos.size(); i++) {
+            if (i % 3 == 0) {
+                seguimiento.quitar(productos.get(i));
+            } else {
+                totalM += productos.get(i).cantidadDe("M");
+            }
+        }
+        productos.get(0).restarCantidad("M", productos.get(0).cantidadDe("M")); /* Ya no se observa */
+        assertEquals(333, seguimiento.tamano());
+        assertEquals(totalM, seguimiento.totalTalla("M"));
+        List<Producto> menores = seguimiento.menores(333);
+        assertEquals(333, menores.size());
+        for (int i = 1; i < menores.size(); i++) {
+            assertTrue(menores.get(i - 1).cantidadTotal() <= menores.get(i).cantidadTotal());
+        }
+        assertFalse(menores.contains(productos.get(0)));
+        productos.get(1).aumentarCantidad("M", 1000); /* Un producto renumerado sigue reubicándose */
+        assertSame(productos.get(1), seguimiento.menores(333).get(332));
+    }
+}
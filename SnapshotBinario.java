@@ -0,0 +1,181 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Alejandra Avilés
+ * Formato binario versionado del inventario para arrancar sin volver a procesar el CSV.
+ * El CSV sigue siendo el formato de intercambio; este archivo es una fotografía para carga rápida.
+ *
+ * Estructura (enteros en big-endian, cadenas como longitud + bytes UTF-8; la longitud usa 7 bits por byte,
+ * así que las cadenas de menos de 128 bytes solo ocupan uno extra):
+ * <pre>
+ *   int    MAGICO ("INVB")
+ *   short  VERSION
+ *   int    cantidad de tallas distintas, seguida de cada etiqueta (diccionario compartido)
+ *   int    cantidad de productos, seguida de cada producto en orden de SKU:
+ *          sku, nombre, descripcion, short cantidad de tallas, y por talla: short id en el diccionario, int cantidad
+ * </pre>
+ * Como los productos ya vienen ordenados por SKU, el árbol de SKU se construye en bloque sin ordenar.
+ */
+public final class SnapshotBinario {
+    static final int MAGICO = 0x494E5642; /* "INVB" */
+    static final short VERSION = 1;
+
+    private SnapshotBinario() { }
+
+    /**
+     * Exporta el inventario al formato binario, reemplazando el archivo de forma atómica
+     * @param archivo La ruta del archivo binario
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     * @throws IOException Si ocurre un error al escribir
+     */
+    public static void exportar(String archivo, BinaryTree arbolSku) throws IOException {
+        /* Ids del archivo por id global de DiccionarioTallas, para que el archivo tenga su propio diccionario */
+        int[] idsArchivo = new int[DiccionarioTallas.cantidad()];
+        Arrays.fill(idsArchivo, -1);
+        List<String> diccionario = new ArrayList<>();
+        for (Producto producto : arbolSku) {
+            for (int t = 0; t < producto.cantidadTallas(); t++) {
+                short id = producto.idTalla(t);
+                if (idsArchivo[id] < 0) {
+                    idsArchivo[id] = diccionario.size();
+                    diccionario.add(DiccionarioTallas.etiqueta(id));
+                }
+            }
+        }
+        EscrituraAtomica.escribirBinario(archivo, salida -> {
+            salida.writeInt(MAGICO);
+            salida.writeShort(VERSION);
+            salida.writeInt(diccionario.size());
+            for (String talla : diccionario) {
+                escribirCadena(salida, talla);
+            }
+            salida.writeInt(arbolSku.tamano());
+            for (Producto producto : arbolSku) {
+                escribirCadena(salida, producto.getSku());
+                escribirCadena(salida, producto.getNombre());
+                escribirCadena(salida, producto.getDescripcion());
+                salida.writeShort(producto.cantidadTallas());
+                for (int t = 0; t < producto.cantidadTallas(); t++) {
+                    salida.writeShort(idsArchivo[producto.idTalla(t)]);
+                    salida.writeInt(producto.cantidad(t));
+                }
+            }
+        });
+    }
+
+    /**
+     * Importa el inventario desde el formato binario leyendo el archivo mapeado en memoria
+     * @param archivo La ruta del archivo binario
+     * @param arbolSku El árbol binario que almacena productos por SKU
+     * @param arbolNombre El árbol binario que almacena productos por nombre
+     * @throws IOException Si el archivo no existe, está dañado o es de otra versión
+     */
+    public static void importar(String archivo, BinaryTree arbolSku, BinaryTree arbolNombre) throws IOException {
+        List<Producto> productos;
+        try (FileChannel canal = FileChannel.open(Paths.get(archivo), StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE) {
+                throw new IOException("El archivo binario supera el tamaño que se puede mapear: " + archivo);
+            }
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            productos = leerProductos(mapa, archivo);
+        }
+        /* Los productos vienen en orden de SKU: el árbol se arma en bloque sin ordenar */
+        String[] skus = new String[productos.size()];
+        Producto[] porSku = productos.toArray(new Producto[0]);
+        for (int i = 0; i < porSku.length; i++) {
+            skus[i] = porSku[i].getSku();
+        }
+        arbolSku.cargarOrdenados(skus, porSku, porSku.length);
+        Inventario.cargarEnArbol(arbolNombre, productos, Producto::getNombre);
+        arbolNombre.indexarNombres();
+    }
+
+    /**
+     * Lee el encabezado, el diccionario y los productos del buffer
+     * @param buffer El contenido del archivo
+     * @param archivo La ruta, para los mensajes de error
+     * @return Los productos en orden de SKU
+     * @throws IOException Si el archivo no tiene el formato esperado
+     */
+    private static List<Producto> leerProductos(ByteBuffer buffer, String archivo) throws IOException {
+        try {
+            if (buffer.getInt() != MAGICO) {
+                throw new IOException("El archivo no es un inventario binario: " + archivo);
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("Versión de inventario binario no soportada (" + version + "): " + archivo);
+            }
+            byte[] auxiliar = new byte[256];
+            short[] diccionario = new short[buffer.getInt()]; /* Id del archivo -> id global */
+            for (int i = 0; i < diccionario.length; i++) {
+                diccionario[i] = DiccionarioTallas.id(leerCadena(buffer, auxiliar));
+            }
+            int cantidad = buffer.getInt();
+            List<Producto> productos = new ArrayList<>(cantidad);
+            for (int i = 0; i < cantidad; i++) {
+                String sku = leerCadena(buffer, auxiliar);
+                String nombre = leerCadena(buffer, auxiliar);
+                String descripcion = leerCadena(buffer, auxiliar);
+                int cantidadTallas = buffer.getShort();
+                short[] ids = new short[cantidadTallas];
+                int[] cantidades = new int[cantidadTallas];
+                for (int t = 0; t < cantidadTallas; t++) {
+                    ids[t] = diccionario[buffer.getShort()];
+                    cantidades[t] = buffer.getInt();
+                }
+                productos.add(new Producto(sku, nombre, descripcion, ids, cantidades));
+            }
+            return productos;
+        } catch (RuntimeException e) {
+            throw new IOException("Inventario binario dañado: " + archivo, e);
+        }
+    }
+
+    /**
+     * Escribe una cadena como longitud seguida de sus bytes UTF-8
+     * @param salida El flujo de salida
+     * @param cadena La cadena
+     * @throws IOException Si ocurre un error al escribir
+     */
+    private static void escribirCadena(DataOutputStream salida, String cadena) throws IOException {
+        byte[] bytes = cadena.getBytes(StandardCharsets.UTF_8);
+        int longitud = bytes.length;
+        while (longitud >= 0x80) {
+            salida.writeByte((longitud & 0x7F) | 0x80);
+            longitud >>>= 7;
+        }
+        salida.writeByte(longitud);
+        salida.write(bytes);
+    }
+
+    /**
+     * Lee una cadena con prefijo de longitud, reutilizando un arreglo auxiliar para copiar los bytes
+     * @param buffer El contenido del archivo
+     * @param auxiliar Arreglo reutilizable; se usa uno nuevo solo si la cadena no cabe
+     * @return La cadena
+     */
+    private static String leerCadena(ByteBuffer buffer, byte[] auxiliar) {
+        int longitud = 0;
+        int desplazamiento = 0;
+        byte actual;
+        do {
+            actual = buffer.get();
+            longitud |= (actual & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        } while ((actual & 0x80) != 0);
+        byte[] destino = longitud <= auxiliar.length ? auxiliar : new byte[longitud];
+        buffer.get(destino, 0, longitud);
+        return new String(destino, 0, longitud, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+public class SnapshotBinarioTest {
+    private BinaryTree arbolSku;
+    private String archivo;
+
+    @BeforeEach
+    public void setUp() {
+        arbolSku = new BinaryTree();
+        archivo = "inventario_test.bin";
+        for (int i = 1; i <= 50; i++) {
+            String sku = String.format("%03d", i);
+            Map<String, Integer> tallas = new HashMap<>();
+            tallas.put("S", i);
+            tallas.put("XL", 100 - i);
+            arbolSku.insertar(sku, new Producto(sku, "Camiseta Pádel " + i, "Tela \"dry-fit\", ligera", tallas));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(Paths.get(archivo));
+    }
+
+    @Test
+    public void testExportarEImportar() throws IOException {
+        SnapshotBinario.exportar(archivo, arbolSku);
+        BinaryTree leidoSku = new BinaryTree();
+        BinaryTree leidoNombre = new BinaryTree();
+        SnapshotBinario.importar(archivo, leidoSku, leidoNombre);
+
+        assertEquals(50, leidoSku.tamano());
+        assertEquals(50, leidoNombre.tamano());
+        Producto producto = leidoSku.buscar("007");
+        assertEquals("Camiseta Pádel 7", producto.getNombre());
+        assertEquals("Tela \"dry-fit\", ligera", producto.getDescripcion());
+        assertEquals(7, producto.getTallas().get("S"));
+        assertEquals(93, producto.getTallas().get("XL"));
+        assertSame(producto, leidoNombre.buscarPorNombre("camiseta padel 7"));
+    }
+
+    @Test
+    public void testExportarReemplazaSinDejarTemporal() throws IOException {
+        Files.write(Paths.get(archivo), "fotografía anterior".getBytes("UTF-8"));
+        SnapshotBinario.exportar(archivo, arbolSku);
+        assertFalse(Files.exists(Paths.get(archivo + ".tmp")));
+        BinaryTree leidoSku = new BinaryTree();
+        SnapshotBinario.importar(archivo, leidoSku, new BinaryTree());
+        assertEquals(50, leidoSku.tamano());
+    }
+
+    @Test
+    public void testArchivoQueNoEsBinario() throws IOException {
+        Files.write(Paths.get(archivo), "SKU,Nombre,Descripción,Tallas\n".getBytes("UTF-8"));
+        assertThrows(IOException.class, () -> SnapshotBinario.importar(archivo, new BinaryTree(), new BinaryTree()));
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * @author Alejandra Avilés
+ * Pedido que cambia el stock de varios SKU y tallas como una sola unidad: se aplican todas sus líneas o ninguna.
+ * No usa candados, así que no hay orden de bloqueo que respetar ni riesgo de deadlock. Primero se reservan
+ * las líneas que restan, cada una con el compareAndSet de Producto; si alguna no alcanza, se devuelven
+ * las unidades ya reservadas. Solo cuando todas las restas quedaron reservadas se aplican las sumas.
+ * Mientras dura la reserva, otro pedido puede ver el stock ya descontado, pero nunca se vende de más.
+ */
+public class Transaccion {
+    private final List<Linea> lineas = new ArrayList<>();
+    private int lineaFallida = -1;
+
+    /**
+     * Una línea del pedido: cuántas unidades se suman (positivo) o restan (negativo) de una talla de un SKU
+     */
+    public static class Linea {
+        private final String sku, talla;
+        private final int diferencia;
+        private Producto producto; /* Se resuelve al aplicar la transacción */
+
+        /**
+         * Constructor de la clase Linea
+         * @param sku El SKU del producto
+         * @param talla La talla
+         * @param diferencia Las unidades a sumar, o negativas para restar
+         */
+        public Linea(String sku, String talla, int diferencia) {
+            this.sku = sku;
+            this.talla = talla;
+            this.diferencia = diferencia;
+        }
+
+        public String getSku() { return sku; }
+        public String getTalla() { return talla; }
+        public int getDiferencia() { return diferencia; }
+        Producto getProducto() { return producto; }
+    }
+
+    /**
+     * Agrega una línea al pedido
+     * @param sku El SKU del producto
+     * @param talla La talla
+     * @param diferencia Las unidades a sumar, o negativas para restar
+     */
+    public void agregar(String sku, String talla, int diferencia) {
+        lineas.add(new Linea(sku, talla, diferencia));
+    }
+
+    /**
+     * Obtiene las líneas del pedido, en el orden en que se agregaron
+     * @return Las líneas
+     */
+    public List<Linea> getLineas() {
+        return lineas;
+    }
+
+    /**
+     * Posición de la línea que impidió aplicar el pedido
+     * @return La posición, o -1 si el pedido se aplicó o todavía no se intenta
+     */
+    public int getLineaFallida() {
+        return lineaFallida;
+    }
+
+    /**
+     * Aplica el pedido en memoria, todo o nada. No lo persiste; para eso se usa
+     * Inventario.aplicarTransaccion o InventarioConcurrente.aplicarTransaccion.
+     * @param buscador Cómo encontrar un producto por SKU
+     * @return EXITO, o el motivo por el que falló la línea indicada en getLineaFallida()
+     */
+    ResultadoStock aplicar(Function<String, Producto> buscador) {
+        lineaFallida = -1;
+        for (int i = 0; i < lineas.size(); i++) {
+            Linea linea = lineas.get(i);
+            linea.producto = buscador.apply(linea.sku);
+            if (linea.producto == null) {
+                lineaFallida = i;
+                return ResultadoStock.PRODUCTO_INEXISTENTE;
+            }
+        }
+        for (int i = 0; i < lineas.size(); i++) {
+            Linea linea = lineas.get(i);
+            if (linea.diferencia >= 0) { continue; }
+            ResultadoStock resultado = linea.producto.restarCantidad(linea.talla, -linea.diferencia);
+            if (resultado != ResultadoStock.EXITO) {
+                devolverReservas(i);
+                lineaFallida = i;
+                return resultado;
+            }
+        }
+        for (Linea linea : lineas) {
+            if (linea.diferencia > 0) {
+                linea.producto.aumentarCantidad(linea.talla, linea.diferencia);
+            }
+        }
+        return ResultadoStock.EXITO;
+    }
+
+    /**
+     * Devuelve las unidades de las restas ya reservadas. Si otro hilo quitó la talla mientras tanto, no se
+     * vuelve a crear: esas unidades se descartan junto con la talla y se avisa por consola.
+     * @param hasta La posición de la primera línea que no se reservó
+     */
+    private void devolverReservas(int hasta) {
+        for (int i = 0; i < hasta; i++) {
+            Linea linea = lineas.get(i);
+            if (linea.diferencia < 0
+                    && linea.producto.devolverCantidad(linea.talla, -linea.diferencia) != ResultadoStock.EXITO) {
+                System.out.println("No se devolvieron " + (-linea.diferencia) + " unidades de la talla " + linea.talla
+                    + " del SKU " + linea.sku + " porque la talla ya no existe.");
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TransaccionTest {
+    private Map<String, Producto> productos;
+
+    @BeforeEach
+    public void setUp() {
+        productos = new HashMap<>();
+        productos.put("1", new Producto("1", "Camiseta", "Camiseta de algodón", Map.of("S", 10, "M", 5)));
+        productos.put("2", new Producto("2", "Pantalón", "Pantalón de mezclilla", Map.of("S", 1)));
+    }
+
+    @Test
+    public void testSeAplicanTodasLasLineas() {
+        Transaccion pedido = new Transaccion();
+        pedido.agregar("1", "S", -3);
+        pedido.agregar("2", "S", -1);
+        pedido.agregar("1", "L", 4); // Devolución de una talla nueva
+
+        assertEquals(ResultadoStock.EXITO, pedido.aplicar(productos::get));
+        assertEquals(7, productos.get("1").cantidadDe("S"));
+        assertEquals(0, productos.get("2").cantidadDe("S"));
+        assertEquals(4, productos.get("1").cantidadDe("L"));
+        assertEquals(-1, pedido.getLineaFallida());
+    }
+
+    @Test
+    public void testFaltanteNoDejaLineasAplicadas() {
+        Transaccion pedido = new Transaccion();
+        pedido.agregar("1", "S", -3);
+        pedido.agregar("1", "M", 2);
+        pedido.agregar("2", "S", -5); // Solo hay 1
+
+        assertEquals(ResultadoStock.INSUFICIENTE, pedido.aplicar(productos::get));
+        assertEquals(2, pedido.getLineaFallida());
+        assertEquals(10, productos.get("1").cantidadDe("S"));
+        assertEquals(5, productos.get("1").cantidadDe("M"));
+        assertEquals(1, productos.get("2").cantidadDe("S"));
+    }
+
+    @Test
+    public void testDeshacerNoRecreaUnaTallaQuitada() {
+        Producto camiseta = productos.get("1");
+        /* Otro hilo quita la talla S justo después de que el pedido reservó sus unidades */
+        camiseta.agregarObservador((producto, talla, anterior, nueva) -> {
+            if (anterior == 10 && nueva == 7) {
+                producto.getTallas().remove("S");
+            }
+        });
+        Transaccion pedido = new Transaccion();
+        pedido.agregar("1", "S", -3);
+        pedido.agregar("2", "S", -5); // Solo hay 1
+
+        assertEquals(ResultadoStock.INSUFICIENTE, pedido.aplicar(productos::get));
+        assertEquals(1, pedido.getLineaFallida());
+        assertFalse(camiseta.getTallas().containsKey("S"));
+        assertEquals(5, camiseta.cantidadTotal());
+    }
+
+    @Test
+    public void testProductoInexistenteNoTocaElStock() {
+        Transaccion pedido = new Transaccion();
+        pedido.agregar("1", "S", -1);
+        pedido.agregar("9", "S", -1);
+
+        assertEquals(ResultadoStock.PRODUCTO_INEXISTENTE, pedido.aplicar(productos::get));
+        assertEquals(10, productos.get("1").cantidadDe("S"));
+    }
+
+    @Test
+    public void testPedidosConcurrentesNoSobrevenden() throws InterruptedException {
+        productos.get("1").setTallas(Map.of("S", 500, "M", 500));
+        AtomicInteger aplicados = new AtomicInteger();
+        List<Thread> hilos = new ArrayList<>();
+        for (int h = 0; h < 8; h++) {
+            boolean invertido = h % 2 == 0; // Los pedidos recorren los SKU en orden opuesto
+            hilos.add(new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    Transaccion pedido = new Transaccion();
+                    pedido.agregar("1", invertido ? "M" : "S", -1);
+                    pedido.agregar("1", invertido ? "S" : "M", -1);
+                    if (pedido.aplicar(productos::get) == ResultadoStock.EXITO) {
+                        aplicados.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        hilos.forEach(Thread::start);
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        assertEquals(500 - aplicados.get(), productos.get("1").cantidadDe("S"));
+        assertEquals(500 - aplicados.get(), productos.get("1").cantidadDe("M"));
+        assertTrue(productos.get("1").cantidadDe("S") >= 0);
+    }
+}